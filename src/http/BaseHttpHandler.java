@@ -0,0 +1,227 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import manager.BatchResult;
+import manager.TaskManager;
+import tasks.Task;
+import tasks.TaskType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Общая часть обработчиков: разбор пути, чтение тела, ответы. Ответ с задачами пишется
+// в тело потоком, без сборки документа в памяти: короткий уходит одним куском с Content-Length,
+// длинный - частями (chunked). Коды ответов:
+// 200/201/204 - успех, 400 - неверный запрос, 404 - нет задачи или пути,
+// 405 - метод не поддерживается, 406 - пересечение по времени, 500 - внутренняя ошибка
+abstract class BaseHttpHandler implements HttpHandler {
+    private static final int MAX_BODY_BYTES = 1 << 20;
+
+    protected final TaskManager manager;
+
+    protected BaseHttpHandler(TaskManager manager) {
+        this.manager = manager;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            List<String> path = pathOf(exchange);
+            switch (exchange.getRequestMethod()) {
+                case "GET":
+                    get(exchange, path);
+                    break;
+                case "POST":
+                    post(exchange, path);
+                    break;
+                case "DELETE":
+                    delete(exchange, path);
+                    break;
+                default:
+                    sendMethodNotAllowed(exchange);
+            }
+        } catch (IllegalArgumentException e) {
+            sendErrorIfPossible(exchange, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            sendErrorIfPossible(exchange, 500, "Internal error: " + e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // path - части пути после имени ресурса: /tasks/5 -> ["5"]
+    protected void get(HttpExchange exchange, List<String> path) throws IOException {
+        sendMethodNotAllowed(exchange);
+    }
+
+    protected void post(HttpExchange exchange, List<String> path) throws IOException {
+        sendMethodNotAllowed(exchange);
+    }
+
+    protected void delete(HttpExchange exchange, List<String> path) throws IOException {
+        sendMethodNotAllowed(exchange);
+    }
+
+    protected static int idOf(String segment) {
+        try {
+            return Integer.parseInt(segment);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed id: " + segment);
+        }
+    }
+
+    protected static Map<String, String> queryOf(HttpExchange exchange) {
+        Map<String, String> query = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return query;
+        }
+        for (String pair : raw.split("&")) {
+            int split = pair.indexOf('=');
+            if (split > 0) {
+                query.put(URLDecoder.decode(pair.substring(0, split), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(split + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return query;
+    }
+
+    protected static Task readTask(HttpExchange exchange, TaskType defaultType) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            byte[] bytes = body.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("Request body is larger than " + MAX_BODY_BYTES + " bytes");
+            }
+            return TaskJsonReader.readTask(new String(bytes, StandardCharsets.UTF_8), defaultType);
+        }
+    }
+
+    // Новая задача (id 0) добавляется, существующая обновляется. Через пакетные методы: они
+    // сообщают об ошибке в результате, а не исключением, и не пишут в историю просмотров
+    protected void save(HttpExchange exchange, Task task) throws IOException {
+        boolean created = task.getId() == 0;
+        BatchResult result = created ? manager.addAll(List.of(task)) : manager.updateAll(List.of(task));
+        if (result.hasFailures()) {
+            BatchResult.Reason reason = result.getReason(0);
+            int status = reason == BatchResult.Reason.OVERLAP ? 406
+                    : reason == BatchResult.Reason.NOT_FOUND ? 404 : 400;
+            sendError(exchange, status, result.getFailures().get(0));
+        } else if (created) {
+            sendTask(exchange, 201, task);
+        } else {
+            sendEmpty(exchange, 204);
+        }
+    }
+
+    protected static void sendTasks(HttpExchange exchange, Iterable<? extends Task> tasks) throws IOException {
+        TaskJsonWriter writer = new TaskJsonWriter(new ResponseBody(exchange, 200));
+        writer.writeTasks(tasks);
+        writer.flush();
+    }
+
+    protected static void sendTask(HttpExchange exchange, int status, Task task) throws IOException {
+        if (task == null) {
+            sendNotFound(exchange);
+            return;
+        }
+        TaskJsonWriter writer = new TaskJsonWriter(new ResponseBody(exchange, status));
+        writer.writeTask(task);
+        writer.flush();
+    }
+
+    protected static void sendEmpty(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+    }
+
+    protected static void sendNotFound(HttpExchange exchange) throws IOException {
+        sendError(exchange, 404, "Not found: " + exchange.getRequestURI().getPath());
+    }
+
+    protected static void sendMethodNotAllowed(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Allow", "GET, POST, DELETE");
+        sendError(exchange, 405, "Method not allowed: " + exchange.getRequestMethod());
+    }
+
+    protected static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        TaskJsonWriter writer = new TaskJsonWriter(new ResponseBody(exchange, status));
+        writer.writeError(message);
+        writer.flush();
+    }
+
+    // Если заголовки уже ушли (ошибка посреди потока), ответ просто обрывается
+    private static void sendErrorIfPossible(HttpExchange exchange, int status, String message) throws IOException {
+        if (exchange.getResponseCode() == -1) {
+            sendError(exchange, status, message);
+        }
+    }
+
+    private static List<String> pathOf(HttpExchange exchange) {
+        String context = exchange.getHttpContext().getPath();
+        String rest = exchange.getRequestURI().getPath().substring(context.length());
+        List<String> path = new ArrayList<>();
+        for (String segment : rest.split("/")) {
+            if (!segment.isEmpty()) {
+                path.add(segment);
+            }
+        }
+        return path;
+    }
+
+    // Заголовки уходят вместе с первым куском тела. Первый кусок придерживается: если за ним
+    // сразу идёт flush, длина ответа известна и он отправляется без chunked-кодирования
+    private static final class ResponseBody extends OutputStream {
+        private final HttpExchange exchange;
+        private final int status;
+        private byte[] pending;
+        private boolean started;
+
+        ResponseBody(HttpExchange exchange, int status) {
+            this.exchange = exchange;
+            this.status = status;
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (started) {
+                exchange.getResponseBody().write(bytes, offset, length);
+            } else if (pending == null) {
+                pending = Arrays.copyOfRange(bytes, offset, offset + length);
+            } else {
+                started = true;
+                exchange.sendResponseHeaders(status, 0);
+                exchange.getResponseBody().write(pending);
+                exchange.getResponseBody().write(bytes, offset, length);
+                pending = null;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (!started) {
+                started = true;
+                int length = pending != null ? pending.length : 0;
+                exchange.sendResponseHeaders(status, length > 0 ? length : -1);
+                if (length > 0) {
+                    exchange.getResponseBody().write(pending);
+                }
+                pending = null;
+            }
+            exchange.getResponseBody().flush();
+        }
+    }
+}
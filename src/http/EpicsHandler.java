@@ -0,0 +1,61 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import manager.TaskManager;
+import tasks.Epic;
+import tasks.Task;
+import tasks.TaskType;
+
+import java.io.IOException;
+import java.util.List;
+
+// /epics и /epics/{id}/subtasks. Статус и время эпика считаются по подзадачам,
+// поэтому при сохранении берутся только имя и описание
+class EpicsHandler extends BaseHttpHandler {
+    EpicsHandler(TaskManager manager) {
+        super(manager);
+    }
+
+    @Override
+    protected void get(HttpExchange exchange, List<String> path) throws IOException {
+        if (path.isEmpty()) {
+            sendTasks(exchange, manager.getEpics());
+            return;
+        }
+        Epic epic = path.size() <= 2 ? manager.getEpicById(idOf(path.get(0))) : null;
+        if (path.size() == 1) {
+            sendTask(exchange, 200, epic);
+        } else if (epic != null && path.get(1).equals("subtasks")) {
+            // Список подзадач - тоже просмотр эпика: так эпик и отличается от несуществующего
+            sendTasks(exchange, manager.getSubtasksOfEpic(epic.getId()));
+        } else {
+            sendNotFound(exchange);
+        }
+    }
+
+    @Override
+    protected void post(HttpExchange exchange, List<String> path) throws IOException {
+        if (!path.isEmpty()) {
+            sendNotFound(exchange);
+            return;
+        }
+        Task epic = readTask(exchange, TaskType.EPIC);
+        if (epic.getType() != TaskType.EPIC) {
+            throw new IllegalArgumentException("Expected an epic, got " + epic.getType());
+        }
+        save(exchange, epic);
+    }
+
+    @Override
+    protected void delete(HttpExchange exchange, List<String> path) throws IOException {
+        if (path.isEmpty()) {
+            manager.removeAllEpics();
+        } else if (path.size() == 1) {
+            manager.removeEpic(idOf(path.get(0)));
+        } else {
+            sendNotFound(exchange);
+            return;
+        }
+        sendEmpty(exchange, 204);
+    }
+}
@@ -0,0 +1,23 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import manager.TaskManager;
+
+import java.io.IOException;
+import java.util.List;
+
+// /history - просмотренные задачи от давних к последним
+class HistoryHandler extends BaseHttpHandler {
+    HistoryHandler(TaskManager manager) {
+        super(manager);
+    }
+
+    @Override
+    protected void get(HttpExchange exchange, List<String> path) throws IOException {
+        if (path.isEmpty()) {
+            sendTasks(exchange, manager.getHistory());
+        } else {
+            sendNotFound(exchange);
+        }
+    }
+}
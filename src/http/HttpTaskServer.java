@@ -0,0 +1,98 @@
+package http;
+
+import com.sun.net.httpserver.HttpServer;
+import manager.ConcurrentTaskManager;
+import manager.TaskManager;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// HTTP-доступ к менеджеру на встроенном сервере JDK: /tasks, /subtasks, /epics, /history, /prioritized.
+// Соединения обслуживает селектор сервера, поэтому простаивающие соединения потоков не занимают;
+// каждый запрос выполняется в своём виртуальном потоке (JDK 21; на JDK 17 - в ограниченном пуле
+// платформенных потоков, простаивающим соединениям это не мешает). Менеджер и его история должны
+// выдерживать параллельные вызовы - по умолчанию это ConcurrentTaskManager с ConcurrentHistoryManager.
+// /history отдаёт историю самого менеджера (getHistory), отдельно она не передаётся.
+// Простаивающие соединения сервер закрывает через sun.net.httpserver.idleInterval секунд (30)
+public class HttpTaskServer {
+    public static final int PORT = 8080;
+    // Очередь ещё не принятых соединений: при тысячах одновременных подключений
+    // стандартной очереди ОС не хватает
+    private static final int BACKLOG = 4096;
+    // Пул для JDK без виртуальных потоков: запросы короткие и не ждут ввода-вывода менеджера
+    private static final int PLATFORM_THREADS = Math.max(32, Runtime.getRuntime().availableProcessors() * 8);
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    // Сервер JDK пишет заголовки и тело ответа разными пакетами: с алгоритмом Нейгла тело ждёт
+    // подтверждения заголовков, и каждый ответ задерживается на 40 мс отложенного ACK клиента.
+    // Настройка читается при создании первого HttpServer в JVM; заданное явно не меняется
+    static {
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    public HttpTaskServer() throws IOException {
+        this(PORT);
+    }
+
+    public HttpTaskServer(int port) throws IOException {
+        this(new ConcurrentTaskManager(), port);
+    }
+
+    // port 0 - любой свободный порт, узнать его можно через getPort()
+    public HttpTaskServer(TaskManager manager, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        server.createContext("/tasks", new TasksHandler(manager));
+        server.createContext("/subtasks", new SubtasksHandler(manager));
+        server.createContext("/epics", new EpicsHandler(manager));
+        server.createContext("/history", new HistoryHandler(manager));
+        server.createContext("/prioritized", new PrioritizedHandler(manager));
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    // Ждёт до delaySeconds завершения начатых запросов
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(Math.max(delaySeconds, 1), TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Поток на запрос: виртуальный, если JDK его умеет (21+), иначе пул платформенных потоков.
+    // Метод ищется отражением, чтобы исходники собирались и на JDK 17
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(PLATFORM_THREADS);
+        }
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // Запуск: java http.HttpTaskServer [порт]
+    public static void main(String[] args) throws IOException {
+        HttpTaskServer server = new HttpTaskServer(args.length > 0 ? Integer.parseInt(args[0]) : PORT);
+        server.start();
+        System.out.println("HTTP-сервер запущен на порту " + server.getPort());
+    }
+}
@@ -0,0 +1,48 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import manager.TaskManager;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Map;
+
+// /prioritized - лента по времени начала; ?from=...&to=... - окно с вхождениями повторяющихся задач
+class PrioritizedHandler extends BaseHttpHandler {
+    PrioritizedHandler(TaskManager manager) {
+        super(manager);
+    }
+
+    @Override
+    protected void get(HttpExchange exchange, List<String> path) throws IOException {
+        if (!path.isEmpty()) {
+            sendNotFound(exchange);
+            return;
+        }
+        Map<String, String> query = queryOf(exchange);
+        if (!query.containsKey("from") && !query.containsKey("to")) {
+            sendTasks(exchange, manager.getPrioritizedTasks());
+            return;
+        }
+        LocalDateTime from = timeOf(query, "from");
+        LocalDateTime to = timeOf(query, "to");
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        sendTasks(exchange, manager.getPrioritizedTasks(from, to));
+    }
+
+    private static LocalDateTime timeOf(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Parameter " + name + " is required");
+        }
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Malformed " + name + ": " + value);
+        }
+    }
+}
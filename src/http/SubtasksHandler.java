@@ -0,0 +1,53 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import manager.TaskManager;
+import tasks.Task;
+import tasks.TaskType;
+
+import java.io.IOException;
+import java.util.List;
+
+// /subtasks - подзадачи; эпик указывается полем epicId
+class SubtasksHandler extends BaseHttpHandler {
+    SubtasksHandler(TaskManager manager) {
+        super(manager);
+    }
+
+    @Override
+    protected void get(HttpExchange exchange, List<String> path) throws IOException {
+        if (path.isEmpty()) {
+            sendTasks(exchange, manager.getSubtasks());
+        } else if (path.size() == 1) {
+            sendTask(exchange, 200, manager.getSubtaskById(idOf(path.get(0))));
+        } else {
+            sendNotFound(exchange);
+        }
+    }
+
+    @Override
+    protected void post(HttpExchange exchange, List<String> path) throws IOException {
+        if (!path.isEmpty()) {
+            sendNotFound(exchange);
+            return;
+        }
+        Task subtask = readTask(exchange, TaskType.SUBTASK);
+        if (subtask.getType() != TaskType.SUBTASK) {
+            throw new IllegalArgumentException("Expected a subtask, got " + subtask.getType());
+        }
+        save(exchange, subtask);
+    }
+
+    @Override
+    protected void delete(HttpExchange exchange, List<String> path) throws IOException {
+        if (path.isEmpty()) {
+            manager.removeAllSubtasks();
+        } else if (path.size() == 1) {
+            manager.removeSubtask(idOf(path.get(0)));
+        } else {
+            sendNotFound(exchange);
+            return;
+        }
+        sendEmpty(exchange, 204);
+    }
+}
@@ -0,0 +1,319 @@
+package http;
+
+import tasks.Epic;
+import tasks.RecurrenceRule;
+import tasks.RecurringTask;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Разбор задач в формате TaskJsonWriter: тело запроса - одна задача. Поля, которых нет, получают
+// значения по умолчанию: id 0 (новая задача), статус NEW, длительность 0. Вычисляемые поля
+// (endTime, subtasks) пропускаются. Ошибки формата - IllegalArgumentException
+final class TaskJsonReader {
+    private final String json;
+    private int position;
+
+    private TaskJsonReader(String json) {
+        this.json = json;
+    }
+
+    // type в теле может уточнить тип (RECURRING вместо TASK), иначе берётся defaultType
+    static Task readTask(String json, TaskType defaultType) {
+        TaskJsonReader reader = new TaskJsonReader(json);
+        Object value = reader.value();
+        reader.skipSpaces();
+        if (reader.position != json.length()) {
+            throw reader.error("Unexpected data after the object");
+        }
+        if (!(value instanceof Map)) {
+            throw new IllegalArgumentException("Task must be a JSON object");
+        }
+        return toTask((Map<?, ?>) value, defaultType);
+    }
+
+    // Массив задач, как в ответах со списками
+    static List<Task> readTasks(String json, TaskType defaultType) {
+        TaskJsonReader reader = new TaskJsonReader(json);
+        Object value = reader.value();
+        reader.skipSpaces();
+        if (reader.position != json.length()) {
+            throw reader.error("Unexpected data after the array");
+        }
+        if (!(value instanceof List)) {
+            throw new IllegalArgumentException("Tasks must be a JSON array");
+        }
+        List<Task> tasks = new ArrayList<>();
+        for (Object item : (List<?>) value) {
+            if (!(item instanceof Map)) {
+                throw new IllegalArgumentException("Task must be a JSON object");
+            }
+            tasks.add(toTask((Map<?, ?>) item, defaultType));
+        }
+        return tasks;
+    }
+
+    private static Task toTask(Map<?, ?> fields, TaskType defaultType) {
+        String typeName = text(fields, "type");
+        TaskType type = typeName != null ? valueOf(TaskType.class, typeName) : defaultType;
+        int id = (int) number(fields, "id", 0);
+        String name = text(fields, "name");
+        if (name == null) {
+            throw new IllegalArgumentException("Field name is required");
+        }
+        String description = text(fields, "description");
+        String statusName = text(fields, "status");
+        TaskStatus status = statusName != null ? valueOf(TaskStatus.class, statusName) : TaskStatus.NEW;
+        long minutes = number(fields, "duration", 0);
+
+        Task task;
+        switch (type) {
+            case EPIC:
+                task = new Epic(id, name, description, status);
+                break;
+            case SUBTASK:
+                if (fields.get("epicId") == null) {
+                    throw new IllegalArgumentException("Field epicId is required");
+                }
+                task = new Subtask((int) number(fields, "epicId", 0), id, name, description, status, minutes);
+                break;
+            case RECURRING:
+                String rule = text(fields, "recurrence");
+                if (rule == null) {
+                    throw new IllegalArgumentException("Field recurrence is required");
+                }
+                task = new RecurringTask(id, name, description, status, minutes, RecurrenceRule.parse(rule));
+                break;
+            default:
+                task = new Task(id, name, description, status, minutes);
+        }
+        String start = text(fields, "startTime");
+        if (start != null) {
+            try {
+                task.setStartTime(LocalDateTime.parse(start));
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException("Malformed startTime: " + start);
+            }
+        }
+        task.setAssignee(text(fields, "assignee"));
+        return task;
+    }
+
+    private static <E extends Enum<E>> E valueOf(Class<E> type, String name) {
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown " + type.getSimpleName() + ": " + name);
+        }
+    }
+
+    private static String text(Map<?, ?> fields, String key) {
+        Object value = fields.get(key);
+        if (value != null && !(value instanceof String)) {
+            throw new IllegalArgumentException("Field " + key + " must be a string");
+        }
+        return (String) value;
+    }
+
+    private static long number(Map<?, ?> fields, String key, long defaultValue) {
+        Object value = fields.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        if (!(value instanceof Long) || (Long) value < Integer.MIN_VALUE || (Long) value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Field " + key + " must be an integer");
+        }
+        return (Long) value;
+    }
+
+    // Значение JSON: Map, List, String, Long, Double, Boolean или null
+    private Object value() {
+        skipSpaces();
+        if (position >= json.length()) {
+            throw error("Unexpected end of JSON");
+        }
+        char c = json.charAt(position);
+        switch (c) {
+            case '{':
+                return object();
+            case '[':
+                return array();
+            case '"':
+                return string();
+            case 't':
+                return literal("true", Boolean.TRUE);
+            case 'f':
+                return literal("false", Boolean.FALSE);
+            case 'n':
+                return literal("null", null);
+            default:
+                if (c == '-' || c >= '0' && c <= '9') {
+                    return number();
+                }
+                throw error("Unexpected character '" + c + "'");
+        }
+    }
+
+    private Map<String, Object> object() {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        position++;
+        skipSpaces();
+        if (peek() == '}') {
+            position++;
+            return fields;
+        }
+        while (true) {
+            skipSpaces();
+            if (peek() != '"') {
+                throw error("Expected field name");
+            }
+            String key = string();
+            skipSpaces();
+            expect(':');
+            fields.put(key, value());
+            skipSpaces();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect('}');
+                return fields;
+            }
+        }
+    }
+
+    private List<Object> array() {
+        List<Object> items = new ArrayList<>();
+        position++;
+        skipSpaces();
+        if (peek() == ']') {
+            position++;
+            return items;
+        }
+        while (true) {
+            items.add(value());
+            skipSpaces();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect(']');
+                return items;
+            }
+        }
+    }
+
+    private String string() {
+        position++;
+        StringBuilder builder = new StringBuilder();
+        while (true) {
+            if (position >= json.length()) {
+                throw error("Unterminated string");
+            }
+            char c = json.charAt(position++);
+            if (c == '"') {
+                return builder.toString();
+            } else if (c != '\\') {
+                builder.append(c);
+                continue;
+            }
+            if (position >= json.length()) {
+                throw error("Unterminated string");
+            }
+            char escaped = json.charAt(position++);
+            switch (escaped) {
+                case '"':
+                case '\\':
+                case '/':
+                    builder.append(escaped);
+                    break;
+                case 'b':
+                    builder.append('\b');
+                    break;
+                case 'f':
+                    builder.append('\f');
+                    break;
+                case 'n':
+                    builder.append('\n');
+                    break;
+                case 'r':
+                    builder.append('\r');
+                    break;
+                case 't':
+                    builder.append('\t');
+                    break;
+                case 'u':
+                    if (position + 4 > json.length()) {
+                        throw error("Malformed unicode escape");
+                    }
+                    try {
+                        builder.append((char) Integer.parseInt(json.substring(position, position + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Malformed unicode escape");
+                    }
+                    position += 4;
+                    break;
+                default:
+                    throw error("Unknown escape \\" + escaped);
+            }
+        }
+    }
+
+    private Object number() {
+        int start = position;
+        if (peek() == '-') {
+            position++;
+        }
+        boolean fraction = false;
+        while (position < json.length()) {
+            char c = json.charAt(position);
+            if (c == '.' || c == 'e' || c == 'E' || c == '+' || (c == '-' && position > start)) {
+                fraction = true;
+            } else if (c < '0' || c > '9') {
+                break;
+            }
+            position++;
+        }
+        String text = json.substring(start, position);
+        try {
+            return fraction ? (Object) Double.parseDouble(text) : (Object) Long.parseLong(text);
+        } catch (NumberFormatException e) {
+            throw error("Malformed number " + text);
+        }
+    }
+
+    private Object literal(String word, Object value) {
+        if (!json.startsWith(word, position)) {
+            throw error("Unexpected token");
+        }
+        position += word.length();
+        return value;
+    }
+
+    private void expect(char c) {
+        if (peek() != c) {
+            throw error("Expected '" + c + "'");
+        }
+        position++;
+    }
+
+    private char peek() {
+        return position < json.length() ? json.charAt(position) : 0;
+    }
+
+    private void skipSpaces() {
+        while (position < json.length() && Character.isWhitespace(json.charAt(position))) {
+            position++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + position);
+    }
+}
@@ -0,0 +1,260 @@
+package http;
+
+import tasks.Epic;
+import tasks.Occurrence;
+import tasks.RecurrenceRule;
+import tasks.RecurringTask;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Потоковая запись задач в JSON. Символы кодируются в UTF-8 прямо в буфер, который уходит
+// в поток кусками по 8 КБ: ни документ, ни числа и даты не собираются в промежуточные строки.
+// Поля задачи: id, type, name, description, status, duration (минуты), startTime, endTime,
+// assignee; у подзадачи ещё epicId, у эпика subtasks, у повторяющейся задачи recurrence
+final class TaskJsonWriter {
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    private final OutputStream out;
+    private final byte[] buffer = new byte[8192];
+    private final byte[] digits = new byte[20];
+    private int position;
+
+    TaskJsonWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    void writeTasks(Iterable<? extends Task> tasks) throws IOException {
+        raw('[');
+        boolean first = true;
+        for (Task task : tasks) {
+            if (!first) {
+                raw(',');
+            }
+            writeTask(task);
+            first = false;
+        }
+        raw(']');
+    }
+
+    void writeTask(Task task) throws IOException {
+        raw("{\"id\":");
+        number(task.getId());
+        raw(",\"type\":");
+        string(task.getType().name());
+        raw(",\"name\":");
+        string(task.getName());
+        raw(",\"description\":");
+        string(task.getDescription());
+        raw(",\"status\":");
+        string(task.getStatus() != null ? task.getStatus().name() : null);
+        raw(",\"duration\":");
+        Duration duration = task.getDuration();
+        if (duration != null) {
+            number(duration.toMinutes());
+        } else {
+            raw("null");
+        }
+        raw(",\"startTime\":");
+        dateTime(task.getStartTime());
+        raw(",\"endTime\":");
+        dateTime(task.getEndTime());
+        raw(",\"assignee\":");
+        string(task.getAssignee());
+        if (task.getType() == TaskType.SUBTASK) {
+            raw(",\"epicId\":");
+            number(((Subtask) task).getEpicId());
+        } else if (task.getType() == TaskType.EPIC) {
+            raw(",\"subtasks\":[");
+            // Список эпика могут менять параллельно: обходится копия его массива
+            Object[] ids = ((Epic) task).getSubtaskOfEpicIDs().toArray();
+            for (int i = 0; i < ids.length; i++) {
+                if (i > 0) {
+                    raw(',');
+                }
+                number((Integer) ids[i]);
+            }
+            raw(']');
+        } else if (task.getType() == TaskType.RECURRING) {
+            RecurringTask series = task instanceof Occurrence ? ((Occurrence) task).getSeries() : (RecurringTask) task;
+            raw(",\"recurrence\":");
+            recurrence(series.getRecurrence());
+        }
+        raw('}');
+    }
+
+    // Объект {"error": message} для ответов с ошибкой
+    void writeError(String message) throws IOException {
+        raw("{\"error\":");
+        string(message);
+        raw('}');
+    }
+
+    void flush() throws IOException {
+        out.write(buffer, 0, position);
+        position = 0;
+        out.flush();
+    }
+
+    // В формате RecurrenceRule.format(): DAILY/1/count=3/until=...
+    private void recurrence(RecurrenceRule rule) throws IOException {
+        raw('"');
+        raw(rule.getFrequency().name());
+        raw('/');
+        number(rule.getInterval());
+        if (rule.getCount() > 0) {
+            raw("/count=");
+            number(rule.getCount());
+        }
+        if (rule.getUntil() != null) {
+            raw("/until=");
+            dateTimeDigits(rule.getUntil());
+        }
+        raw('"');
+    }
+
+    private void dateTime(LocalDateTime time) throws IOException {
+        if (time == null) {
+            raw("null");
+            return;
+        }
+        raw('"');
+        dateTimeDigits(time);
+        raw('"');
+    }
+
+    // yyyy-MM-ddTHH:mm:ss[.nnnnnnnnn] - разбирается LocalDateTime.parse
+    private void dateTimeDigits(LocalDateTime time) throws IOException {
+        if (time.getYear() < 0 || time.getYear() > 9999) {
+            raw(time.toString()); // годы вне четырёх цифр пишутся со знаком, как у toString
+            return;
+        }
+        padded(time.getYear(), 4);
+        raw('-');
+        padded(time.getMonthValue(), 2);
+        raw('-');
+        padded(time.getDayOfMonth(), 2);
+        raw('T');
+        padded(time.getHour(), 2);
+        raw(':');
+        padded(time.getMinute(), 2);
+        raw(':');
+        padded(time.getSecond(), 2);
+        if (time.getNano() != 0) {
+            raw('.');
+            padded(time.getNano(), 9);
+        }
+    }
+
+    private void padded(int value, int width) throws IOException {
+        ensure(width);
+        for (int i = width - 1; i >= 0; i--) {
+            buffer[position + i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        position += width;
+    }
+
+    private void number(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            raw("-9223372036854775808");
+            return;
+        }
+        if (value < 0) {
+            raw('-');
+            value = -value;
+        }
+        int start = digits.length;
+        do {
+            digits[--start] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        ensure(digits.length - start);
+        System.arraycopy(digits, start, buffer, position, digits.length - start);
+        position += digits.length - start;
+    }
+
+    private void string(String value) throws IOException {
+        if (value == null) {
+            raw("null");
+            return;
+        }
+        raw('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            ensure(12);
+            if (c == '"' || c == '\\') {
+                buffer[position++] = '\\';
+                buffer[position++] = (byte) c;
+            } else if (c < 0x20) {
+                escape(c);
+            } else if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | c >> 6);
+                buffer[position++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int code = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | code >> 18);
+                buffer[position++] = (byte) (0x80 | code >> 12 & 0x3F);
+                buffer[position++] = (byte) (0x80 | code >> 6 & 0x3F);
+                buffer[position++] = (byte) (0x80 | code & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                escape(c); // одиночная половина пары в UTF-8 не кодируется
+            } else {
+                buffer[position++] = (byte) (0xE0 | c >> 12);
+                buffer[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buffer[position++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        raw('"');
+    }
+
+    // Место уже выделено вызывающим
+    private void escape(char c) {
+        buffer[position++] = '\\';
+        switch (c) {
+            case '\n':
+                buffer[position++] = 'n';
+                break;
+            case '\r':
+                buffer[position++] = 'r';
+                break;
+            case '\t':
+                buffer[position++] = 't';
+                break;
+            default:
+                buffer[position++] = 'u';
+                buffer[position++] = HEX[c >> 12 & 0xF];
+                buffer[position++] = HEX[c >> 8 & 0xF];
+                buffer[position++] = HEX[c >> 4 & 0xF];
+                buffer[position++] = HEX[c & 0xF];
+        }
+    }
+
+    // Только для ASCII: ключи, имена констант, разделители
+    private void raw(String ascii) throws IOException {
+        ensure(ascii.length());
+        for (int i = 0; i < ascii.length(); i++) {
+            buffer[position++] = (byte) ascii.charAt(i);
+        }
+    }
+
+    private void raw(char c) throws IOException {
+        ensure(1);
+        buffer[position++] = (byte) c;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (position + bytes > buffer.length) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
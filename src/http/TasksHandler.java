@@ -0,0 +1,53 @@
+package http;
+
+import com.sun.net.httpserver.HttpExchange;
+import manager.TaskManager;
+import tasks.Task;
+import tasks.TaskType;
+
+import java.io.IOException;
+import java.util.List;
+
+// /tasks - обычные и повторяющиеся задачи
+class TasksHandler extends BaseHttpHandler {
+    TasksHandler(TaskManager manager) {
+        super(manager);
+    }
+
+    @Override
+    protected void get(HttpExchange exchange, List<String> path) throws IOException {
+        if (path.isEmpty()) {
+            sendTasks(exchange, manager.getTasks());
+        } else if (path.size() == 1) {
+            sendTask(exchange, 200, manager.getTaskById(idOf(path.get(0))));
+        } else {
+            sendNotFound(exchange);
+        }
+    }
+
+    @Override
+    protected void post(HttpExchange exchange, List<String> path) throws IOException {
+        if (!path.isEmpty()) {
+            sendNotFound(exchange);
+            return;
+        }
+        Task task = readTask(exchange, TaskType.TASK);
+        if (task.getType() != TaskType.TASK && task.getType() != TaskType.RECURRING) {
+            throw new IllegalArgumentException("Expected a task, got " + task.getType());
+        }
+        save(exchange, task);
+    }
+
+    @Override
+    protected void delete(HttpExchange exchange, List<String> path) throws IOException {
+        if (path.isEmpty()) {
+            manager.removeAllTasks();
+        } else if (path.size() == 1) {
+            manager.removeTask(idOf(path.get(0)));
+        } else {
+            sendNotFound(exchange);
+            return;
+        }
+        sendEmpty(exchange, 204);
+    }
+}
@@ -0,0 +1,26 @@
+package manager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Счётчик одного менеджера: id с 1 подряд, выдача - один getAndIncrement без замков
+public class AtomicIdAllocator implements IdAllocator {
+    private final AtomicInteger last = new AtomicInteger();
+
+    @Override
+    public int next() {
+        return last.incrementAndGet();
+    }
+
+    @Override
+    public int reserve(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Id count must be positive: " + count);
+        }
+        return last.getAndAdd(count) + 1;
+    }
+
+    @Override
+    public void advance(int id) {
+        last.accumulateAndGet(id, Math::max);
+    }
+}
@@ -0,0 +1,59 @@
+package manager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Итог пакетной операции: id успешно обработанных задач и причины отказа по позициям в пачке
+public class BatchResult {
+    // Причина отказа по позиции: по ней, а не по тексту сообщения, вызывающий код выбирает реакцию
+    public enum Reason {
+        OVERLAP, // время пересекается с другой задачей
+        NOT_FOUND // нет обновляемой задачи или эпика подзадачи
+    }
+
+    private final List<Integer> succeededIds = new ArrayList<>();
+    private final Map<Integer, String> failures = new LinkedHashMap<>();
+    private final Map<Integer, Reason> reasons = new HashMap<>();
+
+    void addSuccess(int id) {
+        succeededIds.add(id);
+    }
+
+    void addFailure(int index, Reason reason, String message) {
+        failures.put(index, message);
+        reasons.put(index, reason);
+    }
+
+    public List<Integer> getSucceededIds() {
+        return Collections.unmodifiableList(succeededIds);
+    }
+
+    public Map<Integer, String> getFailures() {
+        return Collections.unmodifiableMap(failures);
+    }
+
+    // null, если позиция обработана успешно
+    public Reason getReason(int index) {
+        return reasons.get(index);
+    }
+
+    public boolean isFailed(int index) {
+        return failures.containsKey(index);
+    }
+
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{" +
+                "succeeded=" + succeededIds.size() +
+                ", failures=" + failures +
+                '}';
+    }
+}
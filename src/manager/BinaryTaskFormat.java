@@ -0,0 +1,366 @@
+package manager;
+
+import tasks.Epic;
+import tasks.RecurrenceRule;
+import tasks.RecurringTask;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Бинарный формат снимка: заголовок "KNBN" + версия, затем записи [varint длина][тело].
+// Тело: тип, id, имя, статус, описание, длительность, время начала, id эпика
+// (у повторяющейся задачи вместо него - правило повторения строкой), исполнитель - если в байте
+// флагов времени стоит FLAG_ASSIGNEE.
+// Короткие строки попадают в словарь и при повторе пишутся номером в словаре,
+// id и время начала хранятся разницей с предыдущей записью.
+final class BinaryTaskFormat {
+    static final byte[] MAGIC = {'K', 'N', 'B', 'N'};
+    static final int VERSION = 1;
+
+    private static final int DICTIONARY_MAX_BYTES = 64;
+    private static final int DICTIONARY_MAX_SIZE = 1 << 16;
+    private static final int NULL_STRING = 0;
+    private static final int NEW_STRING = 1;
+    private static final int FLAG_START_TIME = 1;
+    private static final int FLAG_NANOS = 2;
+    private static final int FLAG_WHOLE_MINUTES = 4;
+    private static final int FLAG_ASSIGNEE = 8;
+    private static final TaskType[] TYPES = TaskType.values();
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    private BinaryTaskFormat() {
+    }
+
+    static boolean isBinary(File file) throws IOException {
+        if (file.length() < MAGIC.length) {
+            return false;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            return Arrays.equals(in.readNBytes(MAGIC.length), MAGIC);
+        }
+    }
+
+    static void write(OutputStream out, List<Task> rows) throws IOException {
+        out.write(MAGIC);
+        out.write(VERSION);
+        ByteSink record = new ByteSink();
+        ByteSink length = new ByteSink();
+        for (Task task : rows) {
+            record.reset();
+            record.encode(task);
+            length.reset();
+            length.writeVarLong(record.size);
+            out.write(length.bytes, 0, length.size);
+            out.write(record.bytes, 0, record.size);
+        }
+    }
+
+    static List<Task> read(InputStream source) throws IOException {
+        return read(source, null);
+    }
+
+    // С descriptions длинные описания не декодируются, задачи получают смещения строк в файле
+    static List<Task> read(InputStream source, DescriptionStore descriptions) throws IOException {
+        DataInputStream in = new DataInputStream(source);
+        byte[] header = in.readNBytes(MAGIC.length);
+        if (!Arrays.equals(header, MAGIC)) {
+            throw new IOException("Not a binary task snapshot");
+        }
+        int version = in.read();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version: " + version);
+        }
+        ByteSource decoder = new ByteSource(descriptions);
+        List<Task> rows = new ArrayList<>();
+        byte[] buffer = new byte[256];
+        long position = MAGIC.length + 1;
+        while (true) {
+            long size = readVarLong(in);
+            if (size < 0) {
+                return rows;
+            }
+            if (size > buffer.length) {
+                buffer = new byte[(int) Math.max(size, buffer.length * 2L)];
+            }
+            in.readFully(buffer, 0, (int) size);
+            position += varLongSize(size);
+            rows.add(decoder.decode(buffer, (int) size, position));
+            position += size;
+        }
+    }
+
+    // Возвращает -1 в конце потока
+    private static long readVarLong(InputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                if (shift == 0) {
+                    return -1;
+                }
+                throw new EOFException("Truncated record length");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    private static int varLongSize(long value) {
+        int bytes = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            bytes++;
+        }
+        return bytes;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class ByteSink {
+        private final Map<String, Integer> dictionary = new HashMap<>();
+        private byte[] bytes = new byte[256];
+        private int size;
+        private long previousId;
+        private long previousStart;
+
+        void reset() {
+            size = 0;
+        }
+
+        void encode(Task task) {
+            writeByte(task.getType().ordinal());
+            writeVarLong(zigZag(task.getId() - previousId));
+            previousId = task.getId();
+            writeString(task.getName());
+            writeByte(task.getStatus().ordinal());
+            writeString(task.getDescription());
+            writeVarLong(zigZag(task.getDuration() != null ? task.getDuration().toMinutes() : 0));
+            LocalDateTime startTime = task.getStartTime();
+            int assignee = task.getAssignee() != null ? FLAG_ASSIGNEE : 0;
+            if (startTime == null) {
+                writeByte(assignee);
+            } else {
+                long seconds = startTime.toEpochSecond(ZoneOffset.UTC);
+                int nanos = startTime.getNano();
+                boolean wholeMinutes = seconds % 60 == 0;
+                long value = wholeMinutes ? seconds / 60 : seconds;
+                int flags = FLAG_START_TIME | (nanos != 0 ? FLAG_NANOS : 0) | (wholeMinutes ? FLAG_WHOLE_MINUTES : 0)
+                        | assignee;
+                writeByte(flags);
+                long previous = wholeMinutes ? Math.floorDiv(previousStart, 60) : previousStart;
+                writeVarLong(zigZag(value - previous));
+                if (nanos != 0) {
+                    writeVarLong(nanos);
+                }
+                previousStart = seconds;
+            }
+            if (task.getType() == TaskType.SUBTASK) {
+                writeVarLong(((Subtask) task).getEpicId());
+            } else if (task.getType() == TaskType.RECURRING) {
+                writeString(((RecurringTask) task).getRecurrence().format());
+            }
+            if (assignee != 0) {
+                writeString(task.getAssignee());
+            }
+        }
+
+        void writeByte(int value) {
+            ensure(1);
+            bytes[size++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                writeVarLong(NULL_STRING);
+                return;
+            }
+            boolean shortString = value.length() <= DICTIONARY_MAX_BYTES;
+            if (shortString) {
+                Integer index = dictionary.get(value);
+                if (index != null) {
+                    writeVarLong(index + 2);
+                    return;
+                }
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(NEW_STRING);
+            writeVarLong(utf8.length);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, size, utf8.length);
+            size += utf8.length;
+            if (shortString && utf8.length <= DICTIONARY_MAX_BYTES && dictionary.size() < DICTIONARY_MAX_SIZE) {
+                dictionary.put(value, dictionary.size());
+            }
+        }
+
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+
+    private static final class ByteSource {
+        private final List<String> dictionary = new ArrayList<>();
+        private final DescriptionStore descriptions;
+        private byte[] bytes;
+        private int limit;
+        private int position;
+        private long previousId;
+        private long previousStart;
+
+        ByteSource(DescriptionStore descriptions) {
+            this.descriptions = descriptions;
+        }
+
+        // offset - позиция тела записи в файле, нужна для ссылок на отложенные описания
+        Task decode(byte[] bytes, int limit, long offset) throws IOException {
+            this.bytes = bytes;
+            this.limit = limit;
+            this.position = 0;
+            TaskType type = TYPES[readByte()];
+            int id = (int) (previousId + unZigZag(readVarLong()));
+            previousId = id;
+            String name = readString();
+            TaskStatus status = STATUSES[readByte()];
+            long descriptionOffset = -1;
+            String description = null;
+            if (descriptions != null && isLazyString()) {
+                descriptionOffset = offset + position + 1;
+                skipString();
+            } else {
+                description = readString();
+            }
+            Duration duration = Duration.ofMinutes(unZigZag(readVarLong()));
+            LocalDateTime startTime = null;
+            int flags = readByte();
+            if ((flags & FLAG_START_TIME) != 0) {
+                long seconds;
+                if ((flags & FLAG_WHOLE_MINUTES) != 0) {
+                    seconds = (Math.floorDiv(previousStart, 60) + unZigZag(readVarLong())) * 60;
+                } else {
+                    seconds = previousStart + unZigZag(readVarLong());
+                }
+                int nanos = (flags & FLAG_NANOS) != 0 ? (int) readVarLong() : 0;
+                startTime = LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+                previousStart = seconds;
+            }
+
+            Task task;
+            switch (type) {
+                case EPIC:
+                    task = new Epic(id, name, description, status);
+                    break;
+                case SUBTASK:
+                    task = new Subtask((int) readVarLong(), id, name, description, status);
+                    break;
+                case RECURRING:
+                    task = new RecurringTask(id, name, description, status, 0, RecurrenceRule.parse(readString()));
+                    break;
+                default:
+                    task = new Task(id, name, description, status);
+            }
+            if ((flags & FLAG_ASSIGNEE) != 0) {
+                task.setAssignee(readString());
+            }
+            if (descriptionOffset >= 0) {
+                task.setDescription(descriptions, descriptionOffset);
+            }
+            task.setDuration(duration);
+            task.setStartTime(startTime);
+            return task;
+        }
+
+        // Новая строка длиннее словарного порога: [NEW_STRING][varint длина][байты]
+        private boolean isLazyString() throws IOException {
+            int mark = position;
+            boolean lazy = readVarLong() == NEW_STRING && readVarLong() > DICTIONARY_MAX_BYTES;
+            position = mark;
+            return lazy;
+        }
+
+        private void skipString() throws IOException {
+            readVarLong();
+            int length = (int) readVarLong();
+            if (position + length > limit) {
+                throw new EOFException("Truncated string");
+            }
+            position += length;
+        }
+
+        private int readByte() throws IOException {
+            if (position >= limit) {
+                throw new EOFException("Truncated record");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        private String readString() throws IOException {
+            long ref = readVarLong();
+            if (ref == NULL_STRING) {
+                return null;
+            }
+            if (ref != NEW_STRING) {
+                return dictionary.get((int) ref - 2);
+            }
+            int length = (int) readVarLong();
+            if (position + length > limit) {
+                throw new EOFException("Truncated string");
+            }
+            String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+            position += length;
+            if (length <= DICTIONARY_MAX_BYTES && dictionary.size() < DICTIONARY_MAX_SIZE) {
+                dictionary.add(value);
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package manager;
+
+import java.time.Duration;
+
+public class CompactionStats {
+    private final long logBytes;
+    private final long recordsSinceSnapshot;
+    private final Duration lastSnapshotDuration;
+    private final long snapshotsWritten;
+    private final boolean snapshotInProgress;
+
+    public CompactionStats(long logBytes, long recordsSinceSnapshot, Duration lastSnapshotDuration,
+                           long snapshotsWritten, boolean snapshotInProgress) {
+        this.logBytes = logBytes;
+        this.recordsSinceSnapshot = recordsSinceSnapshot;
+        this.lastSnapshotDuration = lastSnapshotDuration;
+        this.snapshotsWritten = snapshotsWritten;
+        this.snapshotInProgress = snapshotInProgress;
+    }
+
+    public long getLogBytes() {
+        return logBytes;
+    }
+
+    public long getRecordsSinceSnapshot() {
+        return recordsSinceSnapshot;
+    }
+
+    public Duration getLastSnapshotDuration() {
+        return lastSnapshotDuration;
+    }
+
+    public long getSnapshotsWritten() {
+        return snapshotsWritten;
+    }
+
+    public boolean isSnapshotInProgress() {
+        return snapshotInProgress;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactionStats{" +
+                "logBytes=" + logBytes +
+                ", recordsSinceSnapshot=" + recordsSinceSnapshot +
+                ", lastSnapshotDuration=" + lastSnapshotDuration +
+                ", snapshotsWritten=" + snapshotsWritten +
+                ", snapshotInProgress=" + snapshotInProgress +
+                '}';
+    }
+}
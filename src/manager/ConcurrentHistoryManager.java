@@ -0,0 +1,286 @@
+package manager;
+
+import tasks.Task;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+// История для многопоточного чтения. Просмотр не трогает саму историю: поток получает номер
+// события и кладёт его в кольцевой буфер своей полосы без замков. Буферы разбирает один поток
+// за раз - тот, кто взял drainLock: при заполнении полосы наполовину, при чтении истории и при
+// удалении. Порядок истории задают номера событий, а не порядок разбора, поэтому пачки из разных
+// полос применяются в любом порядке. getHistory() после разбора - как у InMemoryHistoryManager
+public class ConcurrentHistoryManager implements HistoryManager {
+    private static final int BUFFER_SIZE = 128;
+    private static final int MASK = BUFFER_SIZE - 1;
+    // Полоса потока: номер потока по порядку первого просмотра, перемешанный умножением.
+    // Не через threadId(): он есть только с JDK 19, а getId() там уже устарел
+    private static final AtomicInteger THREADS = new AtomicInteger();
+    private static final ThreadLocal<Integer> THREAD_HASH =
+            ThreadLocal.withInitial(() -> THREADS.getAndIncrement() * 0x9E3779B9);
+
+    private final Stripe[] stripes;
+    private final AtomicLong sequence = new AtomicLong();
+    private final ReentrantLock drainLock = new ReentrantLock();
+    // Применённая история под drainLock: список по номерам просмотров, как в InMemoryHistoryManager
+    private final Map<Integer, Node> historyMap = new HashMap<>();
+    private final List<View> batch = new ArrayList<>();
+    private Node head;
+    private Node tail;
+
+    private static final class Node {
+        final Task task;
+        final long sequence;
+        Node prev;
+        Node next;
+
+        Node(Task task, long sequence) {
+            this.task = task;
+            this.sequence = sequence;
+        }
+    }
+
+    private static final class View {
+        final long sequence;
+        final Task task;
+
+        View(long sequence, Task task) {
+            this.sequence = sequence;
+            this.task = task;
+        }
+    }
+
+    // Кольцо на несколько писателей и одного читателя: писатель занимает ячейку сдвигом tail,
+    // затем публикует в неё событие; пустая ячейка ниже tail - запись ещё не закончена
+    private static final class Stripe {
+        final AtomicReferenceArray<View> slots = new AtomicReferenceArray<>(BUFFER_SIZE);
+        final AtomicLong tail = new AtomicLong();
+        volatile long head;
+    }
+
+    public ConcurrentHistoryManager() {
+        this(Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    public ConcurrentHistoryManager(int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive: " + stripes);
+        }
+        // Степень двойки: полоса выбирается маской
+        int size = 1;
+        while (size < stripes) {
+            size <<= 1;
+        }
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    @Override
+    public void add(Task task) {
+        if (task == null) {
+            return;
+        }
+        Stripe stripe = stripeOfCurrentThread();
+        publish(stripe, claim(stripe), task);
+    }
+
+    // Первая половина add: ячейка занята, просмотр ещё не опубликован. Для тестов, которым нужна
+    // незаконченная запись в полосе
+    Runnable beginAdd(Task task) {
+        Stripe stripe = stripeOfCurrentThread();
+        long slot = claim(stripe);
+        return () -> publish(stripe, slot, task);
+    }
+
+    private long claim(Stripe stripe) {
+        while (true) {
+            long tail = stripe.tail.get();
+            if (tail - stripe.head >= BUFFER_SIZE) {
+                // Полоса полна: событие нельзя потерять, поэтому ждём разбора
+                drainBlocking();
+                continue;
+            }
+            if (stripe.tail.compareAndSet(tail, tail + 1)) {
+                return tail;
+            }
+        }
+    }
+
+    // Номер берётся после захвата ячейки: просмотр, получивший номер раньше удаления,
+    // уже занял ячейку ниже tail, и удаление его дождётся
+    private void publish(Stripe stripe, long slot, Task task) {
+        stripe.slots.lazySet((int) (slot & MASK), new View(sequence.getAndIncrement(), task));
+        if (slot + 1 - stripe.head >= BUFFER_SIZE / 2) {
+            tryDrain();
+        }
+    }
+
+    // Просмотр, занявший ячейку до удаления, разбирается раньше него и удаляется вместе с ним
+    @Override
+    public void remove(int id) {
+        drainLock.lock();
+        try {
+            drainClaimed();
+            Node node = historyMap.remove(id);
+            if (node != null) {
+                unlink(node);
+            }
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public void clearHistory() {
+        drainLock.lock();
+        try {
+            drainClaimed();
+            historyMap.clear();
+            head = null;
+            tail = null;
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        drainLock.lock();
+        try {
+            drain();
+            List<Task> tasks = new ArrayList<>(historyMap.size());
+            for (Node node = head; node != null; node = node.next) {
+                tasks.add(node.task);
+            }
+            return tasks;
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "History:\n" + getHistory();
+    }
+
+    private Stripe stripeOfCurrentThread() {
+        return stripes[THREAD_HASH.get() & (stripes.length - 1)];
+    }
+
+    private void tryDrain() {
+        if (drainLock.tryLock()) {
+            try {
+                drain();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    private void drainBlocking() {
+        drainLock.lock();
+        try {
+            drain();
+        } finally {
+            drainLock.unlock();
+        }
+        Thread.onSpinWait();
+    }
+
+    // Под drainLock: разбирает все ячейки, занятые к началу вызова, дожидаясь незаконченных записей.
+    // Без этого просмотр за незаконченной записью другого потока применился бы после удаления,
+    // и удалённая задача вернулась бы в историю. Ожидание короткое: между захватом ячейки
+    // и публикацией писатель только берёт номер
+    private void drainClaimed() {
+        long[] claimed = new long[stripes.length];
+        for (int i = 0; i < stripes.length; i++) {
+            claimed[i] = stripes[i].tail.get();
+        }
+        drain();
+        for (int i = 0; i < stripes.length; i++) {
+            while (stripes[i].head < claimed[i]) {
+                Thread.onSpinWait();
+                drain();
+            }
+        }
+    }
+
+    // Под drainLock: из каждой полосы всё опубликованное подряд, до первой незаконченной записи.
+    // Полосы упорядочены каждая сама по себе, пачка сортируется по номерам целиком
+    private void drain() {
+        for (Stripe stripe : stripes) {
+            long head = stripe.head;
+            long tail = stripe.tail.get();
+            while (head < tail) {
+                int index = (int) (head & MASK);
+                View view = stripe.slots.get(index);
+                if (view == null) {
+                    break;
+                }
+                stripe.slots.lazySet(index, null);
+                batch.add(view);
+                head++;
+            }
+            stripe.head = head;
+        }
+        if (batch.size() > 1) {
+            batch.sort(Comparator.comparingLong(view -> view.sequence));
+        }
+        for (View view : batch) {
+            apply(view);
+        }
+        batch.clear();
+    }
+
+    // Остаётся только самый поздний просмотр задачи. Просмотр, запись которого не успела закончиться
+    // к прошлому разбору, встаёт на своё место по номеру, а не в конец
+    private void apply(View view) {
+        Node old = historyMap.get(view.task.getId());
+        if (old != null) {
+            if (old.sequence > view.sequence) {
+                return;
+            }
+            unlink(old);
+        }
+        Node node = new Node(view.task, view.sequence);
+        Node before = tail;
+        while (before != null && before.sequence > view.sequence) {
+            before = before.prev;
+        }
+        node.prev = before;
+        node.next = before != null ? before.next : head;
+        if (node.next != null) {
+            node.next.prev = node;
+        } else {
+            tail = node;
+        }
+        if (before != null) {
+            before.next = node;
+        } else {
+            head = node;
+        }
+        historyMap.put(view.task.getId(), node);
+    }
+
+    private void unlink(Node node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else {
+            head = node.next;
+        }
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        } else {
+            tail = node.prev;
+        }
+    }
+}
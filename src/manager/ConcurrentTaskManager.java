@@ -0,0 +1,367 @@
+package manager;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskType;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+// Менеджер для многопоточного сервиса. Хранилища и лента - параллельные коллекции, поэтому
+// чтение не берёт замков и не ждёт записи. Запись упорядочена тремя уровнями замков,
+// которые всегда берутся в этом порядке:
+// 1. structure: обычные изменения берут его на чтение и идут одновременно, а пакетные операции,
+//    сдвиги, автопланирование, очистка и связи между задачами - на запись и видят менеджер целиком;
+// 2. полоса эпика (у отдельной задачи - полоса её id): изменения одного эпика идут по очереди
+//    и не рвут его сводку, разные эпики правятся параллельно;
+// 3. календарь исполнителя задачи (у задач без исполнителя - часы, которые задача занимает):
+//    проверка пересечения и вставка атомарны внутри календаря. Задача без времени его не берёт.
+// Граф зависимостей синхронизирован сам, запросы к нему короткие.
+public class ConcurrentTaskManager extends InMemoryTaskManager {
+    private static final int STRIPES = 64;
+
+    private final ReentrantReadWriteLock structure = new ReentrantReadWriteLock();
+    private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+    // Подзадачи эпика для чтения без замков: список в самом эпике - обычный ArrayList
+    private final Map<Integer, Set<Integer>> members = new ConcurrentHashMap<>();
+
+    public ConcurrentTaskManager() {
+        this(new ConcurrentHistoryManager());
+    }
+
+    // История должна быть потокобезопасной: в неё пишут чтения по id из разных потоков
+    public ConcurrentTaskManager(HistoryManager historyManager) {
+        super(historyManager, true);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    //Добавление новых задач
+    @Override
+    public void addTask(Task task) {
+        // Новой задаче полоса не нужна: её id ещё никто не знает
+        shared(() -> inCalendars(task, () -> super.addTask(task)));
+    }
+
+    @Override
+    public void addEpic(Epic epic) {
+        shared(() -> {
+            super.addEpic(epic);
+            memberIds(epic.getId());
+        });
+    }
+
+    @Override
+    public void addSubtask(Subtask subtask) {
+        int epicId = subtask.getEpicId();
+        shared(() -> striped(epicId, () -> inCalendars(subtask, () -> {
+            super.addSubtask(subtask);
+            memberIds(epicId).add(subtask.getId());
+        })));
+    }
+
+    //Обновление существующих задач
+    @Override
+    public void updateTask(Task task) {
+        // Разбор по типу до замков: подзадача берёт полосу своего эпика, а не свою
+        if (task.getType() == TaskType.SUBTASK) {
+            updateSubtask((Subtask) task);
+            return;
+        } else if (task.getType() == TaskType.EPIC) {
+            updateEpic((Epic) task);
+            return;
+        }
+        shared(() -> striped(task.getId(), () -> inCalendars(task, () -> super.updateTask(task))));
+    }
+
+    @Override
+    public void updateEpic(Epic epic) {
+        shared(() -> striped(epic.getId(), () -> super.updateEpic(epic)));
+    }
+
+    // Подзадача своего эпика правится под его полосой. Перенос в другой эпик меняет два эпика
+    // и идёт под исключительным замком: членство в эпике меняется только там, поэтому проверка
+    // под полосой не устаревает
+    @Override
+    public void updateSubtask(Subtask subtask) {
+        int id = subtask.getId();
+        int epicId = subtask.getEpicId();
+        boolean updated = shared(() -> striped(epicId, () -> {
+            Set<Integer> ids = members.get(epicId);
+            if (ids == null || !ids.contains(id)) {
+                return false;
+            }
+            inCalendars(subtask, () -> super.updateSubtask(subtask));
+            return true;
+        }));
+        if (!updated) {
+            exclusive(() -> inCalendars(subtask, () -> {
+                super.updateSubtask(subtask);
+                syncMember(id);
+            }));
+        }
+    }
+
+    @Override
+    public void updateEpicStatus(int epicId) {
+        shared(() -> striped(epicId, () -> super.updateEpicStatus(epicId)));
+    }
+
+    //Удаление по идентификатору
+    @Override
+    public void removeTask(int id) {
+        Task task = find(id);
+        if (task == null || typeOf(id) != TaskType.TASK) {
+            return;
+        }
+        shared(() -> striped(id, () -> inCalendars(task, () -> super.removeTask(id))));
+    }
+
+    @Override
+    public void removeSubtask(int id) {
+        Task task = find(id);
+        if (task == null || typeOf(id) != TaskType.SUBTASK) {
+            return;
+        }
+        int epicId = ((Subtask) task).getEpicId();
+        shared(() -> striped(epicId, () -> inCalendars(task, () -> {
+            super.removeSubtask(id);
+            Set<Integer> ids = members.get(epicId);
+            if (ids != null) {
+                ids.remove(id);
+            }
+        })));
+    }
+
+    @Override
+    public void removeEpic(int id) {
+        // Подзадачи удаляются через removeSubtask под той же полосой
+        shared(() -> striped(id, () -> {
+            super.removeEpic(id);
+            members.remove(id);
+        }));
+    }
+
+    @Override
+    public List<Subtask> getSubtasksOfEpic(int id) {
+        List<Subtask> subtasksOfEpic = new ArrayList<>();
+        Set<Integer> ids = members.get(id);
+        if (ids == null) {
+            return subtasksOfEpic;
+        }
+        for (int subtaskId : ids) {
+            // Подзадачу могли удалить после чтения списка
+            Task subtask = find(subtaskId);
+            if (subtask instanceof Subtask) {
+                subtasksOfEpic.add((Subtask) subtask);
+            }
+        }
+        return subtasksOfEpic;
+    }
+
+    // Первая версия строится по всем хранилищам, поэтому под исключительным замком;
+    // дальше снимок читается без замков
+    @Override
+    public TaskSnapshot snapshot() {
+        if (!isPublishing()) {
+            return exclusive(() -> super.snapshot());
+        }
+        return super.snapshot();
+    }
+
+    //Пакетные операции и операции над всей доской - под исключительным замком
+    @Override
+    public BatchResult addAll(List<? extends Task> items) {
+        return exclusive(() -> {
+            BatchResult result = super.addAll(items);
+            for (Task item : items) {
+                if (item.getType() == TaskType.EPIC && contains(item.getId())) {
+                    memberIds(item.getId());
+                } else if (item.getType() == TaskType.SUBTASK && contains(item.getId())) {
+                    memberIds(((Subtask) item).getEpicId()).add(item.getId());
+                }
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public BatchResult updateAll(List<? extends Task> items) {
+        return exclusive(() -> {
+            BatchResult result = super.updateAll(items);
+            for (Task item : items) {
+                if (item.getType() == TaskType.SUBTASK) {
+                    syncMember(item.getId());
+                }
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public BatchResult removeAll(Collection<Integer> ids) {
+        return exclusive(() -> {
+            Map<Integer, Integer> epicOf = new HashMap<>();
+            for (int id : ids) {
+                if (typeOf(id) == TaskType.SUBTASK) {
+                    epicOf.put(id, ((Subtask) find(id)).getEpicId());
+                }
+            }
+            BatchResult result = super.removeAll(ids);
+            for (int id : ids) {
+                members.remove(id);
+                Integer epicId = epicOf.get(id);
+                if (epicId != null && members.containsKey(epicId)) {
+                    members.get(epicId).remove(id);
+                }
+            }
+            return result;
+        });
+    }
+
+    @Override
+    public void removeAll() {
+        exclusive(() -> {
+            super.removeAll();
+            members.clear();
+        });
+    }
+
+    @Override
+    public void removeAllTasks() {
+        exclusive(() -> super.removeAllTasks());
+    }
+
+    @Override
+    public void removeAllSubtasks() {
+        exclusive(() -> {
+            super.removeAllSubtasks();
+            members.values().forEach(Set::clear);
+        });
+    }
+
+    @Override
+    public void removeAllEpics() {
+        exclusive(() -> {
+            super.removeAllEpics();
+            members.clear();
+        });
+    }
+
+    @Override
+    public Map<Integer, LocalDateTime> autoSchedule(ScheduleOptions options) {
+        return exclusive(() -> super.autoSchedule(options));
+    }
+
+    @Override
+    public List<Integer> shiftEpic(int epicId, Duration delta) {
+        return exclusive(() -> super.shiftEpic(epicId, delta));
+    }
+
+    @Override
+    public List<Integer> shiftRange(LocalDateTime from, LocalDateTime to, Duration delta) {
+        return exclusive(() -> super.shiftRange(from, to, delta));
+    }
+
+    // Связь читает обе задачи, а они могут лежать в разных полосах
+    @Override
+    public void addDependency(int predecessorId, int successorId) {
+        exclusive(() -> super.addDependency(predecessorId, successorId));
+    }
+
+    @Override
+    public void removeDependency(int predecessorId, int successorId) {
+        exclusive(() -> super.removeDependency(predecessorId, successorId));
+    }
+
+    private Set<Integer> memberIds(int epicId) {
+        return members.computeIfAbsent(epicId, id -> new ConcurrentSkipListSet<>());
+    }
+
+    // Под исключительным замком: подзадача числится в списке того эпика, где её учитывает менеджер
+    private void syncMember(int subtaskId) {
+        Epic epic = epicOf(subtaskId);
+        if (epic == null || memberIds(epic.getId()).contains(subtaskId)) {
+            return;
+        }
+        members.values().forEach(ids -> ids.remove(subtaskId));
+        memberIds(epic.getId()).add(subtaskId);
+    }
+
+    private <T> T shared(Supplier<T> action) {
+        Lock lock = structure.readLock();
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void shared(Runnable action) {
+        shared(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private <T> T exclusive(Supplier<T> action) {
+        Lock lock = structure.writeLock();
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void exclusive(Runnable action) {
+        exclusive(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private <T> T striped(int key, Supplier<T> action) {
+        Lock lock = stripes[Math.floorMod(key, STRIPES)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void striped(int key, Runnable action) {
+        striped(key, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private void inCalendars(Task task, Runnable action) {
+        List<ReentrantLock> locks = timeline().locksFor(task);
+        locks.forEach(Lock::lock);
+        try {
+            action.run();
+        } finally {
+            for (int i = locks.size() - 1; i >= 0; i--) {
+                locks.get(i).unlock();
+            }
+        }
+    }
+}
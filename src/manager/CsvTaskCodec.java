@@ -0,0 +1,400 @@
+package manager;
+
+import tasks.Epic;
+import tasks.RecurrenceRule;
+import tasks.RecurringTask;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+// Кодек строки CSV-снимка: id,type,name,status,description,duration,start time,epic,assignee.
+// У повторяющейся задачи на месте эпика стоит правило повторения. Исполнитель пишется
+// только если задан (у задачи и эпика поле эпика тогда пустое), так что прежние строки читаются как есть.
+// Строка собирается в переиспользуемом буфере и пишется в Writer одним вызовом, разбор идёт
+// прямо по CharSequence. Поля с запятыми, кавычками и переводами строк берутся в кавычки
+// по RFC 4180; null пишется без кавычек, а строка "null" - в кавычках.
+// Экземпляр не потокобезопасен.
+final class CsvTaskCodec {
+    static final String TITLE = "id,type,name,status,description,duration,start time,epic,assignee";
+
+    private static final int FIELDS = 9;
+    private static final String NULL = "null";
+
+    private char[] row = new char[256];
+    private int length;
+    private final int[] starts = new int[FIELDS];
+    private final int[] ends = new int[FIELDS];
+    private final boolean[] quoted = new boolean[FIELDS];
+    private final StringBuilder unescaped = new StringBuilder();
+    private int descriptionStart = -1;
+
+    void write(Task task, Writer out) throws IOException {
+        encodeRow(task);
+        out.write(row, 0, length);
+    }
+
+    String encode(Task task) {
+        encodeRow(task);
+        return new String(row, 0, length);
+    }
+
+    Task parse(CharSequence line) {
+        return parse(line, false);
+    }
+
+    // При lazyDescription длинное описание не читается: задача получает его позже из
+    // DescriptionStore, а позиция поля в строке доступна через descriptionStart()
+    Task parse(CharSequence line, boolean lazyDescription) {
+        int count = split(line);
+        if (count < 7) {
+            throw new IllegalArgumentException("Malformed task row: " + line);
+        }
+        int id = (int) parseLong(line, 0);
+        TaskType type = parseType(line);
+        String name = text(line, 2);
+        TaskStatus status = parseStatus(line);
+        descriptionStart = -1;
+        String description = null;
+        if (lazyDescription && ends[4] - starts[4] >= DescriptionStore.LAZY_MIN_BYTES) {
+            descriptionStart = quoted[4] ? starts[4] - 1 : starts[4];
+        } else {
+            description = text(line, 4);
+        }
+        Duration duration = isNull(line, 5) ? Duration.ZERO : Duration.ofMinutes(parseLong(line, 5));
+        LocalDateTime startTime = isNull(line, 6) ? null : parseDateTime(line, 6);
+
+        Task task;
+        switch (type) {
+            case EPIC:
+                task = new Epic(id, name, description, status);
+                break;
+            case SUBTASK:
+                if (count < 8) {
+                    throw new IllegalArgumentException("Subtask row without epic: " + line);
+                }
+                task = new Subtask((int) parseLong(line, 7), id, name, description, status);
+                break;
+            case RECURRING:
+                if (count < 8) {
+                    throw new IllegalArgumentException("Recurring task row without rule: " + line);
+                }
+                task = new RecurringTask(id, name, description, status, 0, RecurrenceRule.parse(text(line, 7)));
+                break;
+            default:
+                task = new Task(id, name, description, status);
+        }
+        task.setDuration(duration);
+        task.setStartTime(startTime);
+        if (count == FIELDS) {
+            task.setAssignee(text(line, 8));
+        }
+        return task;
+    }
+
+    // Начало поля описания (с открывающей кавычкой) в последней разобранной строке
+    // или -1, если описание было прочитано сразу
+    int descriptionStart() {
+        return descriptionStart;
+    }
+
+    private void encodeRow(Task task) {
+        length = 0;
+        appendLong(task.getId());
+        append(',');
+        appendText(task.getType().name(), false);
+        append(',');
+        appendText(task.getName(), true);
+        append(',');
+        appendText(task.getStatus().name(), false);
+        append(',');
+        appendText(task.getDescription(), true);
+        append(',');
+        if (task.getDuration() != null) {
+            appendLong(task.getDuration().toMinutes());
+        } else {
+            appendText(NULL, false);
+        }
+        append(',');
+        if (task.getStartTime() != null) {
+            appendDateTime(task.getStartTime());
+        } else {
+            appendText(NULL, false);
+        }
+        if (task.getType() == TaskType.SUBTASK) {
+            append(',');
+            appendLong(((Subtask) task).getEpicId());
+        } else if (task.getType() == TaskType.RECURRING) {
+            append(',');
+            appendText(((RecurringTask) task).getRecurrence().format(), true);
+        } else if (task.getAssignee() != null) {
+            append(',');
+        }
+        if (task.getAssignee() != null) {
+            append(',');
+            appendText(task.getAssignee(), true);
+        }
+    }
+
+    private void append(char c) {
+        if (length == row.length) {
+            row = Arrays.copyOf(row, row.length * 2);
+        }
+        row[length++] = c;
+    }
+
+    private void appendText(String value, boolean escape) {
+        if (value == null) {
+            appendText(NULL, false);
+            return;
+        }
+        if (!escape || !needsQuotes(value)) {
+            ensure(value.length());
+            value.getChars(0, value.length(), row, length);
+            length += value.length();
+            return;
+        }
+        append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                append('"');
+            }
+            append(c);
+        }
+        append('"');
+    }
+
+    private static boolean needsQuotes(String value) {
+        if (value.equals(NULL)) {
+            return true;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void appendLong(long value) {
+        if (value < 0) {
+            append('-');
+            if (value == Long.MIN_VALUE) {
+                appendText("9223372036854775808", false);
+                return;
+            }
+            value = -value;
+        }
+        ensure(19);
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = length + digits - 1; i >= length; i--) {
+            row[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+    }
+
+    private void appendPadded(int value, int width) {
+        ensure(width);
+        for (int i = length + width - 1; i >= length; i--) {
+            row[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        length += width;
+    }
+
+    // Тот же вид, что у LocalDateTime.toString(), без промежуточных строк
+    private void appendDateTime(LocalDateTime time) {
+        if (time.getYear() < 0 || time.getYear() > 9999) {
+            appendText(time.toString(), false);
+            return;
+        }
+        appendPadded(time.getYear(), 4);
+        append('-');
+        appendPadded(time.getMonthValue(), 2);
+        append('-');
+        appendPadded(time.getDayOfMonth(), 2);
+        append('T');
+        appendPadded(time.getHour(), 2);
+        append(':');
+        appendPadded(time.getMinute(), 2);
+        int second = time.getSecond();
+        int nano = time.getNano();
+        if (second == 0 && nano == 0) {
+            return;
+        }
+        append(':');
+        appendPadded(second, 2);
+        if (nano == 0) {
+            return;
+        }
+        append('.');
+        if (nano % 1_000_000 == 0) {
+            appendPadded(nano / 1_000_000, 3);
+        } else if (nano % 1_000 == 0) {
+            appendPadded(nano / 1_000, 6);
+        } else {
+            appendPadded(nano, 9);
+        }
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > row.length) {
+            row = Arrays.copyOf(row, Math.max(row.length * 2, length + extra));
+        }
+    }
+
+    // Границы полей без копирования строки; у полей в кавычках границы - внутри кавычек
+    private int split(CharSequence line) {
+        int count = 0;
+        int i = 0;
+        int end = line.length();
+        while (count < FIELDS) {
+            if (i < end && line.charAt(i) == '"') {
+                int start = ++i;
+                while (i < end && (line.charAt(i) != '"' || (i + 1 < end && line.charAt(i + 1) == '"'))) {
+                    i += line.charAt(i) == '"' ? 2 : 1;
+                }
+                if (i >= end) {
+                    throw new IllegalArgumentException("Unterminated quoted field: " + line);
+                }
+                starts[count] = start;
+                ends[count] = i;
+                quoted[count] = true;
+                i++;
+            } else {
+                int start = i;
+                while (i < end && line.charAt(i) != ',') {
+                    i++;
+                }
+                starts[count] = start;
+                ends[count] = i;
+                quoted[count] = false;
+            }
+            count++;
+            if (i >= end) {
+                break;
+            }
+            if (line.charAt(i) != ',') {
+                throw new IllegalArgumentException("Unexpected character after quoted field: " + line);
+            }
+            i++;
+        }
+        return count;
+    }
+
+    private boolean isNull(CharSequence line, int field) {
+        return !quoted[field] && matches(line, field, NULL);
+    }
+
+    private boolean matches(CharSequence line, int field, String expected) {
+        int start = starts[field];
+        if (ends[field] - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (line.charAt(start + i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String text(CharSequence line, int field) {
+        if (isNull(line, field)) {
+            return null;
+        }
+        int start = starts[field];
+        int end = ends[field];
+        if (!quoted[field]) {
+            return line.subSequence(start, end).toString();
+        }
+        unescaped.setLength(0);
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            unescaped.append(c);
+            if (c == '"') {
+                i++;
+            }
+        }
+        return unescaped.toString();
+    }
+
+    private TaskType parseType(CharSequence line) {
+        if (matches(line, 1, "TASK")) {
+            return TaskType.TASK;
+        } else if (matches(line, 1, "EPIC")) {
+            return TaskType.EPIC;
+        } else if (matches(line, 1, "SUBTASK")) {
+            return TaskType.SUBTASK;
+        }
+        return TaskType.valueOf(text(line, 1).toUpperCase());
+    }
+
+    private TaskStatus parseStatus(CharSequence line) {
+        if (matches(line, 3, "NEW")) {
+            return TaskStatus.NEW;
+        } else if (matches(line, 3, "IN_PROGRESS")) {
+            return TaskStatus.IN_PROGRESS;
+        } else if (matches(line, 3, "DONE")) {
+            return TaskStatus.DONE;
+        }
+        return TaskStatus.valueOf(text(line, 3));
+    }
+
+    private long parseLong(CharSequence line, int field) {
+        int i = starts[field];
+        int end = ends[field];
+        boolean negative = i < end && line.charAt(i) == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == end) {
+            throw new NumberFormatException("Empty number in field " + field + ": " + line);
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = line.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Bad number in field " + field + ": " + line);
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    // Быстрый разбор yyyy-MM-ddTHH:mm[:ss]; остальные варианты ISO отдаются LocalDateTime.parse
+    private LocalDateTime parseDateTime(CharSequence line, int field) {
+        int s = starts[field];
+        int size = ends[field] - s;
+        if ((size == 16 || size == 19) && line.charAt(s + 4) == '-' && line.charAt(s + 10) == 'T') {
+            int second = size == 19 ? digits(line, s + 17, 2) : 0;
+            return LocalDateTime.of(digits(line, s, 4), digits(line, s + 5, 2), digits(line, s + 8, 2),
+                    digits(line, s + 11, 2), digits(line, s + 14, 2), second);
+        }
+        return LocalDateTime.parse(line.subSequence(s, ends[field]));
+    }
+
+    private static int digits(CharSequence line, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            int digit = line.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Bad date digit: " + line);
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,368 @@
+package manager;
+
+import tasks.Task;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Граф зависимостей "successor начинается после окончания predecessor".
+// В графе только задачи, у которых есть хотя бы одна связь. Для каждой хранятся:
+// раннее начало = max(своё начало, ранние окончания предшественников) - null, пока ни у задачи,
+// ни выше по цепочке нет времени начала;
+// tail = длительность самой длинной цепочки от задачи до конца графа, включая её саму.
+// Позднее окончание считается при запросе: конец проекта - (tail - длительность).
+// При изменении задачи раннее начало пересчитывается сразу, но только у её потомков, каждый узел
+// один раз в топологическом порядке. tail лениво: изменение лишь помечает предков, пометка
+// останавливается на уже помеченных, а пересчёт идёт при запросе позднего окончания.
+// Поэтому достраивание длинной цепочки с конца не обходит её заново на каждой связи.
+// Граф один на все эпики, поэтому его методы синхронизированы; обновление задачи без связей
+// проверяется по ConcurrentHashMap и монитор не берёт.
+final class DependencyGraph {
+    private final Map<Integer, Node> nodes = new ConcurrentHashMap<>();
+    // Ранние окончания -> задачи: последний ключ - конец проекта
+    private final TreeMap<LocalDateTime, Set<Integer>> finishes = new TreeMap<>();
+
+    private static final class Node {
+        final int id;
+        Task task;
+        // Начало и длительность запоминаются, как в ленте: задачу могут изменить на месте
+        LocalDateTime start;
+        long duration;
+        LocalDateTime earliestStart;
+        // Окончание, под которым задача лежит в finishes
+        LocalDateTime trackedFinish;
+        long tail;
+        // tail пересчитан; у актуального узла актуальны и все потомки
+        boolean tailValid = true;
+        final Set<Node> predecessors = new LinkedHashSet<>();
+        final Set<Node> successors = new LinkedHashSet<>();
+
+        Node(Task task) {
+            this.id = task.getId();
+            this.task = task;
+            this.start = task.getStartTime();
+            this.duration = durationOf(task);
+            this.earliestStart = start;
+            this.tail = duration;
+        }
+
+        LocalDateTime earliestFinish() {
+            return earliestStart != null ? earliestStart.plusSeconds(duration) : null;
+        }
+    }
+
+    // Бросает IllegalArgumentException, если связь замкнёт цикл
+    synchronized void add(Task predecessor, Task successor) {
+        if (predecessor.getId().equals(successor.getId()) || reaches(successor.getId(), predecessor.getId())) {
+            throw new IllegalArgumentException("Dependency " + predecessor.getId() + " -> " + successor.getId()
+                    + " would create a cycle");
+        }
+        Node from = node(predecessor);
+        Node to = node(successor);
+        if (!from.successors.add(to)) {
+            return;
+        }
+        to.predecessors.add(from);
+        propagateForward(to);
+        invalidateTail(from);
+    }
+
+    synchronized void remove(int predecessorId, int successorId) {
+        Node from = nodes.get(predecessorId);
+        Node to = nodes.get(successorId);
+        if (from == null || to == null || !from.successors.remove(to)) {
+            return;
+        }
+        to.predecessors.remove(from);
+        propagateForward(to);
+        invalidateTail(from);
+        dropIfIsolated(from);
+        dropIfIsolated(to);
+    }
+
+    // Задача удалена из менеджера: уходит из графа вместе со связями
+    void remove(int id) {
+        if (!nodes.containsKey(id)) {
+            return;
+        }
+        removeNode(id);
+    }
+
+    private synchronized void removeNode(int id) {
+        Node node = nodes.get(id);
+        if (node == null) {
+            return;
+        }
+        untrackFinish(node);
+        nodes.remove(id);
+        for (Node successor : node.successors) {
+            successor.predecessors.remove(node);
+            propagateForward(successor);
+            dropIfIsolated(successor);
+        }
+        for (Node predecessor : node.predecessors) {
+            predecessor.successors.remove(node);
+            invalidateTail(predecessor);
+            dropIfIsolated(predecessor);
+        }
+    }
+
+    // Задачу обновили или заменили: если сдвинулось начало или длительность, пересчитываются
+    // её потомки и предки
+    void refresh(Task task) {
+        if (nodes.containsKey(task.getId())) {
+            refreshNode(task);
+        }
+    }
+
+    private synchronized void refreshNode(Task task) {
+        Node node = nodes.get(task.getId());
+        if (node == null) {
+            return;
+        }
+        node.task = task;
+        long duration = durationOf(task);
+        if (Objects.equals(node.start, task.getStartTime()) && node.duration == duration) {
+            return;
+        }
+        if (node.duration != duration) {
+            invalidateTail(node);
+        }
+        node.start = task.getStartTime();
+        node.duration = duration;
+        propagateForward(node);
+    }
+
+    synchronized void clear() {
+        nodes.clear();
+        finishes.clear();
+    }
+
+    boolean contains(int id) {
+        return nodes.containsKey(id);
+    }
+
+    synchronized List<Integer> predecessors(int id) {
+        return ids(nodes.get(id), true);
+    }
+
+    synchronized List<Integer> successors(int id) {
+        return ids(nodes.get(id), false);
+    }
+
+    // null, если задачу успели убрать из графа после проверки contains
+    synchronized LocalDateTime earliestStart(int id) {
+        Node node = nodes.get(id);
+        return node != null ? node.earliestStart : null;
+    }
+
+    // Позднее окончание, при котором конец проекта не сдвинется
+    synchronized LocalDateTime latestFinish(int id) {
+        LocalDateTime end = projectEnd();
+        Node node = nodes.get(id);
+        return end != null && node != null ? end.minusSeconds(tail(node) - node.duration) : null;
+    }
+
+    synchronized LocalDateTime projectEnd() {
+        return finishes.isEmpty() ? null : finishes.lastKey();
+    }
+
+    // От задачи, которая заканчивается последней, назад по предшественникам, чьё окончание
+    // задаёт раннее начало следующей: у всех задач пути нулевой резерв
+    synchronized List<Task> criticalPath() {
+        if (finishes.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Task> path = new ArrayList<>();
+        Node node = nodes.get(finishes.lastEntry().getValue().iterator().next());
+        while (node != null) {
+            path.add(node.task);
+            Node binding = null;
+            for (Node predecessor : node.predecessors) {
+                if (node.earliestStart.equals(predecessor.earliestFinish())) {
+                    binding = predecessor;
+                    break;
+                }
+            }
+            node = binding;
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    private Node node(Task task) {
+        Node node = nodes.get(task.getId());
+        if (node == null) {
+            node = new Node(task);
+            nodes.put(node.id, node);
+            trackFinish(node);
+        }
+        return node;
+    }
+
+    private void dropIfIsolated(Node node) {
+        if (node.predecessors.isEmpty() && node.successors.isEmpty() && nodes.remove(node.id) != null) {
+            untrackFinish(node);
+        }
+    }
+
+    // Ранние начала source и его потомков. Если окончание source не сдвинулось, потомки не обходятся
+    private void propagateForward(Node source) {
+        if (!recomputeStart(source)) {
+            return;
+        }
+        Set<Node> dirty = new HashSet<>(source.successors);
+        List<Node> order = postOrder(source, false);
+        for (int i = order.size() - 1; i >= 0; i--) {
+            Node node = order.get(i);
+            if (node != source && dirty.contains(node) && recomputeStart(node)) {
+                dirty.addAll(node.successors);
+            }
+        }
+    }
+
+    // Пометка source и его предков; выше уже помеченного узла все предки помечены
+    private static void invalidateTail(Node source) {
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(source);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (node.tailValid) {
+                node.tailValid = false;
+                node.predecessors.forEach(stack::push);
+            }
+        }
+    }
+
+    // true, если сдвинулось раннее окончание
+    private boolean recomputeStart(Node node) {
+        LocalDateTime start = node.start;
+        for (Node predecessor : node.predecessors) {
+            LocalDateTime finish = predecessor.earliestFinish();
+            if (finish != null && (start == null || finish.isAfter(start))) {
+                start = finish;
+            }
+        }
+        LocalDateTime oldFinish = node.trackedFinish;
+        untrackFinish(node);
+        node.earliestStart = start;
+        trackFinish(node);
+        return !Objects.equals(oldFinish, node.trackedFinish);
+    }
+
+    // Пересчёт помеченных потомков node после всех их потомков
+    private static long tail(Node node) {
+        if (node.tailValid) {
+            return node.tail;
+        }
+        for (Node stale : postOrder(node, true)) {
+            long longest = 0;
+            for (Node successor : stale.successors) {
+                longest = Math.max(longest, successor.tail);
+            }
+            stale.tail = stale.duration + longest;
+            stale.tailValid = true;
+        }
+        return node.tail;
+    }
+
+    // Потомки source (при staleOnly - только с непересчитанным tail) в порядке выхода из обхода
+    // в глубину: каждый узел идёт после всех своих потомков, обратный список - топологический порядок.
+    // Обход без рекурсии - цепочки бывают в сотни тысяч задач
+    private static List<Node> postOrder(Node source, boolean staleOnly) {
+        List<Node> order = new ArrayList<>();
+        Set<Node> visited = new HashSet<>();
+        Deque<Iterator<Node>> stack = new ArrayDeque<>();
+        Deque<Node> path = new ArrayDeque<>();
+        visited.add(source);
+        path.push(source);
+        stack.push(source.successors.iterator());
+        while (!stack.isEmpty()) {
+            Iterator<Node> next = stack.peek();
+            if (next.hasNext()) {
+                Node node = next.next();
+                if ((!staleOnly || !node.tailValid) && visited.add(node)) {
+                    path.push(node);
+                    stack.push(node.successors.iterator());
+                }
+            } else {
+                stack.pop();
+                order.add(path.pop());
+            }
+        }
+        return order;
+    }
+
+    // Есть ли путь from -> ... -> to по связям
+    private boolean reaches(int fromId, int toId) {
+        Node from = nodes.get(fromId);
+        if (from == null || !nodes.containsKey(toId)) {
+            return false;
+        }
+        Set<Node> visited = new HashSet<>();
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(from);
+        visited.add(from);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (node.id == toId) {
+                return true;
+            }
+            for (Node successor : node.successors) {
+                if (visited.add(successor)) {
+                    stack.push(successor);
+                }
+            }
+        }
+        return false;
+    }
+
+    private void trackFinish(Node node) {
+        LocalDateTime finish = node.earliestFinish();
+        node.trackedFinish = finish;
+        if (finish != null) {
+            finishes.computeIfAbsent(finish, time -> new TreeSet<>()).add(node.id);
+        }
+    }
+
+    private void untrackFinish(Node node) {
+        LocalDateTime finish = node.trackedFinish;
+        node.trackedFinish = null;
+        if (finish == null) {
+            return;
+        }
+        Set<Integer> ids = finishes.get(finish);
+        if (ids.remove(node.id) && ids.isEmpty()) {
+            finishes.remove(finish);
+        }
+    }
+
+    private static List<Integer> ids(Node node, boolean predecessors) {
+        List<Integer> ids = new ArrayList<>();
+        if (node != null) {
+            for (Node neighbour : predecessors ? node.predecessors : node.successors) {
+                ids.add(neighbour.id);
+            }
+        }
+        return ids;
+    }
+
+    private static long durationOf(Task task) {
+        Duration duration = task.getDuration();
+        return duration != null ? duration.getSeconds() : 0;
+    }
+}
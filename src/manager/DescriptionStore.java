@@ -0,0 +1,137 @@
+package manager;
+
+import tasks.DescriptionSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Описания задач, оставленные в файле снимка: задача хранит только смещение поля в файле.
+// Канал держит открытой ту версию снимка, из которой шла загрузка, поэтому смещения остаются
+// верными и после того, как save() атомарно заменит файл новым снимком.
+// Недавно прочитанные описания лежат в небольшом LRU-кэше.
+final class DescriptionStore implements DescriptionSource, Closeable {
+    // Короче этого описания грузятся сразу: ссылка на файл заняла бы не меньше памяти
+    static final int LAZY_MIN_BYTES = 64;
+    private static final int CACHE_SIZE = 256;
+    private static final int BLOCK = 4096;
+
+    private final FileChannel channel;
+    private final SnapshotFormat format;
+    private final Map<Long, String> cache = new LinkedHashMap<>(CACHE_SIZE, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, String> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private DescriptionStore(FileChannel channel, SnapshotFormat format) {
+        this.channel = channel;
+        this.format = format;
+    }
+
+    static DescriptionStore open(File file, SnapshotFormat format) throws IOException {
+        return new DescriptionStore(FileChannel.open(file.toPath(), StandardOpenOption.READ), format);
+    }
+
+    @Override
+    public synchronized String loadDescription(long offset) {
+        String description = cache.get(offset);
+        if (description != null) {
+            return description;
+        }
+        try {
+            description = format == SnapshotFormat.BINARY ? readBinary(offset) : readCsv(offset);
+        } catch (IOException e) {
+            throw new ManagerSaveException("Error loading task description", e);
+        }
+        cache.put(offset, description);
+        return description;
+    }
+
+    // Поле CSV от смещения до запятой или конца строки; в кавычках - до закрывающей кавычки
+    private String readCsv(long offset) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(BLOCK);
+        ByteArrayOutputStream field = new ByteArrayOutputStream();
+        long position = offset;
+        boolean first = true;
+        boolean quoted = false;
+        boolean quote = false;
+        while (true) {
+            block.clear();
+            int read = channel.read(block, position);
+            if (read <= 0) {
+                if (quoted && !quote) {
+                    throw new IOException("Unterminated description at offset " + offset);
+                }
+                return field.toString(StandardCharsets.UTF_8);
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = block.get(i);
+                if (first) {
+                    first = false;
+                    if (b == '"') {
+                        quoted = true;
+                        continue;
+                    }
+                }
+                if (quoted) {
+                    if (quote) {
+                        if (b != '"') {
+                            return field.toString(StandardCharsets.UTF_8);
+                        }
+                        quote = false;
+                    } else if (b == '"') {
+                        quote = true;
+                        continue;
+                    }
+                } else if (b == ',' || b == '\n' || b == '\r') {
+                    return field.toString(StandardCharsets.UTF_8);
+                }
+                field.write(b);
+            }
+            position += read;
+        }
+    }
+
+    // Строка бинарного снимка: [varint длина][UTF-8]
+    private String readBinary(long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(10);
+        channel.read(header, offset);
+        header.flip();
+        long length = 0;
+        int shift = 0;
+        while (true) {
+            if (!header.hasRemaining() || shift >= 64) {
+                throw new IOException("Malformed description length at offset " + offset);
+            }
+            int b = header.get() & 0xFF;
+            length |= (long) (b & 0x7F) << shift;
+            shift += 7;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        ByteBuffer bytes = ByteBuffer.allocate((int) length);
+        long position = offset + header.position();
+        while (bytes.hasRemaining()) {
+            if (channel.read(bytes, position + bytes.position()) < 0) {
+                throw new IOException("Truncated description at offset " + offset);
+            }
+        }
+        return new String(bytes.array(), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        cache.clear();
+        channel.close();
+    }
+}
@@ -0,0 +1,7 @@
+package manager;
+
+public enum DurabilityPolicy {
+    SYNC,          // запись и синхронизация с диском на каждое изменение
+    GROUP_COMMIT,  // изменения сбрасываются и синхронизируются пачкой раз в интервал
+    ASYNC          // сброс пачкой без синхронизации с диском, гарантии только после flush()/close()
+}
@@ -2,166 +2,999 @@ package manager;
 
 import tasks.*;
 import java.io.*;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.time.Duration;
 import java.time.LocalDateTime;
 
-public class FileBackedTaskManager extends InMemoryTaskManager {
+public class FileBackedTaskManager extends InMemoryTaskManager implements AutoCloseable {
     private final File file;
-    private static final String TITLE = "id,type,name,status,description,duration,start time,epic\n";
+    private final TaskJournal journal;
+    private boolean replaying;
+    // Строки журнала собираются под монитором менеджера, поэтому кодек один на экземпляр
+    private final CsvTaskCodec codec = new CsvTaskCodec();
+    private DescriptionStore descriptions;
+    private SnapshotFormat format = SnapshotFormat.CSV;
+    private long compactionMaxBytes = 4L * 1024 * 1024;
+    private long compactionMaxRecords = 50_000;
+    private ExecutorService snapshotExecutor;
+    private volatile Future<?> pendingSnapshot;
+    private volatile long lastSnapshotNanos;
+    private final AtomicLong snapshotsWritten = new AtomicLong();
+    private final Object snapshotWriteLock = new Object();
+    private long snapshotSequence;
+    private long writtenSequence;
+    private DurabilityPolicy durability;
+    private ScheduledExecutorService flusher;
+    private List<String> pendingRecords = new ArrayList<>();
+    private boolean dirty;
+    private int pendingChanges;
+    private int flushBatchSize;
+    private boolean flushRequested;
+    private volatile ManagerSaveException flushFailure;
+    private StorageLayout layout = StorageLayout.SINGLE_FILE;
+    private SegmentedSnapshot segments;
+    // Сегменты, изменённые с последнего снимка; при allSegmentsDirty переписываются все
+    private Set<String> dirtySegments = new HashSet<>();
+    private boolean allSegmentsDirty;
 
     public FileBackedTaskManager(File file) {
+        this(file, null);
+    }
+
+    // Журналируемый режим: мутации дописываются в journalFile, снимок пишется только в save()
+    public FileBackedTaskManager(File file, File journalFile) {
         this.file = file;
+        this.journal = journalFile != null ? new TaskJournal(journalFile) : null;
     }
 
     @Override
-    public void addTask(Task task) {
+    public synchronized void addTask(Task task) {
         super.addTask(task);
-        save();
+        logChange(TaskJournal.Op.ADD, task);
     }
 
     @Override
-    public void addEpic(Epic epic) {
+    public synchronized void addEpic(Epic epic) {
         super.addEpic(epic);
-        save();
+        logChange(TaskJournal.Op.ADD, epic);
     }
 
     @Override
-    public void addSubtask(Subtask subtask) {
+    public synchronized void addSubtask(Subtask subtask) {
         super.addSubtask(subtask);
-        save();
+        logChange(TaskJournal.Op.ADD, subtask);
     }
 
     @Override
-    public void updateTask(Task task) {
+    public synchronized void updateTask(Task task) {
+        if (task.getType() == TaskType.SUBTASK || task.getType() == TaskType.EPIC) {
+            super.updateTask(task); // уйдёт в updateSubtask/updateEpic, они сами сохраняют изменение
+            return;
+        }
+        // Обновление неизвестной задачи ничего не меняет и не журналируется: при повторе журнала
+        // такая запись вернула бы удалённую задачу
+        if (typeOf(task.getId()) != TaskType.TASK) {
+            return;
+        }
+        String segment = segmentOf(task.getId());
         super.updateTask(task);
-        save();
+        markDirty(segment);
+        logChange(TaskJournal.Op.UPDATE, task);
     }
 
     @Override
-    public void updateEpic(Epic epic) {
+    public synchronized void updateEpic(Epic epic) {
+        if (typeOf(epic.getId()) != TaskType.EPIC) {
+            return;
+        }
+        String segment = segmentOf(epic.getId());
         super.updateEpic(epic);
-        save();
+        markDirty(segment);
+        logChange(TaskJournal.Op.UPDATE, epic);
     }
 
     @Override
-    public void updateSubtask(Subtask subtask) {
+    public synchronized void updateSubtask(Subtask subtask) {
+        if (typeOf(subtask.getId()) != TaskType.SUBTASK) {
+            return;
+        }
+        // Подзадача могла перейти в другой эпик: меняются сегменты обоих
+        String segment = segmentOf(subtask.getId());
         super.updateSubtask(subtask);
-        save();
+        markDirty(segment);
+        touch(subtask.getId());
+        logChange(TaskJournal.Op.UPDATE, subtask);
     }
 
     @Override
-    public void removeTask(int id) {
+    public synchronized void removeTask(int id) {
+        String segment = segmentOf(id);
         super.removeTask(id);
-        save();
+        markDirty(segment);
+        logRemoval(TaskType.TASK, id);
     }
 
     @Override
-    public void removeEpic(int id) {
+    public synchronized void removeEpic(int id) {
+        String segment = segmentOf(id);
         super.removeEpic(id);
-        save();
+        markDirty(segment);
+        logRemoval(TaskType.EPIC, id);
     }
 
     @Override
-    public void removeSubtask(int id) {
+    public synchronized void removeSubtask(int id) {
+        String segment = segmentOf(id);
         super.removeSubtask(id);
+        markDirty(segment);
+        logRemoval(TaskType.SUBTASK, id);
+    }
+
+    @Override
+    public synchronized void removeAll() {
+        super.removeAll();
+        logClear("ALL");
+    }
+
+    @Override
+    public synchronized void removeAllTasks() {
+        super.removeAllTasks();
+        logClear(TaskType.TASK.name());
+    }
+
+    @Override
+    public synchronized void removeAllSubtasks() {
+        super.removeAllSubtasks();
+        logClear(TaskType.SUBTASK.name());
+    }
+
+    @Override
+    public synchronized void removeAllEpics() {
+        super.removeAllEpics();
+        logClear(TaskType.EPIC.name());
+    }
+
+    @Override
+    public synchronized BatchResult addAll(List<? extends Task> items) {
+        BatchResult result = super.addAll(items);
+        logBatch(TaskJournal.Op.ADD, items, result);
+        return result;
+    }
+
+    @Override
+    public synchronized BatchResult updateAll(List<? extends Task> items) {
+        List<String> before = new ArrayList<>();
+        items.forEach(item -> before.add(segmentOf(item.getId())));
+        BatchResult result = super.updateAll(items);
+        before.forEach(this::markDirty);
+        items.forEach(item -> touch(item.getId()));
+        logBatch(TaskJournal.Op.UPDATE, items, result);
+        return result;
+    }
+
+    @Override
+    public synchronized BatchResult removeAll(Collection<Integer> ids) {
+        List<String> before = new ArrayList<>();
+        ids.forEach(id -> before.add(segmentOf(id)));
+        List<String> records = new ArrayList<>();
+        if (journal != null) {
+            for (int id : ids) {
+                TaskType type = typeOf(id);
+                if (type != null) {
+                    records.add(TaskJournal.Op.REMOVE + "," + type + "," + id);
+                }
+            }
+        }
+        BatchResult result = super.removeAll(ids);
+        before.forEach(this::markDirty);
+        persistBatch(records);
+        return result;
+    }
+
+    @Override
+    public synchronized Map<Integer, LocalDateTime> autoSchedule(ScheduleOptions options) {
+        Map<Integer, LocalDateTime> planned = super.autoSchedule(options);
+        logMoved(planned.keySet());
+        return planned;
+    }
+
+    @Override
+    public synchronized void setIdAllocator(IdAllocator idAllocator) {
+        super.setIdAllocator(idAllocator);
+    }
+
+    @Override
+    public synchronized void setOccupancyIndex(Duration granularity) {
+        super.setOccupancyIndex(granularity);
+    }
+
+    @Override
+    public synchronized List<Integer> shiftEpic(int epicId, Duration delta) {
+        List<Integer> moved = super.shiftEpic(epicId, delta);
+        logMoved(delta.isZero() ? List.of() : moved);
+        return moved;
+    }
+
+    @Override
+    public synchronized List<Integer> shiftRange(LocalDateTime from, LocalDateTime to, Duration delta) {
+        List<Integer> moved = super.shiftRange(from, to, delta);
+        logMoved(delta.isZero() ? List.of() : moved);
+        return moved;
+    }
+
+    // Задачи, которым назначили новое время: одна запись в журнал или один снимок на всех.
+    // Сегмент подзадачи - сегмент её эпика, так что эпики помечаются вместе с подзадачами
+    private void logMoved(Collection<Integer> ids) {
+        List<String> records = new ArrayList<>();
+        for (int id : ids) {
+            touch(id);
+            if (journal != null) {
+                records.add(TaskJournal.Op.UPDATE + "," + codec.encode(find(id)));
+            }
+        }
+        if (!ids.isEmpty()) {
+            persistBatch(records);
+        }
+    }
+
+    // Пачка сохраняется один раз: один снимок или одна запись в журнал на всю пачку
+    private void logBatch(TaskJournal.Op op, List<? extends Task> items, BatchResult result) {
+        for (int i = 0; i < items.size(); i++) {
+            if (!result.isFailed(i)) {
+                touch(items.get(i).getId());
+            }
+        }
+        List<String> records = new ArrayList<>();
+        if (journal != null) {
+            // Эпики пачки применяются раньше подзадач, журнал повторяет этот порядок
+            for (int i = 0; i < items.size(); i++) {
+                if (!result.isFailed(i) && items.get(i).getType() == TaskType.EPIC) {
+                    records.add(op + "," + codec.encode(items.get(i)));
+                }
+            }
+            for (int i = 0; i < items.size(); i++) {
+                if (!result.isFailed(i) && items.get(i).getType() != TaskType.EPIC) {
+                    records.add(op + "," + codec.encode(items.get(i)));
+                }
+            }
+        }
+        persistBatch(records);
+    }
+
+    private void persistBatch(List<String> records) {
+        if (!replaying && (journal == null || !records.isEmpty())) {
+            persist(records);
+        }
+    }
+
+    private void logChange(TaskJournal.Op op, Task task) {
+        touch(task.getId());
+        if (!replaying) {
+            persist(journal != null ? List.of(op + "," + codec.encode(task)) : List.of());
+        }
+    }
+
+    private void logRemoval(TaskType type, int id) {
+        if (!replaying) {
+            persist(journal != null ? List.of(TaskJournal.Op.REMOVE + "," + type + "," + id) : List.of());
+        }
+    }
+
+    private void logClear(String scope) {
+        allSegmentsDirty = true;
+        if (!replaying) {
+            persist(journal != null ? List.of(TaskJournal.Op.CLEAR + "," + scope) : List.of());
+        }
+    }
+
+    // Сегмент задачи помечается изменённым и до, и после мутации: подзадача могла сменить эпик,
+    // а удаление эпика вызывает вложенные удаления подзадач со своими сохранениями.
+    // Изменения при повторе журнала тоже помечаются - журнал очищается следующим снимком
+    private void touch(int id) {
+        markDirty(segmentOf(id));
+    }
+
+    private void markDirty(String segment) {
+        if (segment != null) {
+            dirtySegments.add(segment);
+        }
+    }
+
+    private String segmentOf(int id) {
+        Task task = segments != null ? find(id) : null;
+        if (task == null) {
+            return null;
+        }
+        switch (task.getType()) {
+            case EPIC:
+                return SegmentedSnapshot.epicSegment(id);
+            case SUBTASK:
+                // Эпик, где подзадача числится: объект могли перенести в другой эпик, изменив на месте
+                Epic owner = epicOf(id);
+                return SegmentedSnapshot.epicSegment(owner != null ? owner.getId() : ((Subtask) task).getEpicId());
+            default:
+                return SegmentedSnapshot.taskSegment(id);
+        }
+    }
+
+    // Вызывается под монитором менеджера. Без отложенной записи изменение сразу уходит на диск,
+    // иначе копится до ближайшего сброса фоновым потоком.
+    private void persist(List<String> records) {
+        if (flusher == null) {
+            if (journal == null) {
+                save();
+            } else {
+                appendToJournal(records);
+            }
+            return;
+        }
+        if (journal == null) {
+            dirty = true;
+        } else {
+            pendingRecords.addAll(records);
+        }
+        pendingChanges += Math.max(records.size(), 1);
+        if (pendingChanges >= flushBatchSize && !flushRequested) {
+            flushRequested = true;
+            flusher.execute(this::flushInBackground);
+        }
+    }
+
+    private void appendToJournal(List<String> records) {
+        try {
+            if (records.size() == 1) {
+                journal.append(records.get(0));
+            } else {
+                journal.appendAll(records);
+            }
+            if (durability == DurabilityPolicy.SYNC) {
+                journal.force();
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Error writing journal", e);
+        }
+        compactIfNeeded();
+    }
+
+    // Отложенная запись: изменения копятся в памяти и сбрасываются отдельным потоком раз в
+    // flushIntervalMillis или по накоплении batchSize изменений. SYNC пишет и синхронизирует
+    // с диском каждое изменение в вызывающем потоке.
+    public void setDurabilityPolicy(DurabilityPolicy policy, long flushIntervalMillis, int batchSize) {
+        flush();
+        stopFlusher();
+        synchronized (this) {
+            durability = policy;
+            flushBatchSize = batchSize;
+            if (policy != DurabilityPolicy.SYNC) {
+                flusher = Executors.newSingleThreadScheduledExecutor(daemon("flusher-" + file.getName()));
+                flusher.scheduleWithFixedDelay(this::flushInBackground, flushIntervalMillis,
+                        flushIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    public DurabilityPolicy getDurabilityPolicy() {
+        return durability;
+    }
+
+    // Гарантирует, что все изменения, сделанные до вызова, записаны и синхронизированы с диском
+    public void flush() {
+        ManagerSaveException failure = flushFailure;
+        flushFailure = null;
+        flushBatch(true);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void flushInBackground() {
+        try {
+            flushBatch(false);
+        } catch (ManagerSaveException e) {
+            flushFailure = e;
+        }
+    }
+
+    private void flushBatch(boolean force) {
+        Runnable write = null;
+        synchronized (this) {
+            flushRequested = false;
+            pendingChanges = 0;
+            if (journal != null) {
+                if (!pendingRecords.isEmpty()) {
+                    List<String> batch = pendingRecords;
+                    pendingRecords = new ArrayList<>();
+                    try {
+                        journal.appendAll(batch);
+                    } catch (IOException e) {
+                        pendingRecords.addAll(0, batch);
+                        throw new ManagerSaveException("Error writing journal", e);
+                    }
+                    compactIfNeeded();
+                }
+            } else if (dirty) {
+                write = captureSnapshot(force || durability != DurabilityPolicy.ASYNC);
+                dirty = false;
+            }
+        }
+        // Синхронизация с диском идёт без монитора, чтобы не задерживать вызывающие потоки
+        if (journal != null) {
+            if (force || durability == DurabilityPolicy.GROUP_COMMIT) {
+                try {
+                    journal.force();
+                } catch (IOException e) {
+                    throw new ManagerSaveException("Error syncing journal", e);
+                }
+            }
+        } else if (write != null) {
+            try {
+                write.run();
+            } catch (ManagerSaveException e) {
+                synchronized (this) {
+                    dirty = true;
+                }
+                throw e;
+            }
+        }
+    }
+
+    private void stopFlusher() {
+        ScheduledExecutorService stopped;
+        synchronized (this) {
+            stopped = flusher;
+            flusher = null;
+        }
+        if (stopped == null) {
+            return;
+        }
+        stopped.shutdown();
+        try {
+            stopped.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Пороги размера журнала, после которых снимок пишется в фоне. 0 отключает порог.
+    public void setCompactionThresholds(long maxLogBytes, long maxLogRecords) {
+        this.compactionMaxBytes = maxLogBytes;
+        this.compactionMaxRecords = maxLogRecords;
+    }
+
+    public CompactionStats getCompactionStats() {
+        long logBytes = 0;
+        long records = 0;
+        if (journal != null) {
+            try {
+                logBytes = journal.getBytes();
+            } catch (IOException e) {
+                throw new ManagerSaveException("Error reading journal size", e);
+            }
+            records = journal.getRecords();
+        }
+        Future<?> snapshot = pendingSnapshot;
+        return new CompactionStats(logBytes, records, Duration.ofNanos(lastSnapshotNanos),
+                snapshotsWritten.get(), snapshot != null && !snapshot.isDone());
+    }
+
+    private void compactIfNeeded() {
+        if (pendingSnapshot != null && !pendingSnapshot.isDone()) {
+            return;
+        }
+        try {
+            boolean bytesExceeded = compactionMaxBytes > 0 && journal.getBytes() >= compactionMaxBytes;
+            boolean recordsExceeded = compactionMaxRecords > 0 && journal.getRecords() >= compactionMaxRecords;
+            if (bytesExceeded || recordsExceeded) {
+                startBackgroundSnapshot();
+            }
+        } catch (IOException e) {
+            throw new ManagerSaveException("Error compacting journal", e);
+        }
+    }
+
+    // Строки снимка фиксируются под монитором менеджера вместе с ротацией журнала - это и есть
+    // согласованная точка во времени. Запись на диск и удаление старых сегментов идут в фоне.
+    private void startBackgroundSnapshot() throws IOException {
+        Runnable write = captureSnapshot(durability != null && durability != DurabilityPolicy.ASYNC);
+        int generation = journal.rotate();
+        pendingSnapshot = snapshotExecutor().submit(() -> {
+            long start = System.nanoTime();
+            write.run();
+            journal.deleteRotated(generation);
+            lastSnapshotNanos = System.nanoTime() - start;
+            snapshotsWritten.incrementAndGet();
+        });
+    }
+
+    private ExecutorService snapshotExecutor() {
+        if (snapshotExecutor == null) {
+            snapshotExecutor = Executors.newSingleThreadExecutor(daemon("snapshot-" + file.getName()));
+        }
+        return snapshotExecutor;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private void awaitPendingSnapshot() throws ExecutionException {
+        if (pendingSnapshot == null) {
+            return;
+        }
+        try {
+            pendingSnapshot.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ManagerSaveException("Interrupted while waiting for snapshot", e);
+        } finally {
+            pendingSnapshot = null;
+        }
+    }
+
+    // Полный снимок. В журналируемом режиме после записи снимка журнал очищается.
+    synchronized void save() {
+        Runnable write = captureSnapshot(durability != null && durability != DurabilityPolicy.ASYNC);
+        if (journal == null) {
+            dirty = false;
+            write.run();
+            return;
+        }
+        try {
+            awaitPendingSnapshot();
+        } catch (ExecutionException e) {
+            // Неудачный фоновый снимок перекрывается синхронным ниже, сегменты журнала ещё на месте
+        }
+        long start = System.nanoTime();
+        try {
+            if (!pendingRecords.isEmpty()) {
+                journal.appendAll(pendingRecords);
+                pendingRecords.clear();
+            }
+            write.run();
+            journal.truncate();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Error writing journal", e);
+        }
+        journal.deleteRotated(journal.getGeneration());
+        lastSnapshotNanos = System.nanoTime() - start;
+        snapshotsWritten.incrementAndGet();
+    }
+
+    public void checkpoint() {
         save();
     }
 
-    void save() {
-        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath())) {
-            writer.write(TITLE);
+    @Override
+    public void close() {
+        stopFlusher();
+        flush();
+        if (journal == null) {
+            closeDescriptions();
+            return;
+        }
+        synchronized (this) {
+            try {
+                awaitPendingSnapshot();
+            } catch (ExecutionException e) {
+                throw new ManagerSaveException("Error writing snapshot", e.getCause());
+            } finally {
+                if (snapshotExecutor != null) {
+                    snapshotExecutor.shutdown();
+                }
+            }
+            try {
+                journal.close();
+            } catch (IOException e) {
+                throw new ManagerSaveException("Error closing journal", e);
+            }
+        }
+        closeDescriptions();
+    }
 
-            // Если этот цикл преобразовать со StreamAPI,
-            // то идея требует взять каждый отдельный writer.write() в try-catch,
-            // так код выходит более длинным и менее читаемым, чем есть.
-            for (Task task : getAllTasks()) {
-                writer.write(toString(task) + "\n");
+    // После закрытия отложенные описания, которые не были заменены, больше не читаются
+    private synchronized void closeDescriptions() {
+        if (descriptions == null) {
+            return;
+        }
+        try {
+            descriptions.close();
+        } catch (IOException e) {
+            throw new ManagerSaveException("Error closing description store", e);
+        }
+    }
+
+    public SnapshotFormat getSnapshotFormat() {
+        return format;
+    }
+
+    public void setSnapshotFormat(SnapshotFormat format) {
+        this.format = format;
+    }
+
+    public synchronized StorageLayout getStorageLayout() {
+        return layout;
+    }
+
+    // Смена раскладки сразу переписывает снимок целиком в новом виде
+    public synchronized void setStorageLayout(StorageLayout layout) {
+        if (layout == this.layout) {
+            return;
+        }
+        SegmentedSnapshot previous = segments;
+        this.layout = layout;
+        if (layout == StorageLayout.SEGMENTED) {
+            segments = SegmentedSnapshot.create(file);
+            allSegmentsDirty = true;
+            save();
+        } else {
+            segments = null;
+            save();
+            previous.deleteSegments();
+        }
+    }
+
+    // Байты, записанные в сегменты и манифест с момента загрузки или смены раскладки
+    synchronized long segmentBytesWritten() {
+        return segments != null ? segments.getBytesWritten() : 0;
+    }
+
+    // Вызывается под монитором: фиксирует содержимое снимка и возвращает его запись на диск,
+    // которую можно выполнить и без монитора. Содержимое - версия из snapshot(), её взятие O(1):
+    // после первого снимка (он один раз копирует все задачи) каждая запись менеджера сама строит
+    // следующую версию за O(log n). Строки из неизменяемой версии собираются уже при записи,
+    // так что вызывающий поток не копирует задачи и не держит ими монитор
+    private Runnable captureSnapshot(boolean durable) {
+        long sequence = ++snapshotSequence;
+        TaskSnapshot state = snapshot();
+        if (segments == null) {
+            return () -> writeSnapshot(snapshotRows(state), sequence, durable);
+        }
+        SegmentedSnapshot target = segments;
+        Set<String> keys = dirtySegments;
+        boolean all = allSegmentsDirty;
+        dirtySegments = new HashSet<>();
+        allSegmentsDirty = false;
+        return () -> {
+            try {
+                writeSegments(target, state, keys, all, sequence, durable);
+            } catch (ManagerSaveException e) {
+                synchronized (this) {
+                    dirtySegments.addAll(keys);
+                    allSegmentsDirty |= all;
+                }
+                throw e;
+            }
+        };
+    }
+
+    // Строки изменённых сегментов; сегмент удалённого эпика или опустевшей страницы пуст.
+    // Вызывается при записи, после предыдущих снимков: target.keys() уже учитывает их сегменты
+    private static Map<String, List<Task>> segmentRows(TaskSnapshot state, SegmentedSnapshot target,
+                                                       Set<String> dirty, boolean all) {
+        Set<String> keys = new HashSet<>(dirty);
+        if (all) {
+            keys.addAll(target.keys());
+            for (Task task : state.getTasks()) {
+                keys.add(SegmentedSnapshot.taskSegment(task.getId()));
+            }
+            for (Epic epic : state.getEpics()) {
+                keys.add(SegmentedSnapshot.epicSegment(epic.getId()));
+            }
+        }
+
+        Map<String, List<Task>> changed = new TreeMap<>();
+        boolean taskPages = false;
+        for (String key : keys) {
+            List<Task> rows = new ArrayList<>();
+            changed.put(key, rows);
+            if (SegmentedSnapshot.isTaskSegment(key)) {
+                taskPages = true;
+                continue;
+            }
+            Task epic = state.getTask(SegmentedSnapshot.epicOf(key));
+            if (epic != null && epic.getType() == TaskType.EPIC) {
+                rows.add(epic);
+                rows.addAll(state.getSubtasksOfEpic(epic.getId()));
+            }
+        }
+        if (taskPages) {
+            for (Task task : state.getTasks()) {
+                List<Task> rows = changed.get(SegmentedSnapshot.taskSegment(task.getId()));
+                if (rows != null) {
+                    rows.add(task);
+                }
             }
-            for (Epic epic : getEpics()) {
-                writer.write(toString(epic) + "\n");
-                for (Subtask subtask : getSubtasksOfEpic(epic.getId())) {
-                    writer.write(toString(subtask) + "\n");
+        }
+        return changed;
+    }
+
+    // Задачи версии - уже копии, которые никто не меняет, их можно писать как есть
+    private static List<Task> snapshotRows(TaskSnapshot state) {
+        List<Task> rows = new ArrayList<>(state.getTasks());
+        for (Epic epic : state.getEpics()) {
+            rows.add(epic);
+            rows.addAll(state.getSubtasksOfEpic(epic.getId()));
+        }
+        return rows;
+    }
+
+    // Снимки пишутся из разных потоков; снимок, зафиксированный раньше уже записанного, пропускается
+    private void writeSnapshot(List<Task> rows, long sequence, boolean durable) {
+        synchronized (snapshotWriteLock) {
+            if (sequence < writtenSequence) {
+                return;
+            }
+            try {
+                writeSnapshotFile(rows, durable);
+            } finally {
+                writtenSequence = sequence;
+                snapshotWriteLock.notifyAll();
+            }
+        }
+    }
+
+    private void writeSnapshotFile(List<Task> rows, boolean durable) {
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            writeRows(tmp, rows, format);
+            if (durable) {
+                try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.WRITE)) {
+                    channel.force(true);
                 }
             }
         } catch (IOException | IllegalArgumentException e) {
             throw new ManagerSaveException("Error saving tasks", e);
         }
+        // Файл снимка заменяется атомарно, чтобы сбой во время записи не оставил его обрезанным
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            tmp.delete();
+            throw new ManagerSaveException("Error saving tasks", e);
+        }
     }
 
-    private String toString(Task task) {
-        String duration = task.getDuration() != null ? String.valueOf(task.getDuration().toMinutes()) : "null";
-        String startTime = task.getStartTime() != null ? task.getStartTime().toString() : "null";
-        if (task.getType() == TaskType.SUBTASK) {
-            Subtask subtask = (Subtask) task;
-            return String.format("%d,SUBTASK,%s,%s,%s,%s,%s,%d",
-                    subtask.getId(), subtask.getName(), subtask.getStatus(),
-                    subtask.getDescription(), duration, startTime, subtask.getEpicId());
-        } else if (task.getType() == TaskType.EPIC) {
-            Epic epic = (Epic) task;
-            return String.format("%d,EPIC,%s,%s,%s,%s,%s",
-                    epic.getId(), epic.getName(), epic.getStatus(), epic.getDescription(),
-                    duration, startTime);
-        } else {
-            return String.format("%d,TASK,%s,%s,%s,%s,%s",
-                    task.getId(), task.getName(), task.getStatus(), task.getDescription(),
-                    duration, startTime);
+    // Сегменты - это изменения относительно предыдущего снимка, поэтому они пишутся строго
+    // в порядке фиксации. Уже записанный более поздний снимок (смена раскладки) перекрывает их.
+    private void writeSegments(SegmentedSnapshot target, TaskSnapshot state, Set<String> dirty, boolean all,
+                               long sequence, boolean durable) {
+        synchronized (snapshotWriteLock) {
+            boolean interrupted = false;
+            while (writtenSequence < sequence - 1) {
+                try {
+                    snapshotWriteLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (sequence < writtenSequence) {
+                return;
+            }
+            try {
+                target.write(segmentRows(state, target, dirty, all), format, durable);
+            } catch (IOException | IllegalArgumentException e) {
+                throw new ManagerSaveException("Error saving tasks", e);
+            } finally {
+                writtenSequence = sequence;
+                snapshotWriteLock.notifyAll();
+            }
+        }
+    }
+
+    static void writeRows(File target, List<Task> rows, SnapshotFormat format) throws IOException {
+        if (format == SnapshotFormat.BINARY) {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(target.toPath()))) {
+                BinaryTaskFormat.write(out, rows);
+            }
+            return;
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(target.toPath())) {
+            writer.write(CsvTaskCodec.TITLE);
+            writer.write('\n');
+
+            // Если этот цикл преобразовать со StreamAPI,
+            // то идея требует взять каждый отдельный writer.write() в try-catch,
+            // так код выходит более длинным и менее читаемым, чем есть.
+            CsvTaskCodec codec = new CsvTaskCodec();
+            for (Task row : rows) {
+                codec.write(row, writer);
+                writer.write('\n');
+            }
+        }
+    }
+
+    // Формат файла определяется по заголовку
+    static List<Task> readRows(File source) throws IOException {
+        return readRows(source, null);
+    }
+
+    // С descriptions длинные описания остаются в файле и читаются при первом обращении
+    static List<Task> readRows(File source, DescriptionStore descriptions) throws IOException {
+        if (SegmentedSnapshot.isManifest(source)) {
+            return SegmentedSnapshot.readAll(source);
         }
+        if (BinaryTaskFormat.isBinary(source)) {
+            try (InputStream in = new BufferedInputStream(Files.newInputStream(source.toPath()))) {
+                return BinaryTaskFormat.read(in, descriptions);
+            }
+        }
+        return ParallelCsvLoader.load(source, ForkJoinPool.commonPool(), descriptions);
     }
 
     public static FileBackedTaskManager loadFromFile(File file) {
+        return loadFromFile(file, false);
+    }
+
+    // lazyDescriptions: в память загружаются только id, имя, статус, время и эпик,
+    // описания читаются из файла снимка при вызове getDescription()
+    public static FileBackedTaskManager loadFromFile(File file, boolean lazyDescriptions) {
         FileBackedTaskManager manager = new FileBackedTaskManager(file);
-        try {
-            List<String> lines = Files.readAllLines(file.toPath());
-            lines.subList(1, lines.size()).stream()
-                    .map(FileBackedTaskManager::fromString)
-                    .forEach(task -> {
-                        if (task.getType() == TaskType.EPIC) {
-                            manager.addEpic((Epic) task);
-                        } else if (task.getType() == TaskType.SUBTASK) {
-                            manager.addSubtask((Subtask) task);
-                        } else {
-                            manager.addTask(task);
-                        }
-                    });
+        manager.loadSnapshot(lazyDescriptions);
+        return manager;
+    }
+
+    // Загрузка в журналируемом режиме: последний снимок, затем изменения из журнала
+    public static FileBackedTaskManager loadFromFile(File file, File journalFile) {
+        return loadFromFile(file, journalFile, false);
+    }
 
+    public static FileBackedTaskManager loadFromFile(File file, File journalFile, boolean lazyDescriptions) {
+        FileBackedTaskManager manager = new FileBackedTaskManager(file, journalFile);
+        if (file.exists()) {
+            manager.loadSnapshot(lazyDescriptions);
+        }
+        manager.replayJournal();
+        return manager;
+    }
+
+    private void loadSnapshot(boolean lazyDescriptions) {
+        try {
+            // Сегментированный снимок загружается целиком, отложенные описания для него не используются
+            if (SegmentedSnapshot.isManifest(file)) {
+                segments = SegmentedSnapshot.open(file);
+                layout = StorageLayout.SEGMENTED;
+                format = segments.getFormat();
+                restore(segments.read());
+                return;
+            }
+            format = BinaryTaskFormat.isBinary(file) ? SnapshotFormat.BINARY : SnapshotFormat.CSV;
+            if (lazyDescriptions) {
+                descriptions = DescriptionStore.open(file, format);
+            }
+            restore(readRows(file, descriptions));
         } catch (IOException | IllegalArgumentException e) {
             throw new ManagerSaveException("Error loading tasks", e);
         }
-        return manager;
     }
 
-    private static Task fromString(String value) {
-        String[] fields = value.split(",");
-        int id = Integer.parseInt(fields[0]);
-        TaskType type = TaskType.valueOf(fields[1].toUpperCase());
-        String name = fields[2];
-        TaskStatus status = TaskStatus.valueOf(fields[3]);
-        String description = fields[4];
-        Duration duration = fields[5].equals("null") ? Duration.ZERO : Duration.ofMinutes(Long.parseLong(fields[5]));
-        LocalDateTime startTime = fields[6].equals("null") ? null : LocalDateTime.parse(fields[6]);
+    // Сначала сегменты, не покрытые завершённым фоновым снимком, затем текущий журнал
+    private void replayJournal() {
+        replaying = true;
+        try {
+            for (File rotated : journal.rotatedFiles()) {
+                for (String record : TaskJournal.readRecords(rotated)) {
+                    applyRecord(record);
+                }
+            }
+            for (String record : journal.readRecords()) {
+                applyRecord(record);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            throw new ManagerSaveException("Error replaying journal", e);
+        } finally {
+            replaying = false;
+        }
+    }
+
+    private void applyRecord(String record) {
+        int comma = record.indexOf(',');
+        TaskJournal.Op op = TaskJournal.Op.valueOf(comma < 0 ? record : record.substring(0, comma));
+        String payload = record.substring(comma + 1);
+        switch (op) {
+            case ADD:
+                applyUpsert(codec.parse(payload));
+                break;
+            case UPDATE:
+                // Обновление задачи, которой уже нет (журнал, записанный до проверки в update*),
+                // пропускается, а не превращается в добавление
+                Task updated = codec.parse(payload);
+                if (contains(updated.getId())) {
+                    applyUpsert(updated);
+                }
+                break;
+            case REMOVE:
+                String[] fields = payload.split(",");
+                int id = Integer.parseInt(fields[1]);
+                applyRemoval(TaskType.valueOf(fields[0]), id);
+                break;
+            case CLEAR:
+                applyClear(payload);
+                break;
+        }
+    }
 
+    private void applyRemoval(TaskType type, int id) {
         switch (type) {
-            case TASK:
-                Task task = new Task(id, name, description, status);
-                task.setDuration(duration);
-                task.setStartTime(startTime);
-                return task;
             case EPIC:
-                Epic epic = new Epic(id, name, description, status);
-                epic.setDuration(duration);
-                epic.setStartTime(startTime);
-                return epic;
+                removeEpic(id);
+                break;
             case SUBTASK:
-                int epicId = Integer.parseInt(fields[7]);
-                Subtask subtask = new Subtask(epicId, id, name, description, status);
-                subtask.setDuration(duration);
-                subtask.setStartTime(startTime);
-                return subtask;
+                removeSubtask(id);
+                break;
             default:
-                throw new IllegalArgumentException("Unknown task type: " + type);
+                removeTask(id);
+        }
+    }
+
+    private void applyClear(String scope) {
+        if (scope.equals("ALL")) {
+            removeAll();
+            return;
+        }
+        switch (TaskType.valueOf(scope)) {
+            case EPIC:
+                removeAllEpics();
+                break;
+            case SUBTASK:
+                removeAllSubtasks();
+                break;
+            default:
+                removeAllTasks();
         }
     }
-}
 
+    // Запись может повторно примениться поверх снимка, уже содержащего её (сбой между снимком
+    // и очисткой журнала), поэтому добавление существующей задачи трактуется как обновление
+    private void applyUpsert(Task task) {
+        boolean exists = contains(task.getId());
+        advanceIdGenerator(task.getId());
+        switch (task.getType()) {
+            case EPIC:
+                if (exists) {
+                    updateEpic((Epic) task);
+                } else {
+                    addEpic((Epic) task);
+                }
+                break;
+            case SUBTASK:
+                if (exists) {
+                    updateSubtask((Subtask) task);
+                } else {
+                    addSubtask((Subtask) task);
+                }
+                break;
+            default:
+                if (exists) {
+                    updateTask(task);
+                } else {
+                    addTask(task);
+                }
+        }
+    }
+}
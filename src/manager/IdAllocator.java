@@ -0,0 +1,13 @@
+package manager;
+
+// Источник id для новых задач менеджера. Реализации потокобезопасны: их зовут и из ConcurrentTaskManager
+public interface IdAllocator {
+    // Очередной свободный id
+    int next();
+
+    // Непрерывный диапазон из count id для пакетного добавления; возвращает первый из них
+    int reserve(int count);
+
+    // Дальше выдаются только id больше id - для задач, загруженных из файла
+    void advance(int id);
+}
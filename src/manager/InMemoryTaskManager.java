@@ -1,52 +1,72 @@
 package manager;
 
 import tasks.Epic;
+import tasks.RecurringTask;
 import tasks.Subtask;
 import tasks.Task;
 import tasks.TaskStatus;
+import tasks.TaskType;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class InMemoryTaskManager implements TaskManager {
     private final Map<Integer, Task> tasks;
     private final Map<Integer, Epic> epics;
     private final Map<Integer, Subtask> subtasks;
-    private final Set<Task> prioritizedTasks = new TreeSet<>((task1, task2) -> {
-        if (task1.getStartTime() == null && task2.getStartTime() == null) {
-            return Integer.compare(task1.getId(), task2.getId());
-        }
-        if (task1.getStartTime() == null) {
-            return 1;
-        }
-        if (task2.getStartTime() == null) {
-            return -1;
-        }
-        return task1.getStartTime().compareTo(task2.getStartTime());
-    });
+    private final PartitionedTimeline prioritizedTasks;
+    private final DependencyGraph dependencies = new DependencyGraph();
     private final HistoryManager historyManager;
-    private static int generatorId = 0;
+    private IdAllocator idAllocator = new AtomicIdAllocator();
+    // Последняя опубликованная версия; null, пока snapshot() ни разу не вызывали
+    private volatile AtomicReference<TaskSnapshot> published;
 
     public InMemoryTaskManager() {
-        tasks = new HashMap<>();
-        epics = new HashMap<>();
-        subtasks = new HashMap<>();
-        historyManager = Managers.getDefaultHistory();
+        this(Managers.getDefaultHistory());
     }
 
     public InMemoryTaskManager(HistoryManager historyManager) {
-        tasks = new HashMap<>();
-        epics = new HashMap<>();
-        subtasks = new HashMap<>();
+        this(historyManager, false);
+    }
+
+    // concurrent: хранилища и лента, которые можно читать во время записи из других потоков.
+    // Саму запись упорядочивает наследник (ConcurrentTaskManager)
+    protected InMemoryTaskManager(HistoryManager historyManager, boolean concurrent) {
+        tasks = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+        epics = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+        subtasks = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+        prioritizedTasks = new PartitionedTimeline(concurrent);
         this.historyManager = historyManager;
     }
 
+    //Источник id новых задач: по умолчанию свой счётчик у каждого менеджера. Задаётся до добавления задач
+    public void setIdAllocator(IdAllocator idAllocator) {
+        this.idAllocator = idAllocator;
+    }
+
+    //Карта занятости слотами длины granularity рядом с лентой: проверка пересечений и поиск
+    //свободного времени идут по словам битовой карты, пока все задачи выровнены по слотам.
+    //null выключает карту
+    public void setOccupancyIndex(Duration granularity) {
+        prioritizedTasks.setOccupancy(granularity);
+    }
+
     //Добавление новых задач
     @Override
     public void addTask(Task task) {
@@ -54,31 +74,19 @@ public class InMemoryTaskManager implements TaskManager {
             throw new IllegalArgumentException("Task time overlaps with an existing task");
         }
 
-        while (task.getId() == 0) {
-            final int id = ++generatorId;
-            task.setId(id);
-
-            if (tasks.containsKey(task.getId())) {
-                task.setId(0);
-            }
-        }
+        assignId(task);
 
         tasks.put(task.getId(), task);
         prioritizedTasks.add(task);
+        publish(task);
     }
 
     @Override
     public void addEpic(Epic epic) {
-        while (epic.getId() == 0) {
-            final int id = ++generatorId;
-            epic.setId(id);
-
-            if (tasks.containsKey(epic.getId())) {
-                epic.setId(0);
-            }
-        }
+        assignId(epic);
 
         epics.put(epic.getId(), epic);
+        publish(epic);
     }
 
     @Override
@@ -87,28 +95,30 @@ public class InMemoryTaskManager implements TaskManager {
             throw new IllegalArgumentException("Subtask time overlaps with an existing task");
         }
 
-        while (subtask.getId() == 0) {
-            final int id = ++generatorId;
-            subtask.setId(id);
-
-            if (tasks.containsKey(subtask.getId())) {
-                subtask.setId(0);
-            }
-        }
+        assignId(subtask);
         int id = subtask.getId();
         subtasks.put(subtask.getId(), subtask);
         prioritizedTasks.add(subtask);
 
         int epicId = subtask.getEpicId();
-        epics.get(epicId).getSubtaskOfEpicIDs().add(id);
-
-        updateEpicStatus(subtask.getEpicId());
-        updateEpicTime(subtask.getEpicId());
+        Epic epic = epics.get(epicId);
+        epic.getSubtaskOfEpicIDs().add(id);
+        epic.trackSubtask(subtask);
+        refreshEpic(epicId);
+        publish(subtask, epic);
     }
 
     //Обновление существующих задач
     @Override
     public void updateTask(Task task) {
+        // Подзадачи и эпики обновляются своими методами, иначе их индексы не обновятся
+        if (task.getType() == TaskType.SUBTASK) {
+            updateSubtask((Subtask) task);
+            return;
+        } else if (task.getType() == TaskType.EPIC) {
+            updateEpic((Epic) task);
+            return;
+        }
         final Task savedTask = tasks.get(task.getId());
         if (savedTask == null) {
             return;
@@ -117,8 +127,9 @@ public class InMemoryTaskManager implements TaskManager {
             throw new IllegalArgumentException("Task time overlaps with an existing task");
         }
         tasks.put(task.getId(), task);
-        prioritizedTasks.remove(savedTask);
         prioritizedTasks.add(task);
+        dependencies.refresh(task);
+        publish(task);
     }
 
     @Override
@@ -132,6 +143,7 @@ public class InMemoryTaskManager implements TaskManager {
         String newDescription = epic.getDescription();
         epics.get(id).setName(newName);
         epics.get(id).setDescription(newDescription);
+        publish(savedEpic);
     }
 
     @Override
@@ -140,28 +152,399 @@ public class InMemoryTaskManager implements TaskManager {
         if (savedSubtask == null) {
             return;
         }
+        Epic epic = epics.get(subtask.getEpicId());
+        if (epic == null) {
+            throw new IllegalArgumentException("Epic not found: " + subtask.getEpicId());
+        }
         if (isTimeOverlap(subtask)) {
             throw new IllegalArgumentException("Task time overlaps with an existing task");
         }
         subtasks.put(subtask.getId(), subtask);
-        updateEpicStatus(subtask.getEpicId());
-        prioritizedTasks.remove(savedSubtask);
         prioritizedTasks.add(subtask);
+        dependencies.refresh(subtask);
+        Epic previous = trackInEpic(subtask, epic);
+        if (previous != null) {
+            refreshEpic(previous.getId());
+        }
+        refreshEpic(epic.getId());
+        publish(subtask, epic, previous);
+    }
+
+    // Учёт подзадачи в эпике, на который она указывает. Если она числилась в другом эпике,
+    // то переносится из его списка и сводки; возвращает прежний эпик или null
+    private Epic trackInEpic(Subtask subtask, Epic epic) {
+        int id = subtask.getId();
+        Epic previous = null;
+        if (!epic.tracksSubtask(id)) {
+            previous = epicOf(id);
+            if (previous != null) {
+                previous.getSubtaskOfEpicIDs().remove((Integer) id);
+                previous.untrackSubtask(id);
+            }
+            epic.getSubtaskOfEpicIDs().add(id);
+        }
+        epic.trackSubtask(subtask);
+        return previous;
+    }
+
+    // Эпик, в котором подзадача числится сейчас. Объект подзадачи могли перенести в другой эпик,
+    // изменив на месте, поэтому при расхождении эпики перебираются: O(эпиков), только при переносе
+    protected Epic epicOf(int subtaskId) {
+        Subtask subtask = subtasks.get(subtaskId);
+        if (subtask == null) {
+            return null;
+        }
+        Epic epic = epics.get(subtask.getEpicId());
+        if (epic != null && epic.tracksSubtask(subtaskId)) {
+            return epic;
+        }
+        for (Epic each : epics.values()) {
+            if (each.tracksSubtask(subtaskId)) {
+                return each;
+            }
+        }
+        return null;
     }
 
-    //Проверка на пересечение времени
+    //Проверка на пересечение времени: O(log n) по соседям в ленте исполнителя задачи
     public boolean isTimeOverlap(Task newTask) {
-        return prioritizedTasks.stream()
-                .anyMatch(task -> {
-                    if (task.getId() == newTask.getId()) {
-                        return false;
-                    }
-                    if (task.getStartTime() == null || newTask.getStartTime() == null) {
-                        return false;
+        return prioritizedTasks.overlaps(newTask);
+    }
+
+    // Восстановление из снимка за один проход: задачи кладутся в индексы напрямую,
+    // без проверки пересечений, а статус и время каждого эпика пересчитываются один раз
+    protected void restore(Collection<? extends Task> rows) {
+        int maxId = 0;
+        for (Task task : rows) {
+            switch (task.getType()) {
+                case EPIC:
+                    epics.put(task.getId(), (Epic) task);
+                    break;
+                case SUBTASK:
+                    subtasks.put(task.getId(), (Subtask) task);
+                    prioritizedTasks.add(task);
+                    break;
+                default:
+                    tasks.put(task.getId(), task);
+                    prioritizedTasks.add(task);
+            }
+            maxId = Math.max(maxId, task.getId());
+        }
+        Set<Integer> epicIds = new HashSet<>();
+        for (Task task : rows) {
+            if (task.getType() == TaskType.SUBTASK) {
+                int epicId = ((Subtask) task).getEpicId();
+                Epic epic = epics.get(epicId);
+                if (epic == null) {
+                    throw new IllegalArgumentException("Subtask " + task.getId() + " refers to unknown epic " + epicId);
+                }
+                epic.getSubtaskOfEpicIDs().add(task.getId());
+                epic.trackSubtask((Subtask) task);
+                epicIds.add(epicId);
+            }
+        }
+        for (int epicId : epicIds) {
+            refreshEpic(epicId);
+        }
+        advanceIdGenerator(maxId);
+        republish();
+    }
+
+    // Сгенерированные id не должны совпадать с уже загруженными
+    protected void advanceIdGenerator(int id) {
+        idAllocator.advance(id);
+    }
+
+    PartitionedTimeline timeline() {
+        return prioritizedTasks;
+    }
+
+    protected boolean contains(int id) {
+        return tasks.containsKey(id) || epics.containsKey(id) || subtasks.containsKey(id);
+    }
+
+    //Пакетные операции
+    @Override
+    public BatchResult addAll(List<? extends Task> items) {
+        BatchResult result = new BatchResult();
+        Set<Task> overlapping = findBatchOverlaps(items);
+        Set<Integer> affectedEpics = new LinkedHashSet<>();
+        IdRange ids = reserveIds(items);
+        // Эпики добавляются первыми, чтобы подзадачи пачки могли на них ссылаться
+        for (int i = 0; i < items.size(); i++) {
+            Task item = items.get(i);
+            if (item.getType() == TaskType.EPIC) {
+                assignId(item, ids);
+                epics.put(item.getId(), (Epic) item);
+                result.addSuccess(item.getId());
+            }
+        }
+        for (int i = 0; i < items.size(); i++) {
+            Task item = items.get(i);
+            if (item.getType() == TaskType.EPIC) {
+                continue;
+            }
+            if (overlapping.contains(item)) {
+                result.addFailure(i, BatchResult.Reason.OVERLAP, "Task time overlaps with an existing task");
+                continue;
+            }
+            if (item.getType() == TaskType.SUBTASK) {
+                Subtask subtask = (Subtask) item;
+                Epic epic = epics.get(subtask.getEpicId());
+                if (epic == null) {
+                    result.addFailure(i, BatchResult.Reason.NOT_FOUND, "Epic not found: " + subtask.getEpicId());
+                    continue;
+                }
+                assignId(subtask, ids);
+                subtasks.put(subtask.getId(), subtask);
+                epic.getSubtaskOfEpicIDs().add(subtask.getId());
+                epic.trackSubtask(subtask);
+                affectedEpics.add(epic.getId());
+            } else {
+                assignId(item, ids);
+                tasks.put(item.getId(), item);
+            }
+            prioritizedTasks.add(item);
+            result.addSuccess(item.getId());
+        }
+        refreshEpics(affectedEpics);
+        publishBatch(result.getSucceededIds(), List.of(), affectedEpics);
+        return result;
+    }
+
+    @Override
+    public BatchResult updateAll(List<? extends Task> items) {
+        BatchResult result = new BatchResult();
+        Set<Task> overlapping = findBatchOverlaps(items);
+        Set<Integer> affectedEpics = new LinkedHashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            Task item = items.get(i);
+            int id = item.getId();
+            Task saved;
+            switch (item.getType()) {
+                case EPIC:
+                    saved = epics.get(id);
+                    break;
+                case SUBTASK:
+                    saved = subtasks.get(id);
+                    break;
+                default:
+                    saved = tasks.get(id);
+            }
+            if (saved == null) {
+                result.addFailure(i, BatchResult.Reason.NOT_FOUND, "Task not found: " + id);
+                continue;
+            }
+            if (item.getType() == TaskType.SUBTASK && !epics.containsKey(((Subtask) item).getEpicId())) {
+                result.addFailure(i, BatchResult.Reason.NOT_FOUND, "Epic not found: " + ((Subtask) item).getEpicId());
+                continue;
+            }
+            if (overlapping.contains(item)) {
+                result.addFailure(i, BatchResult.Reason.OVERLAP, "Task time overlaps with an existing task");
+                continue;
+            }
+            if (item.getType() == TaskType.EPIC) {
+                saved.setName(item.getName());
+                saved.setDescription(item.getDescription());
+            } else {
+                if (item.getType() == TaskType.SUBTASK) {
+                    Subtask subtask = (Subtask) item;
+                    Epic epic = epics.get(subtask.getEpicId());
+                    subtasks.put(id, subtask);
+                    Epic previous = trackInEpic(subtask, epic);
+                    if (previous != null) {
+                        affectedEpics.add(previous.getId());
                     }
-                    return task.getStartTime().isBefore(newTask.getEndTime()) &&
-                            newTask.getStartTime().isBefore(task.getEndTime());
-                });
+                    affectedEpics.add(epic.getId());
+                } else {
+                    tasks.put(id, item);
+                }
+                prioritizedTasks.add(item);
+                dependencies.refresh(item);
+            }
+            result.addSuccess(id);
+        }
+        refreshEpics(affectedEpics);
+        publishBatch(result.getSucceededIds(), List.of(), affectedEpics);
+        return result;
+    }
+
+    @Override
+    public BatchResult removeAll(Collection<Integer> ids) {
+        BatchResult result = new BatchResult();
+        Set<Integer> affectedEpics = new LinkedHashSet<>();
+        // Подзадачи, удалённые вместе со своим эпиком раньше в этой же пачке: их id дальше в пачке
+        // считаются удалёнными, и результат не зависит от порядка id
+        Set<Integer> cascaded = new HashSet<>();
+        int index = -1;
+        for (int id : ids) {
+            index++;
+            if (tasks.containsKey(id)) {
+                tasks.remove(id);
+                prioritizedTasks.remove(id);
+                dependencies.remove(id);
+                historyManager.remove(id);
+            } else if (subtasks.containsKey(id)) {
+                Subtask subtask = subtasks.remove(id);
+                prioritizedTasks.remove(id);
+                dependencies.remove(id);
+                historyManager.remove(id);
+                Epic epic = epics.get(subtask.getEpicId());
+                if (epic != null) {
+                    epic.getSubtaskOfEpicIDs().remove((Integer) id);
+                    epic.untrackSubtask(id);
+                    affectedEpics.add(epic.getId());
+                }
+            } else if (epics.containsKey(id)) {
+                Epic epic = epics.remove(id);
+                for (int subtaskId : epic.getSubtaskOfEpicIDs()) {
+                    subtasks.remove(subtaskId);
+                    prioritizedTasks.remove(subtaskId);
+                    dependencies.remove(subtaskId);
+                    historyManager.remove(subtaskId);
+                    cascaded.add(subtaskId);
+                }
+                historyManager.remove(id);
+            } else if (!cascaded.contains(id)) {
+                result.addFailure(index, BatchResult.Reason.NOT_FOUND, "Task not found: " + id);
+                continue;
+            }
+            result.addSuccess(id);
+        }
+        affectedEpics.retainAll(epics.keySet());
+        refreshEpics(affectedEpics);
+        publishBatch(List.of(), result.getSucceededIds(), affectedEpics);
+        return result;
+    }
+
+    // Задачи пачки сортируются по времени начала: каждая проверяется по ленте за O(log n)
+    // и с последней принятой задачей пачки того же исполнителя. Задача пачки не конфликтует
+    // со своей же прежней версией, но конфликтует с ранее принятыми задачами пачки.
+    private Set<Task> findBatchOverlaps(List<? extends Task> items) {
+        Set<Task> overlapping = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<Task> scheduled = new ArrayList<>();
+        List<RecurringSeries> recurring = new ArrayList<>();
+        for (Task item : items) {
+            if (item.getStartTime() == null || item.getType() == TaskType.EPIC) {
+                continue;
+            }
+            if (item.getType() == TaskType.RECURRING) {
+                // Серии пачки проверяются по ленте и друг с другом, обычные задачи пачки - с ними
+                RecurringSeries series;
+                try {
+                    series = new RecurringSeries((RecurringTask) item);
+                } catch (IllegalArgumentException e) {
+                    overlapping.add(item); // вхождения длиннее периода пересекаются друг с другом
+                    continue;
+                }
+                boolean conflict = prioritizedTasks.overlaps(item.getAssignee(), series);
+                for (RecurringSeries accepted : recurring) {
+                    conflict |= accepted.id != series.id && sameAssignee(accepted.task, item)
+                            && accepted.intersects(series);
+                }
+                if (conflict) {
+                    overlapping.add(item);
+                } else {
+                    recurring.add(series);
+                }
+            } else {
+                scheduled.add(item);
+            }
+        }
+        scheduled.sort(Comparator.comparing(Task::getStartTime));
+
+        Map<String, Task> lastAccepted = new HashMap<>();
+        for (Task item : scheduled) {
+            LocalDateTime start = item.getStartTime();
+            LocalDateTime end = item.getEndTime();
+            Task last = lastAccepted.get(item.getAssignee());
+            boolean overlaps = last != null && start.isBefore(last.getEndTime())
+                    && last.getStartTime().isBefore(end);
+            for (RecurringSeries series : recurring) {
+                overlaps |= series.id != item.getId() && sameAssignee(series.task, item)
+                        && series.intersects(start, end);
+            }
+            if (overlaps || prioritizedTasks.overlaps(item.getAssignee(), start, end, item.getId())) {
+                overlapping.add(item);
+            } else if (last == null || end.isAfter(last.getEndTime())) {
+                lastAccepted.put(item.getAssignee(), item);
+            }
+        }
+        return overlapping;
+    }
+
+    private static boolean sameAssignee(Task first, Task second) {
+        return Objects.equals(first.getAssignee(), second.getAssignee());
+    }
+
+    private void refreshEpics(Set<Integer> epicIds) {
+        for (int epicId : epicIds) {
+            refreshEpic(epicId);
+        }
+    }
+
+    // id, заданные вручную, могут занять любое место в последовательности: такие пропускаются
+    private void assignId(Task task) {
+        while (task.getId() == 0) {
+            final int id = idAllocator.next();
+            if (!contains(id)) {
+                task.setId(id);
+            }
+        }
+    }
+
+    // Из диапазона, зарезервированного под пачку; когда он кончится - по одному
+    private void assignId(Task task, IdRange range) {
+        while (task.getId() == 0 && range.next < range.end) {
+            final int id = range.next++;
+            if (!contains(id)) {
+                task.setId(id);
+            }
+        }
+        assignId(task);
+    }
+
+    // Пачка берёт id одним резервированием, а не обращением к генератору на каждую задачу
+    private IdRange reserveIds(List<? extends Task> items) {
+        int count = 0;
+        for (Task item : items) {
+            if (item.getId() == 0) {
+                count++;
+            }
+        }
+        int first = count > 0 ? idAllocator.reserve(count) : 0;
+        return new IdRange(first, first + count);
+    }
+
+    private static final class IdRange {
+        int next;
+        final int end;
+
+        IdRange(int next, int end) {
+            this.next = next;
+            this.end = end;
+        }
+    }
+
+    // Сохранённая задача любого типа без записи в историю просмотров
+    protected Task find(int id) {
+        if (tasks.containsKey(id)) {
+            return tasks.get(id);
+        } else if (epics.containsKey(id)) {
+            return epics.get(id);
+        }
+        return subtasks.get(id);
+    }
+
+    protected TaskType typeOf(int id) {
+        if (tasks.containsKey(id)) {
+            return TaskType.TASK;
+        } else if (epics.containsKey(id)) {
+            return TaskType.EPIC;
+        } else if (subtasks.containsKey(id)) {
+            return TaskType.SUBTASK;
+        }
+        return null;
     }
 
     //Получение списков задач
@@ -189,8 +572,292 @@ public class InMemoryTaskManager implements TaskManager {
         return new ArrayList<>(subtasks.values());
     }
 
+    @Override
     public List<Task> getPrioritizedTasks() {
-        return new ArrayList<>(prioritizedTasks);
+        return prioritizedTasks.board().toList();
+    }
+
+    @Override
+    public List<Task> getHistory() {
+        return historyManager.getHistory();
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        return getPrioritizedTasks(from, to, null, null);
+    }
+
+    @Override
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to, TaskType type, TaskStatus status) {
+        if (!from.isBefore(to)) {
+            return new ArrayList<>();
+        }
+        return prioritizedTasks.board().between(from, to, type, status);
+    }
+
+    @Override
+    public List<Task> getNextTasks(LocalDateTime after, int limit) {
+        return getNextTasks(after, limit, null, null);
+    }
+
+    @Override
+    public List<Task> getNextTasks(LocalDateTime after, int limit, TaskType type, TaskStatus status) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Task limit must be positive: " + limit);
+        }
+        return prioritizedTasks.board().startingFrom(after, limit, type, status);
+    }
+
+    //Автопланирование
+    @Override
+    public Map<Integer, LocalDateTime> autoSchedule(ScheduleOptions options) {
+        List<Task> queue = scheduleQueue(options);
+        // Очередь делится по исполнителям, порядок внутри каждого сохраняется:
+        // задачи разных исполнителей раскладываются по своим календарям независимо
+        Map<String, List<Integer>> positions = new HashMap<>();
+        for (int i = 0; i < queue.size(); i++) {
+            positions.computeIfAbsent(queue.get(i).getAssignee(), assignee -> new ArrayList<>()).add(i);
+        }
+        // Сначала считается весь план, затем он применяется целиком: план строится
+        // без пересечений, поэтому применение не может сорваться на середине
+        List<LocalDateTime> starts = new ArrayList<>(Collections.nCopies(queue.size(), null));
+        for (Map.Entry<String, List<Integer>> entry : positions.entrySet()) {
+            List<Duration> durations = new ArrayList<>(entry.getValue().size());
+            for (int i : entry.getValue()) {
+                Task task = queue.get(i);
+                durations.add(task.getDuration() != null ? task.getDuration() : Duration.ZERO);
+            }
+            List<LocalDateTime> packed = prioritizedTasks.calendar(entry.getKey()).pack(durations,
+                    options.getFrom(), options.getHorizon(), options.getWorkingHours());
+            for (int j = 0; j < packed.size(); j++) {
+                starts.set(entry.getValue().get(j), packed.get(j));
+            }
+        }
+        Map<Integer, LocalDateTime> planned = new LinkedHashMap<>();
+        Set<Integer> affectedEpics = new LinkedHashSet<>();
+        for (int i = 0; i < queue.size(); i++) {
+            LocalDateTime start = starts.get(i);
+            if (start == null) {
+                continue;
+            }
+            Task task = queue.get(i);
+            task.setStartTime(start);
+            prioritizedTasks.addFree(task);
+            dependencies.refresh(task);
+            if (task.getType() == TaskType.SUBTASK) {
+                Epic epic = epics.get(((Subtask) task).getEpicId());
+                if (epic != null) {
+                    epic.trackSubtask((Subtask) task);
+                    affectedEpics.add(epic.getId());
+                }
+            }
+            planned.put(task.getId(), start);
+        }
+        refreshEpics(affectedEpics);
+        publishBatch(planned.keySet(), List.of(), affectedEpics);
+        return planned;
+    }
+
+    // Задачи без времени начала в порядке раскладки
+    private List<Task> scheduleQueue(ScheduleOptions options) {
+        List<Task> queue = new ArrayList<>();
+        if (options.getTaskIds() == null) {
+            for (Task task : prioritizedTasks.board().untimed()) {
+                // Повторяющаяся задача без начала не раскладывается: её вхождения займут и будущее время
+                if (task.getType() != TaskType.RECURRING) {
+                    queue.add(task);
+                }
+            }
+        } else {
+            Set<Integer> seen = new HashSet<>();
+            for (int id : options.getTaskIds()) {
+                Epic epic = epics.get(id);
+                List<Integer> ids = epic != null ? epic.getSubtaskOfEpicIDs() : List.of(id);
+                for (int candidateId : ids) {
+                    Task task = tasks.containsKey(candidateId) ? tasks.get(candidateId) : subtasks.get(candidateId);
+                    if (task != null && task.getStartTime() == null && task.getType() != TaskType.RECURRING
+                            && seen.add(candidateId)) {
+                        queue.add(task);
+                    }
+                }
+            }
+        }
+        queue.sort(options.getPriority());
+        if (!options.isGroupByEpic()) {
+            return queue;
+        }
+        // Группа эпика встаёт на место своей первой подзадачи, отдельные задачи - группы из одной
+        // (ключ -id, id положительны и с id эпиков не совпадают)
+        Map<Integer, List<Task>> groups = new LinkedHashMap<>();
+        for (Task task : queue) {
+            int key = task.getType() == TaskType.SUBTASK ? ((Subtask) task).getEpicId() : -task.getId();
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(task);
+        }
+        List<Task> grouped = new ArrayList<>(queue.size());
+        groups.values().forEach(grouped::addAll);
+        return grouped;
+    }
+
+    //Сдвиг задач
+    @Override
+    public List<Integer> shiftEpic(int epicId, Duration delta) {
+        Epic epic = epics.get(epicId);
+        List<Task> moved = new ArrayList<>();
+        if (epic != null) {
+            for (int id : epic.getSubtaskOfEpicIDs()) {
+                Subtask subtask = subtasks.get(id);
+                if (subtask.getStartTime() != null) {
+                    moved.add(subtask);
+                }
+            }
+        }
+        return shift(moved, delta);
+    }
+
+    @Override
+    public List<Integer> shiftRange(LocalDateTime from, LocalDateTime to, Duration delta) {
+        List<Task> moved = from.isBefore(to) ? prioritizedTasks.board().startingBetween(from, to) : List.of();
+        return shift(moved, delta);
+    }
+
+    // Задачи сдвигаются как одно целое, поэтому друг с другом не сталкиваются. С остальной лентой
+    // новые места проверяются одним проходом по календарю каждого исполнителя, затем индексы
+    // обновляются без повторных проверок, а эпики пересчитываются по разу
+    private List<Integer> shift(List<Task> moved, Duration delta) {
+        if (delta == null) {
+            throw new IllegalArgumentException("Shift delta is required");
+        }
+        List<Integer> ids = new ArrayList<>(moved.size());
+        Set<Integer> movedIds = new HashSet<>();
+        Map<String, List<TimeSlot>> targets = new HashMap<>();
+        for (Task task : moved) {
+            ids.add(task.getId());
+            movedIds.add(task.getId());
+            LocalDateTime start = task.getStartTime().plus(delta);
+            LocalDateTime end = task.getEndTime().plus(delta);
+            targets.computeIfAbsent(task.getAssignee(), assignee -> new ArrayList<>()).add(new TimeSlot(start, end));
+        }
+        if (delta.isZero()) {
+            return ids;
+        }
+        for (Map.Entry<String, List<TimeSlot>> entry : targets.entrySet()) {
+            entry.getValue().sort(Comparator.comparing(TimeSlot::getStart));
+            if (prioritizedTasks.calendar(entry.getKey()).overlapsAny(entry.getValue(), movedIds)) {
+                throw new IllegalArgumentException("Shifted tasks overlap with an existing task");
+            }
+        }
+        Set<Integer> affectedEpics = new LinkedHashSet<>();
+        for (Task task : moved) {
+            task.setStartTime(task.getStartTime().plus(delta));
+            prioritizedTasks.addFree(task);
+            dependencies.refresh(task);
+            if (task.getType() == TaskType.SUBTASK) {
+                Epic epic = epics.get(((Subtask) task).getEpicId());
+                if (epic != null) {
+                    epic.trackSubtask((Subtask) task);
+                    affectedEpics.add(epic.getId());
+                }
+            }
+        }
+        refreshEpics(affectedEpics);
+        publishBatch(ids, List.of(), affectedEpics);
+        return ids;
+    }
+
+    //Поиск свободного времени
+    @Override
+    public LocalDateTime findEarliestSlot(Duration duration, LocalDateTime from, LocalDateTime to,
+                                          WorkingHours hours) {
+        List<TimeSlot> slots = findFreeSlots(duration, from, to, 1, hours);
+        return slots.isEmpty() ? null : slots.get(0).getStart();
+    }
+
+    @Override
+    public List<TimeSlot> findFreeSlots(Duration duration, LocalDateTime from, LocalDateTime to, int limit,
+                                        WorkingHours hours) {
+        return findFreeSlots(prioritizedTasks.board(), duration, from, to, limit, hours);
+    }
+
+    @Override
+    public List<TimeSlot> findFreeSlots(String assignee, Duration duration, LocalDateTime from, LocalDateTime to,
+                                        int limit, WorkingHours hours) {
+        return findFreeSlots(prioritizedTasks.calendar(assignee), duration, from, to, limit, hours);
+    }
+
+    @Override
+    public List<String> getFreeAssignees(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Empty interval: " + from + " - " + to);
+        }
+        return prioritizedTasks.freeAssignees(from, to);
+    }
+
+    private static List<TimeSlot> findFreeSlots(TimelineIndex timeline, Duration duration, LocalDateTime from,
+                                                LocalDateTime to, int limit, WorkingHours hours) {
+        if (duration == null || duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException("Slot duration must be positive: " + duration);
+        }
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Slot limit must be positive: " + limit);
+        }
+        if (!from.isBefore(to)) {
+            return new ArrayList<>();
+        }
+        return timeline.freeSlots(duration, from, to, limit, hours != null ? hours : WorkingHours.ALWAYS);
+    }
+
+    //Зависимости между задачами
+    @Override
+    public void addDependency(int predecessorId, int successorId) {
+        dependencies.add(dependent(predecessorId), dependent(successorId));
+    }
+
+    @Override
+    public void removeDependency(int predecessorId, int successorId) {
+        dependencies.remove(predecessorId, successorId);
+    }
+
+    @Override
+    public List<Integer> getPredecessors(int id) {
+        return dependencies.predecessors(id);
+    }
+
+    @Override
+    public List<Integer> getSuccessors(int id) {
+        return dependencies.successors(id);
+    }
+
+    @Override
+    public LocalDateTime getEarliestStart(int id) {
+        if (dependencies.contains(id)) {
+            return dependencies.earliestStart(id);
+        }
+        Task task = find(id);
+        return task != null ? task.getStartTime() : null;
+    }
+
+    @Override
+    public LocalDateTime getLatestFinish(int id) {
+        if (dependencies.contains(id)) {
+            return dependencies.latestFinish(id);
+        }
+        Task task = find(id);
+        return task != null ? task.getEndTime() : null;
+    }
+
+    @Override
+    public List<Task> getCriticalPath() {
+        return dependencies.criticalPath();
+    }
+
+    // Связывать можно только задачи и подзадачи: у эпика время выводится из подзадач,
+    // а повторяющаяся задача не заканчивается
+    private Task dependent(int id) {
+        Task task = tasks.containsKey(id) ? tasks.get(id) : subtasks.get(id);
+        if (task == null || task.getType() == TaskType.RECURRING) {
+            throw new IllegalArgumentException("Dependencies are supported between tasks and subtasks only: " + id);
+        }
+        return task;
     }
 
     //Удаление задач
@@ -198,9 +865,11 @@ public class InMemoryTaskManager implements TaskManager {
     public void removeAll() {
         historyManager.clearHistory();
         prioritizedTasks.clear();
+        dependencies.clear();
         tasks.clear();
         subtasks.clear();
         epics.clear();
+        republish();
     }
 
     @Override
@@ -208,9 +877,11 @@ public class InMemoryTaskManager implements TaskManager {
         tasks.values().stream()
                 .forEach(task -> {
                     historyManager.remove(task.getId());
-                    prioritizedTasks.remove(task);
+                    prioritizedTasks.remove(task.getId());
+                    dependencies.remove(task.getId());
                 });
         tasks.clear();
+        republish();
     }
 
     @Override
@@ -218,16 +889,18 @@ public class InMemoryTaskManager implements TaskManager {
         subtasks.values().stream()
                 .forEach(subtask -> {
                     historyManager.remove(subtask.getId());
-                    prioritizedTasks.remove(subtask);
+                    prioritizedTasks.remove(subtask.getId());
+                    dependencies.remove(subtask.getId());
                 });
         subtasks.clear();
 
         epics.values().stream()
                 .forEach(epic -> {
                     epic.getSubtaskOfEpicIDs().clear();
-                    updateEpicStatus(epic.getId());
-                    updateEpicTime(epic.getId());
+                    epic.clearTrackedSubtasks();
+                    refreshEpic(epic.getId());
                 });
+        republish();
     }
 
     @Override
@@ -239,9 +912,11 @@ public class InMemoryTaskManager implements TaskManager {
         subtasks.values().stream()
                 .forEach(subtask -> {
                     historyManager.remove(subtask.getId());
-                    prioritizedTasks.remove(subtask);
+                    prioritizedTasks.remove(subtask.getId());
+                    dependencies.remove(subtask.getId());
                 });
         subtasks.clear();
+        republish();
     }
 
     //Получение по идентификатору
@@ -272,9 +947,11 @@ public class InMemoryTaskManager implements TaskManager {
         if (tasks.containsKey(id)) {
             final Task task = tasks.remove(id);
             if (task != null) {
-                prioritizedTasks.remove(task);
+                prioritizedTasks.remove(id);
+                dependencies.remove(id);
                 historyManager.remove(id);
             }
+            publishRemoved(id);
         }
     }
 
@@ -284,12 +961,15 @@ public class InMemoryTaskManager implements TaskManager {
             int epicId = subtasks.get(id).getEpicId();
             final Task subtask = subtasks.remove(id);
             if (subtask != null) {
-                prioritizedTasks.remove(subtask);
+                prioritizedTasks.remove(id);
+                dependencies.remove(id);
                 historyManager.remove(id);
             }
-            epics.get(epicId).getSubtaskOfEpicIDs().remove((Integer)id);
-            updateEpicStatus(epicId);
-            updateEpicTime(epicId);
+            Epic epic = epics.get(epicId);
+            epic.getSubtaskOfEpicIDs().remove((Integer)id);
+            epic.untrackSubtask(id);
+            refreshEpic(epicId);
+            publishRemoved(id, epic);
         }
     }
 
@@ -301,6 +981,7 @@ public class InMemoryTaskManager implements TaskManager {
             subtaskIds.forEach(this::removeSubtask);
             epics.remove(id);
             historyManager.remove(id);
+            publishRemoved(id);
         }
     }
 
@@ -317,47 +998,104 @@ public class InMemoryTaskManager implements TaskManager {
 
     @Override
     public void updateEpicStatus(int epicId) {
+        // Явный вызов пересобирает сводку заново: подзадачи могли изменить на месте без updateSubtask
         Epic epic = epics.get(epicId);
-        List<Integer> subtaskIDs = epic.getSubtaskOfEpicIDs();
-        if (subtaskIDs.isEmpty()) {
-            epic.setStatus(TaskStatus.NEW);
-            return;
+        epic.clearTrackedSubtasks();
+        for (int id : epic.getSubtaskOfEpicIDs()) {
+            epic.trackSubtask(subtasks.get(id));
         }
-        TaskStatus status = null;
-        for (int id : subtaskIDs) {
-            final Subtask subtask = subtasks.get(id);
-            if (status == null) {
-                status = subtask.getStatus();
-                continue;
-            }
-            if (status.equals(subtask.getStatus())
-                    && !status.equals(TaskStatus.IN_PROGRESS)) {
-                continue;
+        refreshEpic(epicId);
+        publish(epic);
+    }
+
+    //Снимки состояния
+    // Первый вызов включает публикацию версий: с этого момента каждая запись строит следующую
+    @Override
+    public TaskSnapshot snapshot() {
+        if (published == null) {
+            synchronized (this) {
+                if (published == null) {
+                    published = new AtomicReference<>(TaskSnapshot.of(0, tasks.values(), epics.values(),
+                            subtasks.values()));
+                }
             }
-            epic.setStatus(TaskStatus.IN_PROGRESS);
+        }
+        return published.get();
+    }
+
+    boolean isPublishing() {
+        return published != null;
+    }
+
+    // Изменённые задачи (живые объекты) и удалённые id становятся следующей версией. Одновременные
+    // записи разных эпиков в ConcurrentTaskManager не теряют друг друга: версия строится заново,
+    // если её успели опередить
+    private void publish(Collection<? extends Task> changed, Collection<Integer> removed) {
+        AtomicReference<TaskSnapshot> current = published;
+        if (current == null) {
             return;
         }
-        epic.setStatus(status);
+        TaskSnapshot base;
+        do {
+            base = current.get();
+        } while (!current.compareAndSet(base, base.apply(changed, removed)));
     }
 
-    private void updateEpicTime(int epicId) {
-        Epic epic = epics.get(epicId);
-        Duration totalDuration = Duration.ZERO;
-        LocalDateTime startTime = null;
-        LocalDateTime endTime = null;
+    private void publish(Task... changed) {
+        if (published != null) {
+            List<Task> present = new ArrayList<>(changed.length);
+            for (Task task : changed) {
+                if (task != null) {
+                    present.add(task);
+                }
+            }
+            publish(present, List.of());
+        }
+    }
+
+    private void publishRemoved(int id, Task... changed) {
+        if (published != null) {
+            publish(Arrays.asList(changed), List.of(id));
+        }
+    }
 
-        for (Subtask subtask : getSubtasksOfEpic(epicId)) {
-            totalDuration = totalDuration.plus(subtask.getDuration());
-            if (startTime == null || subtask.getStartTime().isBefore(startTime)) {
-                startTime = subtask.getStartTime();
+    // Пакет публикуется одной версией: задачи по id и эпики, у которых поменялась сводка
+    private void publishBatch(Collection<Integer> changedIds, Collection<Integer> removedIds,
+                              Collection<Integer> epicIds) {
+        if (published == null) {
+            return;
+        }
+        List<Task> changed = new ArrayList<>();
+        for (int id : changedIds) {
+            Task task = find(id);
+            if (task != null) {
+                changed.add(task);
             }
-            if (endTime == null || subtask.getEndTime().isAfter(endTime)) {
-                endTime = subtask.getEndTime();
+        }
+        for (int epicId : epicIds) {
+            Epic epic = epics.get(epicId);
+            if (epic != null) {
+                changed.add(epic);
             }
         }
+        publish(changed, removedIds);
+    }
 
-        epic.setDuration(totalDuration);
-        epic.setStartTime(startTime);
-        epic.setEndTime(endTime);
+    // После очистки и восстановления версия строится заново по хранилищам
+    private void republish() {
+        AtomicReference<TaskSnapshot> current = published;
+        if (current != null) {
+            current.set(TaskSnapshot.of(current.get().getVersion() + 1, tasks.values(), epics.values(),
+                    subtasks.values()));
+        }
+    }
+
+    // Статус и время эпика берутся из его сводки, которую поддерживают приращениями: O(1)
+    private void refreshEpic(int epicId) {
+        Epic epic = epics.get(epicId);
+        epic.setStatus(epic.getRollupStatus());
+        epic.setDuration(epic.getRollupDuration());
+        epic.setStartTime(epic.getRollupStartTime());
+        epic.setEndTime(epic.getRollupEndTime());
     }
 }
@@ -0,0 +1,130 @@
+package manager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+
+// id для нескольких менеджеров над одним хранилищем, в том числе из разных процессов.
+// В файле аренды лежит следующий не выданный id; менеджер берёт из него блок в blockSize id
+// под блокировкой файла и раздаёт его без замков, к файлу возвращается только за следующим
+// блоком. Блоки разных менеджеров не пересекаются, неиспользованный остаток блока пропадает.
+public class LeasedIdAllocator implements IdAllocator {
+    private static final int DEFAULT_BLOCK_SIZE = 1024;
+    // FileLock не защищает от второго канала того же процесса: в пределах JVM файл
+    // дополнительно берётся под монитор его пути
+    private static final Map<String, Object> FILE_MONITORS = new ConcurrentHashMap<>();
+
+    private final File file;
+    private final int blockSize;
+    private volatile Block block = new Block(0, 0);
+    // Значение счётчика в файле при последнем обращении: id ниже него уже кем-то выданы
+    private int leased;
+
+    private static final class Block {
+        final AtomicInteger next;
+        final int limit;
+
+        Block(int first, int limit) {
+            this.next = new AtomicInteger(first);
+            this.limit = limit;
+        }
+    }
+
+    public LeasedIdAllocator(File file) {
+        this(file, DEFAULT_BLOCK_SIZE);
+    }
+
+    public LeasedIdAllocator(File file, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("Block size must be positive: " + blockSize);
+        }
+        this.file = file;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public int next() {
+        while (true) {
+            Block current = block;
+            int id = current.next.getAndIncrement();
+            if (id < current.limit) {
+                return id;
+            }
+            refill(current);
+        }
+    }
+
+    @Override
+    public int reserve(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Id count must be positive: " + count);
+        }
+        // Диапазон, который помещается в остаток текущего блока, берётся из него
+        Block current = block;
+        for (int first = current.next.get(); first + count <= current.limit; first = current.next.get()) {
+            if (current.next.compareAndSet(first, first + count)) {
+                return first;
+            }
+        }
+        synchronized (this) {
+            return update(counter -> counter + count);
+        }
+    }
+
+    @Override
+    public void advance(int id) {
+        if (id >= block.next.get()) {
+            advanceSlow(id);
+        }
+    }
+
+    private synchronized void advanceSlow(int id) {
+        Block current = block;
+        if (id < current.limit) {
+            current.next.accumulateAndGet(id + 1, Math::max);
+        } else if (id >= leased) {
+            // id выдан не через аренду (файл создан до неё): счётчик в файле поднимается выше
+            update(counter -> Math.max(counter, id + 1));
+        }
+    }
+
+    private synchronized void refill(Block exhausted) {
+        if (block == exhausted) {
+            int first = update(counter -> counter + blockSize);
+            block = new Block(first, first + blockSize);
+        }
+    }
+
+    // Меняет счётчик в файле под блокировкой и возвращает прежнее значение
+    private int update(IntUnaryOperator change) {
+        String path = file.getAbsoluteFile().toPath().normalize().toString();
+        synchronized (FILE_MONITORS.computeIfAbsent(path, key -> new Object())) {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+                    int counter = channel.read(buffer, 0) == Integer.BYTES ? buffer.getInt(0) : 1;
+                    int updated = change.applyAsInt(counter);
+                    buffer.putInt(0, updated);
+                    buffer.rewind();
+                    channel.write(buffer, 0);
+                    channel.force(false);
+                    leased = updated;
+                    return counter;
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                throw new ManagerSaveException("Cannot lease ids from " + file, e);
+            }
+        }
+    }
+}
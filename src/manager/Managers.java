@@ -12,7 +12,17 @@ public class Managers {
         return new InMemoryTaskManager(historyManager);
     }
 
+    // Менеджер для многопоточного сервиса: чтение без блокировок, разные эпики правятся параллельно
+    public static TaskManager getConcurrent() {
+        return new ConcurrentTaskManager();
+    }
+
     public static HistoryManager getDefaultHistory() {
         return new InMemoryHistoryManager();
     }
+
+    // История, в которую можно писать из многих потоков: просмотры не ждут друг друга
+    public static HistoryManager getConcurrentHistory() {
+        return new ConcurrentHistoryManager();
+    }
 }
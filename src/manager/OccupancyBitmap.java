@@ -0,0 +1,259 @@
+package manager;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Занятость времени слотами фиксированной длины: бит на слот, слоты пронумерованы подряд
+// от начала эпохи. Биты лежат по дням, как контейнеры в Roaring: пустой день не хранится,
+// полностью занятый - общий массив FULL, остальные - свой long[] на день
+// (при 15 минутах это 96 бит, два слова). Проверки и поиск идут по словам.
+final class OccupancyBitmap {
+    private static final long MINUTES_PER_DAY = 24 * 60;
+    private static final LocalDateTime EPOCH = LocalDate.ofEpochDay(0).atStartOfDay();
+
+    private final Duration granularity;
+    private final long slotMinutes;
+    private final int slotsPerDay;
+    private final int wordsPerDay;
+    private final long[] full;
+    private final TreeMap<Long, long[]> days = new TreeMap<>();
+
+    OccupancyBitmap(Duration granularity) {
+        long minutes = granularity.toMinutes();
+        if (minutes <= 0 || !granularity.equals(Duration.ofMinutes(minutes)) || MINUTES_PER_DAY % minutes != 0) {
+            throw new IllegalArgumentException("Slot length must be whole minutes dividing a day: " + granularity);
+        }
+        this.granularity = granularity;
+        this.slotMinutes = minutes;
+        this.slotsPerDay = (int) (MINUTES_PER_DAY / minutes);
+        this.wordsPerDay = (slotsPerDay + 63) >>> 6;
+        this.full = new long[wordsPerDay];
+        fill(full, 0, slotsPerDay);
+    }
+
+    Duration getGranularity() {
+        return granularity;
+    }
+
+    // Момент лежит на границе слота
+    boolean isAligned(LocalDateTime time) {
+        return time.getSecond() == 0 && time.getNano() == 0
+                && (time.getHour() * 60L + time.getMinute()) % slotMinutes == 0;
+    }
+
+    // Слот, в который попадает момент
+    long slotOf(LocalDateTime time) {
+        long minuteOfDay = time.getHour() * 60L + time.getMinute();
+        return time.toLocalDate().toEpochDay() * slotsPerDay + minuteOfDay / slotMinutes;
+    }
+
+    // Первый слот, начинающийся не раньше момента
+    long slotAtOrAfter(LocalDateTime time) {
+        long slot = slotOf(time);
+        return isAligned(time) ? slot : slot + 1;
+    }
+
+    LocalDateTime startOf(long slot) {
+        return EPOCH.plusMinutes(slot * slotMinutes);
+    }
+
+    // Занимает все слоты, которых касается [start, end)
+    void mark(LocalDateTime start, LocalDateTime end) {
+        update(slotOf(start), slotAtOrAfter(end), true);
+    }
+
+    void unmark(LocalDateTime start, LocalDateTime end) {
+        update(slotOf(start), slotAtOrAfter(end), false);
+    }
+
+    void clear() {
+        days.clear();
+    }
+
+    // Есть ли занятый слот в [from, to)
+    boolean anyBusy(long from, long to) {
+        return nextBusy(from, to) < to;
+    }
+
+    // Первый занятый слот в [from, limit), иначе limit
+    long nextBusy(long from, long limit) {
+        if (from >= limit) {
+            return limit;
+        }
+        long day = Math.floorDiv(from, (long) slotsPerDay);
+        long lastDay = Math.floorDiv(limit - 1, (long) slotsPerDay);
+        for (Map.Entry<Long, long[]> entry = days.ceilingEntry(day); entry != null && entry.getKey() <= lastDay;
+             entry = days.higherEntry(entry.getKey())) {
+            long dayStart = entry.getKey() * slotsPerDay;
+            int offset = (int) Math.max(0, from - dayStart);
+            int bit = nextSetBit(entry.getValue(), offset);
+            if (bit >= 0) {
+                return Math.min(dayStart + bit, limit);
+            }
+        }
+        return limit;
+    }
+
+    // Свободные отрезки слотов [начало, конец) внутри [from, limit) не короче minSlots, парами в out;
+    // возвращает число отрезков. Каждый день читается из карты один раз, отрезки ищутся по словам.
+    // Последний отрезок может упираться в limit
+    int freeRuns(long from, long limit, long minSlots, long[] out) {
+        int count = 0;
+        int max = out.length / 2;
+        long runStart = -1;
+        long slot = from;
+        while (slot < limit) {
+            long day = Math.floorDiv(slot, (long) slotsPerDay);
+            long dayStart = day * slotsPerDay;
+            long dayEnd = Math.min(dayStart + slotsPerDay, limit);
+            long[] words = days.get(day);
+            if (words == null) {
+                if (runStart < 0) {
+                    runStart = slot;
+                }
+                slot = dayEnd;
+                continue;
+            }
+            while (slot < dayEnd) {
+                int offset = (int) (slot - dayStart);
+                if (runStart < 0) {
+                    int free = nextClearBit(words, offset);
+                    slot = free < 0 ? dayEnd : Math.min(dayStart + free, dayEnd);
+                    if (slot < dayEnd) {
+                        runStart = slot;
+                    }
+                } else {
+                    int busy = nextSetBit(words, offset);
+                    if (busy < 0 || dayStart + busy >= dayEnd) {
+                        slot = dayEnd;
+                        break;
+                    }
+                    slot = dayStart + busy;
+                    if (slot - runStart >= minSlots) {
+                        out[2 * count] = runStart;
+                        out[2 * count + 1] = slot;
+                        if (++count == max) {
+                            return count;
+                        }
+                    }
+                    runStart = -1;
+                }
+            }
+        }
+        if (runStart >= 0 && limit - runStart >= minSlots) {
+            out[2 * count] = runStart;
+            out[2 * count + 1] = limit;
+            count++;
+        }
+        return count;
+    }
+
+    private void update(long from, long to, boolean busy) {
+        long slot = from;
+        while (slot < to) {
+            long day = Math.floorDiv(slot, (long) slotsPerDay);
+            long dayStart = day * slotsPerDay;
+            int begin = (int) (slot - dayStart);
+            int end = (int) Math.min(slotsPerDay, to - dayStart);
+            long[] words = days.get(day);
+            if (busy) {
+                if (words != full) {
+                    if (words == null) {
+                        words = new long[wordsPerDay];
+                    }
+                    fill(words, begin, end);
+                    days.put(day, isFull(words) ? full : words);
+                }
+            } else if (words != null) {
+                if (words == full) {
+                    words = full.clone();
+                }
+                clear(words, begin, end);
+                if (isEmpty(words)) {
+                    days.remove(day);
+                } else {
+                    days.put(day, words);
+                }
+            }
+            slot = dayStart + slotsPerDay;
+        }
+    }
+
+    private static void fill(long[] words, int from, int to) {
+        for (int i = from; i < to; ) {
+            int word = i >>> 6;
+            int upto = Math.min(to, (word + 1) << 6);
+            words[word] |= mask(i & 63, upto - (word << 6));
+            i = upto;
+        }
+    }
+
+    private static void clear(long[] words, int from, int to) {
+        for (int i = from; i < to; ) {
+            int word = i >>> 6;
+            int upto = Math.min(to, (word + 1) << 6);
+            words[word] &= ~mask(i & 63, upto - (word << 6));
+            i = upto;
+        }
+    }
+
+    // Биты [from, to) одного слова, to - до 64 включительно
+    private static long mask(int from, int to) {
+        long upper = to == 64 ? -1L : (1L << to) - 1;
+        return upper & (-1L << from);
+    }
+
+    private boolean isFull(long[] words) {
+        for (int i = 0; i < wordsPerDay; i++) {
+            if (words[i] != full[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isEmpty(long[] words) {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int nextSetBit(long[] words, int from) {
+        int word = from >>> 6;
+        if (word >= words.length) {
+            return -1;
+        }
+        long bits = words[word] & (-1L << from);
+        while (true) {
+            if (bits != 0) {
+                return (word << 6) + Long.numberOfTrailingZeros(bits);
+            }
+            if (++word == words.length) {
+                return -1;
+            }
+            bits = words[word];
+        }
+    }
+
+    // Свободный бит в пределах дня или -1
+    private int nextClearBit(long[] words, int from) {
+        int word = from >>> 6;
+        long bits = ~words[word] & (-1L << from);
+        while (true) {
+            if (bits != 0) {
+                int bit = (word << 6) + Long.numberOfTrailingZeros(bits);
+                return bit < slotsPerDay ? bit : -1;
+            }
+            if (++word == wordsPerDay) {
+                return -1;
+            }
+            bits = ~words[word];
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package manager;
+
+import tasks.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+// Загрузчик CSV-снимка: файл отображается в память кусками, выровненными по записям,
+// и куски разбираются параллельно, без промежуточных строк файла
+final class ParallelCsvLoader {
+    private static final int MIN_CHUNK = 1 << 20;
+    private static final int MAX_CHUNK = 256 << 20;
+
+    private ParallelCsvLoader() {
+    }
+
+    static List<Task> load(File file) throws IOException {
+        return load(file, ForkJoinPool.commonPool());
+    }
+
+    static List<Task> load(File file, ForkJoinPool pool) throws IOException {
+        return load(file, pool, null);
+    }
+
+    // С descriptions длинные описания не читаются, задачи получают смещения полей в файле
+    static List<Task> load(File file, ForkJoinPool pool, DescriptionStore descriptions) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            List<ChunkParser> chunks = split(channel, pool.getParallelism(), descriptions);
+            List<Task> rows = new ArrayList<>();
+            for (ChunkParser chunk : pool.invoke(new ChunkBatch(chunks))) {
+                rows.addAll(chunk.getRawResult());
+            }
+            return rows;
+        }
+    }
+
+    // Поле в кавычках может содержать '\n', поэтому границы кусков ищутся одним проходом
+    // с учётом кавычек; куски режутся только по концу записи
+    private static List<ChunkParser> split(FileChannel channel, int parallelism, DescriptionStore descriptions)
+            throws IOException {
+        long size = channel.size();
+        long target = Math.min(MAX_CHUNK, Math.max(MIN_CHUNK, size / (parallelism * 4L)));
+        List<ChunkParser> chunks = new ArrayList<>();
+        ByteBuffer block = ByteBuffer.allocate(1 << 16);
+        boolean inQuotes = false;
+        long start = -1; // -1 - заголовок ещё не пропущен
+        long position = 0;
+        while (position < size) {
+            block.clear();
+            int read = channel.read(block, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = block.get(i);
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n' && !inQuotes) {
+                    long next = position + i + 1;
+                    if (start < 0) {
+                        start = next;
+                    } else if (next - start >= target) {
+                        chunks.add(new ChunkParser(channel.map(FileChannel.MapMode.READ_ONLY, start, next - start),
+                                start, descriptions));
+                        start = next;
+                    }
+                }
+            }
+            position += read;
+        }
+        if (start >= 0 && start < size) {
+            chunks.add(new ChunkParser(channel.map(FileChannel.MapMode.READ_ONLY, start, size - start),
+                    start, descriptions));
+        }
+        return chunks;
+    }
+
+    // Задачи ForkJoin сериализуемы лишь формально: они не покидают процесс
+    @SuppressWarnings("serial")
+    private static final class ChunkBatch extends RecursiveTask<List<ChunkParser>> {
+        private final List<ChunkParser> chunks;
+
+        ChunkBatch(List<ChunkParser> chunks) {
+            this.chunks = chunks;
+        }
+
+        @Override
+        protected List<ChunkParser> compute() {
+            ForkJoinTask.invokeAll(chunks);
+            return chunks;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static final class ChunkParser extends RecursiveTask<List<Task>> {
+        private final MappedByteBuffer buffer;
+        private final long base;
+        private final DescriptionStore descriptions;
+        private final CsvTaskCodec codec = new CsvTaskCodec();
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private CharBuffer line = CharBuffer.allocate(256);
+
+        ChunkParser(MappedByteBuffer buffer, long base, DescriptionStore descriptions) {
+            this.buffer = buffer;
+            this.base = base;
+            this.descriptions = descriptions;
+        }
+
+        // Один проход по куску: байты сразу копируются в буфер символов, на конце записи
+        // буфер разбирается кодеком. Если в записи встретился не-ASCII, она декодируется заново
+        @Override
+        protected List<Task> compute() {
+            List<Task> rows = new ArrayList<>();
+            int limit = buffer.limit();
+            char[] chars = line.array();
+            int recordStart = 0;
+            int length = 0;
+            boolean inQuotes = false;
+            boolean ascii = true;
+            for (int i = 0; i <= limit; i++) {
+                byte b = i < limit ? buffer.get(i) : (byte) '\n';
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n' && !inQuotes) {
+                    if (length > 0 && chars[length - 1] == '\r') {
+                        length--;
+                    }
+                    if (length > 0) {
+                        CharBuffer record = ascii ? line.clear().limit(length) : decodeUtf8(recordStart, recordStart + length);
+                        rows.add(parse(record, recordStart, ascii));
+                    }
+                    recordStart = i + 1;
+                    length = 0;
+                    ascii = true;
+                    continue;
+                }
+                if (length == chars.length) {
+                    line = CharBuffer.wrap(Arrays.copyOf(chars, chars.length * 2));
+                    chars = line.array();
+                }
+                chars[length++] = (char) b;
+                ascii &= b >= 0;
+            }
+            return rows;
+        }
+
+        private Task parse(CharBuffer record, int recordStart, boolean ascii) {
+            Task task = codec.parse(record, descriptions != null);
+            int start = codec.descriptionStart();
+            if (start >= 0) {
+                // В ASCII-строке символ равен байту, иначе смещение считается по длине UTF-8
+                long offset = base + recordStart + (ascii ? start : utf8Length(record, start));
+                task.setDescription(descriptions, offset);
+            }
+            return task;
+        }
+
+        private static int utf8Length(CharSequence text, int end) {
+            int bytes = 0;
+            for (int i = 0; i < end; i++) {
+                char c = text.charAt(i);
+                if (c < 0x80) {
+                    bytes++;
+                } else if (c < 0x800) {
+                    bytes += 2;
+                } else if (Character.isHighSurrogate(c) && i + 1 < end) {
+                    bytes += 4;
+                    i++;
+                } else {
+                    bytes += 3;
+                }
+            }
+            return bytes;
+        }
+
+        private CharBuffer decodeUtf8(int from, int to) {
+            ByteBuffer bytes = buffer.slice(from, to - from);
+            decoder.reset();
+            line.clear();
+            // UTF-8 не даёт больше символов, чем байтов, а буфер вмещает все байты записи
+            decoder.decode(bytes, line, true);
+            decoder.flush(line);
+            return line.flip();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package manager;
+
+import tasks.Task;
+import tasks.TaskType;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Лента задач, разбитая по исполнителям. У каждого исполнителя свой календарь, и пересечения
+// ищутся только в нём: на доске из сотен людей проверка идёт по ленте одного человека.
+// Задачи без исполнителя образуют отдельный календарь с ключом UNASSIGNED.
+// Общая лента board хранит все задачи в одном порядке для getPrioritizedTasks, запросов
+// по времени и поиска времени, свободного у всей доски.
+// В параллельном режиме у каждого календаря есть замок: проверку пересечения и вставку
+// менеджер делает под замком календаря задачи, а разные исполнители пишут одновременно.
+// Календарь без исполнителя общий для всей доски, поэтому его замок поделен по часам.
+final class PartitionedTimeline {
+    // ConcurrentHashMap не хранит null, поэтому у календаря без исполнителя свой ключ
+    private static final Object UNASSIGNED = new Object();
+    // Замки календаря без исполнителя: час времени -> замок по модулю. Пересекающиеся интервалы
+    // делят хотя бы один час и пишут по очереди, задачи в разное время - одновременно
+    private static final int TIME_STRIPES = 64;
+    private static final long BUCKET_SECONDS = 3600;
+
+    private final boolean concurrent;
+    private final TimelineIndex board;
+    private final Map<Object, TimelineIndex> calendars;
+    // id -> ключ исполнителя на момент добавления: задачу могут переназначить, изменив объект на месте
+    private final Map<Integer, Object> assignees;
+    private final Map<Object, ReentrantLock> locks = new ConcurrentHashMap<>();
+    private final ReentrantLock[] unassignedLocks = new ReentrantLock[TIME_STRIPES];
+    // Длина слота карты занятости у всех лент или null
+    private Duration granularity;
+
+    PartitionedTimeline() {
+        this(false);
+    }
+
+    PartitionedTimeline(boolean concurrent) {
+        this.concurrent = concurrent;
+        this.board = new TimelineIndex(true, concurrent);
+        this.calendars = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+        this.assignees = concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
+        for (int i = 0; i < TIME_STRIPES; i++) {
+            unassignedLocks[i] = new ReentrantLock();
+        }
+    }
+
+    private static Object keyOf(String assignee) {
+        return assignee != null ? assignee : UNASSIGNED;
+    }
+
+    void setOccupancy(Duration granularity) {
+        if (concurrent && granularity != null) {
+            throw new UnsupportedOperationException("Occupancy index is not available for a concurrent timeline");
+        }
+        board.setOccupancy(granularity);
+        for (TimelineIndex calendar : calendars.values()) {
+            calendar.setOccupancy(granularity);
+        }
+        this.granularity = granularity;
+    }
+
+    private TimelineIndex newCalendar() {
+        TimelineIndex calendar = new TimelineIndex(false, concurrent);
+        if (granularity != null) {
+            calendar.setOccupancy(granularity);
+        }
+        return calendar;
+    }
+
+    void add(Task task) {
+        add(task, true);
+    }
+
+    // Без проверки пересечения - время найдено в свободных промежутках календаря исполнителя
+    void addFree(Task task) {
+        add(task, false);
+    }
+
+    private void add(Task task, boolean check) {
+        remove(task.getId());
+        Object key = keyOf(task.getAssignee());
+        TimelineIndex calendar = calendars.computeIfAbsent(key, assignee -> newCalendar());
+        if (check) {
+            calendar.add(task);
+        } else {
+            calendar.addFree(task);
+        }
+        board.addFree(task);
+        assignees.put(task.getId(), key);
+    }
+
+    void remove(int id) {
+        Object key = assignees.remove(id);
+        if (key == null) {
+            return;
+        }
+        TimelineIndex calendar = calendars.get(key);
+        calendar.remove(id);
+        // Параллельно в пустой календарь может уже добавлять другой поток под его замком
+        if (calendar.size() == 0 && !concurrent) {
+            calendars.remove(key);
+        }
+        board.remove(id);
+    }
+
+    // Замки, под которыми задача встаёт в календарь с проверкой пересечения. Задаче без времени
+    // проверять нечего, а удаление прежней версии из параллельного календаря замка не требует:
+    // оно может только убрать пересечение. Поэтому замки берутся лишь в календаре нового исполнителя
+    List<ReentrantLock> locksFor(Task task) {
+        LocalDateTime start = task.getStartTime();
+        if (start == null) {
+            return List.of();
+        }
+        if (task.getAssignee() != null) {
+            return List.of(lockOf(task.getAssignee()));
+        }
+        if (task.getType() == TaskType.RECURRING) {
+            return List.of(unassignedLocks);
+        }
+        LocalDateTime end = task.getEndTime();
+        long first = bucketOf(start);
+        // Полуинтервал [start, end): час, в котором он кончается, занят, только если end не на его начале
+        long last = end != null && end.isAfter(start) ? bucketOf(end.minusNanos(1)) : first;
+        if (last - first + 1 >= TIME_STRIPES) {
+            return List.of(unassignedLocks);
+        }
+        // Полосы по возрастанию номера - порядок один для всех потоков
+        boolean[] taken = new boolean[TIME_STRIPES];
+        for (long bucket = first; bucket <= last; bucket++) {
+            taken[(int) Math.floorMod(bucket, (long) TIME_STRIPES)] = true;
+        }
+        List<ReentrantLock> result = new ArrayList<>();
+        for (int i = 0; i < TIME_STRIPES; i++) {
+            if (taken[i]) {
+                result.add(unassignedLocks[i]);
+            }
+        }
+        return result;
+    }
+
+    private static long bucketOf(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), BUCKET_SECONDS);
+    }
+
+    private ReentrantLock lockOf(Object key) {
+        return locks.computeIfAbsent(key, k -> new ReentrantLock());
+    }
+
+    void clear() {
+        board.clear();
+        calendars.clear();
+        assignees.clear();
+    }
+
+    // Пересечение только с задачами того же исполнителя, кроме прежней версии самой задачи
+    boolean overlaps(Task task) {
+        TimelineIndex calendar = calendars.get(keyOf(task.getAssignee()));
+        return calendar != null && calendar.overlaps(task);
+    }
+
+    boolean overlaps(String assignee, LocalDateTime start, LocalDateTime end, int excludeId) {
+        TimelineIndex calendar = calendars.get(keyOf(assignee));
+        return calendar != null && calendar.overlaps(start, end, excludeId);
+    }
+
+    boolean overlaps(String assignee, RecurringSeries series) {
+        TimelineIndex calendar = calendars.get(keyOf(assignee));
+        return calendar != null && calendar.overlaps(series);
+    }
+
+    TimelineIndex board() {
+        return board;
+    }
+
+    // Календарь исполнителя; у исполнителя без задач - пустая лента
+    TimelineIndex calendar(String assignee) {
+        TimelineIndex calendar = calendars.get(keyOf(assignee));
+        return calendar != null ? calendar : new TimelineIndex();
+    }
+
+    // Исполнители (кроме задач без исполнителя), у которых в [from, to) нет ни одной задачи:
+    // по O(log n) на календарь
+    List<String> freeAssignees(LocalDateTime from, LocalDateTime to) {
+        List<String> free = new ArrayList<>();
+        for (Map.Entry<Object, TimelineIndex> entry : calendars.entrySet()) {
+            // Опустевший календарь параллельной ленты не удаляется, но исполнителя без задач здесь нет
+            TimelineIndex calendar = entry.getValue();
+            if (entry.getKey() != UNASSIGNED && calendar.size() > 0 && !calendar.overlaps(from, to, Integer.MIN_VALUE)) {
+                free.add((String) entry.getKey());
+            }
+        }
+        Collections.sort(free);
+        return free;
+    }
+}
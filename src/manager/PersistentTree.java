@@ -0,0 +1,300 @@
+package manager;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+// Неизменяемое AVL-дерево с копированием пути: put и remove возвращают новое дерево за O(log n),
+// разделяя с прежним все нетронутые узлы. Узлы помнят размер поддерева, поэтому ключи и значения
+// открываются списками-видами без копирования, а элемент по номеру находится за O(log n)
+final class PersistentTree<K, V> {
+    private final Comparator<? super K> order;
+    private final Node<K, V> root;
+
+    private static final class Node<K, V> implements Map.Entry<K, V> {
+        final K key;
+        final V value;
+        final Node<K, V> left;
+        final Node<K, V> right;
+        final int height;
+        final int size;
+
+        Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            throw new UnsupportedOperationException("Persistent tree is immutable");
+        }
+    }
+
+    private PersistentTree(Comparator<? super K> order, Node<K, V> root) {
+        this.order = order;
+        this.root = root;
+    }
+
+    static <K extends Comparable<? super K>, V> PersistentTree<K, V> empty() {
+        return new PersistentTree<>(Comparator.naturalOrder(), null);
+    }
+
+    static <K, V> PersistentTree<K, V> empty(Comparator<? super K> order) {
+        return new PersistentTree<>(order, null);
+    }
+
+    // Из ключей по возрастанию без повторов за O(n): дерево строится сразу сбалансированным
+    static <K, V> PersistentTree<K, V> ofSorted(Comparator<? super K> order, List<K> keys, List<V> values) {
+        return new PersistentTree<>(order, build(keys, values, 0, keys.size()));
+    }
+
+    private static <K, V> Node<K, V> build(List<K> keys, List<V> values, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int middle = (from + to) >>> 1;
+        return new Node<>(keys.get(middle), values.get(middle), build(keys, values, from, middle),
+                build(keys, values, middle + 1, to));
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    boolean isEmpty() {
+        return root == null;
+    }
+
+    V get(K key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            int byKey = order.compare(key, node.key);
+            if (byKey == 0) {
+                return node.value;
+            }
+            node = byKey < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    PersistentTree<K, V> put(K key, V value) {
+        Node<K, V> updated = put(root, key, value);
+        return updated == root ? this : new PersistentTree<>(order, updated);
+    }
+
+    PersistentTree<K, V> remove(K key) {
+        Node<K, V> updated = remove(root, key);
+        return updated == root ? this : new PersistentTree<>(order, updated);
+    }
+
+    // Число ключей меньше key - номер первого ключа не меньше key
+    int rankOf(K key) {
+        int rank = 0;
+        Node<K, V> node = root;
+        while (node != null) {
+            if (order.compare(key, node.key) <= 0) {
+                node = node.left;
+            } else {
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    // Пары по возрастанию ключа, начиная с номера index
+    Iterator<Map.Entry<K, V>> entriesFrom(int index) {
+        Deque<Node<K, V>> stack = new ArrayDeque<>();
+        Node<K, V> node = root;
+        int rest = index;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (rest <= leftSize) {
+                stack.push(node);
+                if (rest == leftSize) {
+                    break;
+                }
+                node = node.left;
+            } else {
+                rest -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !stack.isEmpty();
+            }
+
+            @Override
+            public Map.Entry<K, V> next() {
+                if (stack.isEmpty()) {
+                    throw new NoSuchElementException();
+                }
+                Node<K, V> next = stack.pop();
+                for (Node<K, V> left = next.right; left != null; left = left.left) {
+                    stack.push(left);
+                }
+                return next;
+            }
+        };
+    }
+
+    List<K> keys() {
+        return new View<>(Map.Entry::getKey);
+    }
+
+    List<V> values() {
+        return new View<>(Map.Entry::getValue);
+    }
+
+    private Node<K, V> nodeAt(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of " + size());
+        }
+        Node<K, V> node = root;
+        int rest = index;
+        while (true) {
+            int leftSize = size(node.left);
+            if (rest == leftSize) {
+                return node;
+            } else if (rest < leftSize) {
+                node = node.left;
+            } else {
+                rest -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    // Неизменяемый вид: get(i) - O(log n), обход - O(1) на элемент
+    private final class View<T> extends AbstractList<T> {
+        private final Function<Map.Entry<K, V>, T> part;
+
+        View(Function<Map.Entry<K, V>, T> part) {
+            this.part = part;
+        }
+
+        @Override
+        public T get(int index) {
+            return part.apply(nodeAt(index));
+        }
+
+        @Override
+        public int size() {
+            return PersistentTree.this.size();
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            Iterator<Map.Entry<K, V>> entries = entriesFrom(0);
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public T next() {
+                    return part.apply(entries.next());
+                }
+            };
+        }
+    }
+
+    private Node<K, V> put(Node<K, V> node, K key, V value) {
+        if (node == null) {
+            return new Node<>(key, value, null, null);
+        }
+        int byKey = order.compare(key, node.key);
+        if (byKey < 0) {
+            return balance(node.key, node.value, put(node.left, key, value), node.right);
+        } else if (byKey > 0) {
+            return balance(node.key, node.value, node.left, put(node.right, key, value));
+        }
+        return node.value == value ? node : new Node<>(key, value, node.left, node.right);
+    }
+
+    private Node<K, V> remove(Node<K, V> node, K key) {
+        if (node == null) {
+            return null;
+        }
+        int byKey = order.compare(key, node.key);
+        if (byKey < 0) {
+            Node<K, V> left = remove(node.left, key);
+            return left == node.left ? node : balance(node.key, node.value, left, node.right);
+        } else if (byKey > 0) {
+            Node<K, V> right = remove(node.right, key);
+            return right == node.right ? node : balance(node.key, node.value, node.left, right);
+        }
+        if (node.left == null) {
+            return node.right;
+        } else if (node.right == null) {
+            return node.left;
+        }
+        Node<K, V> successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.key, successor.value, node.left, removeFirst(node.right));
+    }
+
+    private Node<K, V> removeFirst(Node<K, V> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.key, node.value, removeFirst(node.left), node.right);
+    }
+
+    // Узел с поддеревьями, высоты которых отличаются не больше чем на 2, после поворотов отличаются на 1
+    private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+        if (height(left) > height(right) + 1) {
+            if (height(left.left) < height(left.right)) {
+                left = rotateLeft(left.key, left.value, left.left, left.right);
+            }
+            return rotateRight(key, value, left, right);
+        } else if (height(right) > height(left) + 1) {
+            if (height(right.right) < height(right.left)) {
+                right = rotateRight(right.key, right.value, right.left, right.right);
+            }
+            return rotateLeft(key, value, left, right);
+        }
+        return new Node<>(key, value, left, right);
+    }
+
+    private static <K, V> Node<K, V> rotateRight(K key, V value, Node<K, V> left, Node<K, V> right) {
+        return new Node<>(left.key, left.value, left.left, new Node<>(key, value, left.right, right));
+    }
+
+    private static <K, V> Node<K, V> rotateLeft(K key, V value, Node<K, V> left, Node<K, V> right) {
+        return new Node<>(right.key, right.value, new Node<>(key, value, left, right.left), right.right);
+    }
+
+    private static int height(Node<?, ?> node) {
+        return node != null ? node.height : 0;
+    }
+
+    private static int size(Node<?, ?> node) {
+        return node != null ? node.size : 0;
+    }
+}
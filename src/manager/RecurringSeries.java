@@ -0,0 +1,145 @@
+package manager;
+
+import tasks.RecurrenceRule;
+import tasks.RecurringTask;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Вхождения повторяющейся задачи для ленты: k-е начинается в first + k * period.
+// Начало, длительность и правило запоминаются при добавлении в ленту, как у обычных интервалов.
+// Номер нужного вхождения считается делением, поэтому проверка одного интервала - O(1)
+final class RecurringSeries {
+    final RecurringTask task;
+    final int id;
+    final LocalDateTime first;
+    final Duration duration;
+    final long period;
+    // Номер последнего вхождения, Long.MAX_VALUE - бесконечная серия
+    final long last;
+
+    RecurringSeries(RecurringTask task) {
+        RecurrenceRule rule = task.getRecurrence();
+        this.task = task;
+        this.id = task.getId();
+        this.first = task.getStartTime();
+        this.duration = task.getDuration() != null ? task.getDuration() : Duration.ZERO;
+        this.period = rule.getPeriod().getSeconds();
+        if (duration.compareTo(rule.getPeriod()) > 0) {
+            throw new IllegalArgumentException("Recurring task is longer than its period: " + task.getId());
+        }
+        long lastIndex = Long.MAX_VALUE;
+        if (rule.getCount() > 0) {
+            lastIndex = rule.getCount() - 1L;
+        }
+        if (rule.getUntil() != null) {
+            long untilIndex = rule.getUntil().isBefore(first) ? -1
+                    : Duration.between(first, rule.getUntil()).getSeconds() / period;
+            lastIndex = Math.min(lastIndex, untilIndex);
+        }
+        this.last = lastIndex;
+    }
+
+    boolean isBounded() {
+        return last != Long.MAX_VALUE;
+    }
+
+    boolean isEmpty() {
+        return last < 0;
+    }
+
+    LocalDateTime start(long index) {
+        return first.plusSeconds(index * period);
+    }
+
+    LocalDateTime end(long index) {
+        return start(index).plus(duration);
+    }
+
+    // Первое вхождение, которое заканчивается позже time (может быть больше last)
+    long indexEndingAfter(LocalDateTime time) {
+        long index = Math.max(0, Math.floorDiv(secondsFromFirst(time) - duration.getSeconds(), period));
+        while (!end(index).isAfter(time)) {
+            index++;
+        }
+        while (index > 0 && end(index - 1).isAfter(time)) {
+            index--;
+        }
+        return index;
+    }
+
+    // Первое вхождение, которое начинается не раньше time
+    long indexStartingAt(LocalDateTime time) {
+        long index = Math.max(0, Math.floorDiv(secondsFromFirst(time), period));
+        while (start(index).isBefore(time)) {
+            index++;
+        }
+        while (index > 0 && !start(index - 1).isBefore(time)) {
+            index--;
+        }
+        return index;
+    }
+
+    // Та же граница, что у интервалов ленты: вхождение [o, o + d) пересекает [start, end),
+    // если o < end и o + d > start
+    boolean intersects(LocalDateTime start, LocalDateTime end) {
+        long index = indexEndingAfter(start);
+        return index <= last && start(index).isBefore(end);
+    }
+
+    // Пересекаются ли вхождения двух серий
+    boolean intersects(RecurringSeries other) {
+        if (isEmpty() || other.isEmpty()) {
+            return false;
+        }
+        if (!isBounded() && !other.isBounded()) {
+            return periodicIntersection(other);
+        }
+        RecurringSeries bounded = !isBounded() || (other.isBounded() && other.last < last) ? other : this;
+        RecurringSeries rest = bounded == this ? other : this;
+        // Вхождения ограниченной серии, начинающиеся раньше первого вхождения другой, пропускаются
+        long index = bounded.indexEndingAfter(rest.first);
+        for (; index <= bounded.last; index++) {
+            LocalDateTime start = bounded.start(index);
+            if (rest.isBounded() && start.isAfter(rest.end(rest.last))) {
+                return false;
+            }
+            if (rest.intersects(start, start.plus(bounded.duration))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Обе серии бесконечны: разность начал вхождений пробегает все значения
+    // (first - other.first) + m * gcd(period, other.period), ищется значение в (-duration, other.duration).
+    // Граница та же, что у интервалов ленты, и для нулевой длины: точка пересекает вхождение другой
+    // серии, только если лежит строго позже его начала и раньше конца
+    private boolean periodicIntersection(RecurringSeries other) {
+        long gcd = gcd(period, other.period);
+        Duration offset = Duration.between(other.first, first);
+        Duration lower = duration.negated();
+        long steps = Math.floorDiv(lower.minus(offset).getSeconds(), gcd) + 1;
+        Duration value = offset.plusSeconds(steps * gcd);
+        while (value.minusSeconds(gcd).compareTo(lower) > 0) {
+            value = value.minusSeconds(gcd);
+        }
+        while (value.compareTo(lower) <= 0) {
+            value = value.plusSeconds(gcd);
+        }
+        return value.compareTo(other.duration) < 0;
+    }
+
+    private long secondsFromFirst(LocalDateTime time) {
+        return Duration.between(first, time).getSeconds();
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long rest = a % b;
+            a = b;
+            b = rest;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,69 @@
+package manager;
+
+import tasks.Task;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+
+// Параметры автопланирования: горизонт [from, horizon), какие задачи раскладывать
+// (null - все задачи и подзадачи без времени начала; id эпика означает его подзадачи),
+// порядок приоритета, группировка подзадач по эпикам и маска рабочего времени
+public class ScheduleOptions {
+    private final LocalDateTime from;
+    private final LocalDateTime horizon;
+    private Collection<Integer> taskIds;
+    private Comparator<Task> priority = Comparator.comparingInt(Task::getId);
+    private boolean groupByEpic;
+    private WorkingHours workingHours = WorkingHours.ALWAYS;
+
+    public ScheduleOptions(LocalDateTime from, LocalDateTime horizon) {
+        if (!from.isBefore(horizon)) {
+            throw new IllegalArgumentException("Planning horizon must end after it starts: " + from + " - " + horizon);
+        }
+        this.from = from;
+        this.horizon = horizon;
+    }
+
+    public LocalDateTime getFrom() {
+        return from;
+    }
+
+    public LocalDateTime getHorizon() {
+        return horizon;
+    }
+
+    public Collection<Integer> getTaskIds() {
+        return taskIds;
+    }
+
+    public void setTaskIds(Collection<Integer> taskIds) {
+        this.taskIds = taskIds;
+    }
+
+    public Comparator<Task> getPriority() {
+        return priority;
+    }
+
+    // Раньше раскладываются задачи, меньшие по компаратору; по умолчанию - в порядке id
+    public void setPriority(Comparator<Task> priority) {
+        this.priority = priority;
+    }
+
+    public boolean isGroupByEpic() {
+        return groupByEpic;
+    }
+
+    // Подзадачи одного эпика идут подряд, на месте самой приоритетной из них
+    public void setGroupByEpic(boolean groupByEpic) {
+        this.groupByEpic = groupByEpic;
+    }
+
+    public WorkingHours getWorkingHours() {
+        return workingHours;
+    }
+
+    public void setWorkingHours(WorkingHours workingHours) {
+        this.workingHours = workingHours != null ? workingHours : WorkingHours.ALWAYS;
+    }
+}
@@ -0,0 +1,221 @@
+package manager;
+
+import tasks.Task;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Снимок по сегментам: отдельные задачи лежат страницами по TASKS_PER_SEGMENT id,
+// каждый эпик - в своём файле вместе с подзадачами. Файл снимка становится манифестом
+// ("segments,<поколение>,<формат>", затем строки "<ключ>,<файл>"),
+// сами сегменты лежат в каталоге <снимок>.segments.
+// Изменённые сегменты пишутся новыми файлами, затем атомарно подменяется манифест,
+// и только после этого удаляются заменённые файлы.
+final class SegmentedSnapshot {
+    static final int TASKS_PER_SEGMENT = 1024;
+    private static final String HEADER = "segments";
+
+    private final File manifest;
+    private final File directory;
+    // Ключ сегмента -> имя файла текущего поколения
+    private final Map<String, String> segments = new TreeMap<>();
+    private long generation;
+    private SnapshotFormat format = SnapshotFormat.CSV;
+    private long bytesWritten;
+
+    private SegmentedSnapshot(File manifest) {
+        this.manifest = manifest;
+        this.directory = new File(manifest.getPath() + ".segments");
+    }
+
+    // Новый снимок; остатки прежнего каталога сегментов удаляются
+    static SegmentedSnapshot create(File manifest) {
+        SegmentedSnapshot snapshot = new SegmentedSnapshot(manifest);
+        snapshot.deleteSegments();
+        return snapshot;
+    }
+
+    // Файлы, не попавшие в манифест (сбой до его подмены), удаляются
+    static SegmentedSnapshot open(File manifest) throws IOException {
+        SegmentedSnapshot snapshot = new SegmentedSnapshot(manifest);
+        snapshot.readManifest();
+        File[] files = snapshot.directory.listFiles();
+        if (files != null) {
+            Set<String> live = new HashSet<>(snapshot.segments.values());
+            for (File file : files) {
+                if (!live.contains(file.getName())) {
+                    file.delete();
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    static boolean isManifest(File file) throws IOException {
+        byte[] header = (HEADER + ",").getBytes(StandardCharsets.US_ASCII);
+        if (file.length() < header.length) {
+            return false;
+        }
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            return Arrays.equals(in.readNBytes(header.length), header);
+        }
+    }
+
+    static List<Task> readAll(File manifest) throws IOException {
+        SegmentedSnapshot snapshot = new SegmentedSnapshot(manifest);
+        snapshot.readManifest();
+        return snapshot.read();
+    }
+
+    static String taskSegment(int id) {
+        return "tasks-" + id / TASKS_PER_SEGMENT;
+    }
+
+    static String epicSegment(int epicId) {
+        return "epic-" + epicId;
+    }
+
+    static boolean isTaskSegment(String key) {
+        return key.startsWith("tasks-");
+    }
+
+    static int epicOf(String key) {
+        return Integer.parseInt(key.substring("epic-".length()));
+    }
+
+    synchronized Set<String> keys() {
+        return new HashSet<>(segments.keySet());
+    }
+
+    synchronized SnapshotFormat getFormat() {
+        return format;
+    }
+
+    synchronized long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    synchronized List<Task> read() throws IOException {
+        List<Task> rows = new ArrayList<>();
+        for (String name : segments.values()) {
+            rows.addAll(FileBackedTaskManager.readRows(new File(directory, name)));
+        }
+        return rows;
+    }
+
+    // changed: ключ сегмента -> его строки; пустой список убирает сегмент из снимка
+    synchronized void write(Map<String, List<Task>> changed, SnapshotFormat format, boolean durable)
+            throws IOException {
+        if (changed.isEmpty()) {
+            return;
+        }
+        Files.createDirectories(directory.toPath());
+        long next = generation + 1;
+        String extension = format == SnapshotFormat.BINARY ? ".bin" : ".csv";
+        Map<String, String> updated = new TreeMap<>(segments);
+        List<File> written = new ArrayList<>();
+        try {
+            for (Map.Entry<String, List<Task>> entry : changed.entrySet()) {
+                if (entry.getValue().isEmpty()) {
+                    updated.remove(entry.getKey());
+                    continue;
+                }
+                File segment = new File(directory, entry.getKey() + "." + next + extension);
+                written.add(segment);
+                FileBackedTaskManager.writeRows(segment, entry.getValue(), format);
+                if (durable) {
+                    force(segment);
+                }
+                bytesWritten += segment.length();
+                updated.put(entry.getKey(), segment.getName());
+            }
+            writeManifest(updated, next, format, durable);
+        } catch (IOException | RuntimeException e) {
+            written.forEach(File::delete);
+            throw e;
+        }
+        Set<String> live = new HashSet<>(updated.values());
+        for (String name : segments.values()) {
+            if (!live.contains(name)) {
+                new File(directory, name).delete();
+            }
+        }
+        segments.clear();
+        segments.putAll(updated);
+        generation = next;
+        this.format = format;
+    }
+
+    // Удаляет каталог сегментов, когда снимок снова пишется одним файлом
+    synchronized void deleteSegments() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+        segments.clear();
+    }
+
+    private void writeManifest(Map<String, String> entries, long generation, SnapshotFormat format, boolean durable)
+            throws IOException {
+        File tmp = new File(manifest.getPath() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+            writer.write(HEADER + "," + generation + "," + format + "\n");
+            for (Map.Entry<String, String> entry : entries.entrySet()) {
+                writer.write(entry.getKey() + "," + entry.getValue() + "\n");
+            }
+        }
+        bytesWritten += tmp.length();
+        if (durable) {
+            force(tmp);
+        }
+        try {
+            Files.move(tmp.toPath(), manifest.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+    }
+
+    private void readManifest() throws IOException {
+        List<String> lines = Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8);
+        if (lines.isEmpty() || !lines.get(0).startsWith(HEADER + ",")) {
+            throw new IOException("Not a segment manifest: " + manifest);
+        }
+        String[] header = lines.get(0).split(",");
+        generation = Long.parseLong(header[1]);
+        format = SnapshotFormat.valueOf(header[2]);
+        for (String line : lines.subList(1, lines.size())) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            int comma = line.indexOf(',');
+            if (comma < 0) {
+                throw new IOException("Malformed manifest entry: " + line);
+            }
+            segments.put(line.substring(0, comma), line.substring(comma + 1));
+        }
+    }
+
+    private static void force(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+}
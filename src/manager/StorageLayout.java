@@ -0,0 +1,6 @@
+package manager;
+
+public enum StorageLayout {
+    SINGLE_FILE, // весь снимок одним файлом
+    SEGMENTED    // манифест и отдельные файлы для страниц задач и для каждого эпика
+}
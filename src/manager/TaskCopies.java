@@ -0,0 +1,41 @@
+package manager;
+
+import tasks.Epic;
+import tasks.RecurringTask;
+import tasks.Subtask;
+import tasks.Task;
+
+// Копии задач, которые фиксируют состояние на момент снимка: сами задачи могут меняться дальше
+final class TaskCopies {
+    private TaskCopies() {
+    }
+
+    static Task copyOf(Task task) {
+        // Копия не поднимает отложенное описание в память
+        boolean lazy = task.getDescriptionSource() != null;
+        String description = lazy ? null : task.getDescription();
+        Task copy;
+        switch (task.getType()) {
+            case EPIC:
+                copy = new Epic(task.getId(), task.getName(), description, task.getStatus());
+                break;
+            case SUBTASK:
+                copy = new Subtask(((Subtask) task).getEpicId(), task.getId(), task.getName(),
+                        description, task.getStatus());
+                break;
+            case RECURRING:
+                copy = new RecurringTask(task.getId(), task.getName(), description, task.getStatus(), 0,
+                        ((RecurringTask) task).getRecurrence());
+                break;
+            default:
+                copy = new Task(task.getId(), task.getName(), description, task.getStatus());
+        }
+        if (lazy) {
+            copy.setDescription(task.getDescriptionSource(), task.getDescriptionOffset());
+        }
+        copy.setDuration(task.getDuration());
+        copy.setStartTime(task.getStartTime());
+        copy.setAssignee(task.getAssignee());
+        return copy;
+    }
+}
@@ -0,0 +1,33 @@
+package manager;
+
+import tasks.Task;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+// Конвертер файлов задач между CSV и бинарным форматом.
+// Запуск: java manager.TaskFileConverter <исходный файл> <новый файл> <csv|binary>
+public class TaskFileConverter {
+    private TaskFileConverter() {
+    }
+
+    public static void convert(File source, File target, SnapshotFormat format) {
+        try {
+            List<Task> rows = FileBackedTaskManager.readRows(source);
+            FileBackedTaskManager.writeRows(target, rows, format);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new ManagerSaveException("Error converting " + source + " to " + format, e);
+        }
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 3) {
+            System.out.println("Usage: TaskFileConverter <source> <target> <csv|binary>");
+            return;
+        }
+        SnapshotFormat format = SnapshotFormat.valueOf(args[2].toUpperCase());
+        convert(new File(args[0]), new File(args[1]), format);
+        System.out.println("Converted " + args[0] + " -> " + args[1] + " (" + format + ")");
+    }
+}
@@ -0,0 +1,188 @@
+package manager;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Журнал изменений: каждая мутация дописывается в конец файла одной строкой,
+// поэтому стоимость записи не зависит от количества задач.
+class TaskJournal {
+    enum Op {
+        ADD,
+        UPDATE,
+        REMOVE,
+        CLEAR
+    }
+
+    private final File file;
+    private FileChannel channel;
+    private long records;
+    private int generation;
+
+    TaskJournal(File file) {
+        this.file = file;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    synchronized void append(String record) throws IOException {
+        write(StandardCharsets.UTF_8.encode(record + "\n"));
+        records++;
+    }
+
+    // Пачка записей уходит на диск одним вызовом write
+    synchronized void appendAll(List<String> batch) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (String record : batch) {
+            text.append(record).append('\n');
+        }
+        write(StandardCharsets.UTF_8.encode(text.toString()));
+        records += batch.size();
+    }
+
+    synchronized void force() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+        }
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        FileChannel out = channel();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    synchronized List<String> readRecords() throws IOException {
+        List<String> lines = readRecords(file);
+        records = lines.size();
+        return lines;
+    }
+
+    // Отложенные сегменты журнала, ещё не покрытые снимком, в порядке их создания
+    synchronized List<File> rotatedFiles() {
+        List<File> rotated = listRotated();
+        rotated.forEach(f -> generation = Math.max(generation, generationOf(f)));
+        return rotated;
+    }
+
+    private List<File> listRotated() {
+        File dir = file.getAbsoluteFile().getParentFile();
+        String prefix = file.getName() + ".";
+        File[] found = dir.listFiles((d, name) -> name.startsWith(prefix)
+                && name.substring(prefix.length()).chars().allMatch(Character::isDigit)
+                && name.length() > prefix.length());
+        List<File> rotated = new ArrayList<>();
+        if (found != null) {
+            rotated.addAll(List.of(found));
+        }
+        rotated.sort(Comparator.comparingInt(this::generationOf));
+        return rotated;
+    }
+
+    // Текущий журнал переименовывается в следующий сегмент, новые записи идут в пустой файл
+    synchronized int rotate() throws IOException {
+        force();
+        close();
+        generation++;
+        if (file.exists()) {
+            Files.move(file.toPath(), new File(file.getPath() + "." + generation).toPath(),
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+        records = 0;
+        return generation;
+    }
+
+    void deleteRotated(int upToGeneration) {
+        for (File rotated : listRotated()) {
+            if (generationOf(rotated) <= upToGeneration) {
+                rotated.delete();
+            }
+        }
+    }
+
+    synchronized int getGeneration() {
+        return generation;
+    }
+
+    static List<String> readRecords(File file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        if (!file.exists()) {
+            return lines;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath())) {
+            // Перевод строки внутри поля в кавычках не завершает запись
+            StringBuilder record = new StringBuilder();
+            boolean inQuotes = false;
+            int c;
+            while ((c = reader.read()) >= 0) {
+                if (c == '"') {
+                    inQuotes = !inQuotes;
+                }
+                if (c == '\n' && !inQuotes) {
+                    addRecord(lines, record);
+                } else {
+                    record.append((char) c);
+                }
+            }
+            if (!inQuotes) {
+                addRecord(lines, record);
+            }
+        }
+        return lines;
+    }
+
+    private static void addRecord(List<String> lines, StringBuilder record) {
+        int length = record.length();
+        if (length > 0 && record.charAt(length - 1) == '\r') {
+            length--;
+        }
+        if (length > 0) {
+            lines.add(record.substring(0, length));
+        }
+        record.setLength(0);
+    }
+
+    synchronized void truncate() throws IOException {
+        channel().truncate(0);
+        records = 0;
+    }
+
+    synchronized long getRecords() {
+        return records;
+    }
+
+    synchronized long getBytes() throws IOException {
+        return channel != null ? channel.size() : file.length();
+    }
+
+    synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private int generationOf(File rotated) {
+        return Integer.parseInt(rotated.getName().substring(file.getName().length() + 1));
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+}
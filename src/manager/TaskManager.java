@@ -3,8 +3,14 @@ package manager;
 import tasks.Epic;
 import tasks.Subtask;
 import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface TaskManager {
     //Добавление новых задач
@@ -32,6 +38,63 @@ public interface TaskManager {
 
     List<Subtask> getSubtasks();
 
+    List<Task> getPrioritizedTasks();
+
+    //Просмотренные задачи от давних к последним - из истории, в которую пишет этот менеджер
+    List<Task> getHistory();
+
+    //Задачи, пересекающие [from, to), и ближайшие limit задач с начала не раньше after.
+    //type и status - необязательные фильтры, null означает любой
+    List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to);
+
+    List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to, TaskType type, TaskStatus status);
+
+    List<Task> getNextTasks(LocalDateTime after, int limit);
+
+    List<Task> getNextTasks(LocalDateTime after, int limit, TaskType type, TaskStatus status);
+
+    //Автопланирование: задачи без времени начала раскладываются по свободному времени одной пачкой.
+    //Возвращает id -> назначенное начало; не поместившиеся до горизонта остаются без времени
+    Map<Integer, LocalDateTime> autoSchedule(ScheduleOptions options);
+
+    //Сдвиг на delta всех подзадач эпика со временем или всех задач, начинающихся в [from, to)
+    //(повторяющиеся серии не сдвигаются). Пересечение с остальной лентой отклоняет сдвиг целиком.
+    //Возвращает id сдвинутых задач
+    List<Integer> shiftEpic(int epicId, Duration delta);
+
+    List<Integer> shiftRange(LocalDateTime from, LocalDateTime to, Duration delta);
+
+    //Поиск свободного времени всей доски в окне [from, to): раннее начало или null, либо до limit промежутков.
+    //hours == null - без ограничения рабочим временем
+    LocalDateTime findEarliestSlot(Duration duration, LocalDateTime from, LocalDateTime to, WorkingHours hours);
+
+    List<TimeSlot> findFreeSlots(Duration duration, LocalDateTime from, LocalDateTime to, int limit,
+                                 WorkingHours hours);
+
+    //Календари исполнителей: свободное время одного исполнителя (null - задачи без исполнителя)
+    //и исполнители, у которых весь интервал [from, to) свободен
+    List<TimeSlot> findFreeSlots(String assignee, Duration duration, LocalDateTime from, LocalDateTime to,
+                                 int limit, WorkingHours hours);
+
+    List<String> getFreeAssignees(LocalDateTime from, LocalDateTime to);
+
+    //Зависимости "successor начинается после окончания predecessor" между задачами и подзадачами.
+    //Связь, замыкающая цикл, отклоняется. Раннее начало и позднее окончание задачи вне графа -
+    //её собственные начало и конец
+    void addDependency(int predecessorId, int successorId);
+
+    void removeDependency(int predecessorId, int successorId);
+
+    List<Integer> getPredecessors(int id);
+
+    List<Integer> getSuccessors(int id);
+
+    LocalDateTime getEarliestStart(int id);
+
+    LocalDateTime getLatestFinish(int id);
+
+    List<Task> getCriticalPath();
+
     //Удаление задач
     void removeAll();
 
@@ -60,4 +123,14 @@ public interface TaskManager {
 
     // Метод для управления статусами эпиков
     public void updateEpicStatus(int epicId);
+
+    //Пакетные операции: ошибка в одной задаче не прерывает обработку остальных
+    BatchResult addAll(List<? extends Task> items);
+
+    BatchResult updateAll(List<? extends Task> items);
+
+    BatchResult removeAll(Collection<Integer> ids);
+
+    //Согласованное состояние на момент последней записи: неизменяемо и не копирует хранилища
+    TaskSnapshot snapshot();
 }
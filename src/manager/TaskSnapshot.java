@@ -0,0 +1,396 @@
+package manager;
+
+import tasks.Epic;
+import tasks.RecurringTask;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskType;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Согласованное состояние менеджера на момент одной записи. Версии неизменяемы и делят
+// нетронутые части деревьев с предыдущими: запись строит следующую за O(log n) на изменённую
+// задачу и публикует её целиком, читатель получает текущую за O(1) и не видит записи, идущие
+// после. Задачи в снимке - копии (эпик вместе со списком подзадач), менять их бессмысленно.
+// Списки - виды на деревья снимка, без копирования.
+public final class TaskSnapshot {
+    private static final Comparator<TimeKey> ORDER = (a, b) -> {
+        int byStart = a.start.compareTo(b.start);
+        return byStart != 0 ? byStart : Integer.compare(a.id, b.id);
+    };
+
+    private final long version;
+    private final PersistentTree<Integer, Task> tasks;
+    private final PersistentTree<Integer, Epic> epics;
+    private final PersistentTree<Integer, Subtask> subtasks;
+    // Эпик -> id его подзадач (значения не используются)
+    private final PersistentTree<Integer, PersistentTree<Integer, Boolean>> members;
+    // Лента как у getPrioritizedTasks: интервалы по (начало, id), серии, задачи без времени
+    private final PersistentTree<TimeKey, Task> timed;
+    private final PersistentTree<Integer, Task> series;
+    private final PersistentTree<Integer, Task> untimed;
+    // Самый длинный интервал, когда-либо попавший в версию: запас поиска назад
+    private final Duration longest;
+
+    private static final class TimeKey {
+        final LocalDateTime start;
+        final int id;
+
+        TimeKey(LocalDateTime start, int id) {
+            this.start = start;
+            this.id = id;
+        }
+    }
+
+    private TaskSnapshot(long version, Draft draft) {
+        this.version = version;
+        this.tasks = draft.tasks;
+        this.epics = draft.epics;
+        this.subtasks = draft.subtasks;
+        this.members = draft.members;
+        this.timed = draft.timed;
+        this.series = draft.series;
+        this.untimed = draft.untimed;
+        this.longest = draft.longest;
+    }
+
+    // Первая версия по содержимому менеджера
+    static TaskSnapshot of(long version, Collection<Task> tasks, Collection<Epic> epics,
+                           Collection<Subtask> subtasks) {
+        Draft draft = new Draft();
+        Set<Integer> touched = new LinkedHashSet<>();
+        for (Task task : tasks) {
+            draft.put(TaskCopies.copyOf(task), touched);
+        }
+        for (Subtask subtask : subtasks) {
+            draft.put(TaskCopies.copyOf(subtask), touched);
+        }
+        for (Epic epic : epics) {
+            draft.epics = draft.epics.put(epic.getId(), draft.freeze(epic));
+        }
+        return new TaskSnapshot(version, draft);
+    }
+
+    // Следующая версия: задачи changed (живые объекты менеджера) заменяют свои копии, removed
+    // удаляются; эпики, у которых поменялся состав, копируются заново
+    TaskSnapshot apply(Collection<? extends Task> changed, Collection<Integer> removed) {
+        Draft draft = new Draft(this);
+        Set<Integer> touched = new LinkedHashSet<>();
+        Map<Integer, Epic> liveEpics = new HashMap<>();
+        for (int id : removed) {
+            draft.remove(id, touched);
+        }
+        for (Task task : changed) {
+            if (task.getType() == TaskType.EPIC) {
+                liveEpics.put(task.getId(), (Epic) task);
+                touched.add(task.getId());
+            } else {
+                draft.put(TaskCopies.copyOf(task), touched);
+            }
+        }
+        for (int epicId : touched) {
+            Epic source = liveEpics.containsKey(epicId) ? liveEpics.get(epicId) : draft.epics.get(epicId);
+            if (source != null) {
+                draft.epics = draft.epics.put(epicId, draft.freeze(source));
+            }
+        }
+        return new TaskSnapshot(version + 1, draft);
+    }
+
+    // Номер версии: растёт на каждую опубликованную запись
+    public long getVersion() {
+        return version;
+    }
+
+    // Задача любого типа или null
+    public Task getTask(int id) {
+        Task task = tasks.get(id);
+        if (task == null) {
+            task = epics.get(id);
+        }
+        return task != null ? task : subtasks.get(id);
+    }
+
+    public List<Task> getTasks() {
+        return tasks.values();
+    }
+
+    public List<Epic> getEpics() {
+        return epics.values();
+    }
+
+    public List<Subtask> getSubtasks() {
+        return subtasks.values();
+    }
+
+    public List<Task> getAllTasks() {
+        return new Concatenation(List.of(tasks.values(), epics.values(), subtasks.values()));
+    }
+
+    public List<Subtask> getSubtasksOfEpic(int epicId) {
+        PersistentTree<Integer, Boolean> ids = members.get(epicId);
+        if (ids == null) {
+            return List.of();
+        }
+        List<Integer> keys = ids.keys();
+        return new AbstractList<>() {
+            @Override
+            public Subtask get(int index) {
+                return subtasks.get(keys.get(index));
+            }
+
+            @Override
+            public int size() {
+                return keys.size();
+            }
+
+            @Override
+            public Iterator<Subtask> iterator() {
+                Iterator<Integer> each = keys.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return each.hasNext();
+                    }
+
+                    @Override
+                    public Subtask next() {
+                        return subtasks.get(each.next());
+                    }
+                };
+            }
+        };
+    }
+
+    // Задачи со временем, затем повторяющиеся (по записи на серию), затем без времени
+    public List<Task> getPrioritizedTasks() {
+        return new Concatenation(List.of(timed.values(), series.values(), untimed.values()));
+    }
+
+    // Задачи и вхождения серий, пересекающие [from, to), как у менеджера: O(log n + k)
+    public List<Task> getPrioritizedTasks(LocalDateTime from, LocalDateTime to) {
+        List<Map.Entry<TimeKey, Task>> found = new ArrayList<>();
+        if (!from.isBefore(to)) {
+            return new ArrayList<>();
+        }
+        Iterator<Map.Entry<TimeKey, Task>> entries = timed.entriesFrom(
+                timed.rankOf(new TimeKey(from.minus(longest), Integer.MIN_VALUE)));
+        while (entries.hasNext()) {
+            Map.Entry<TimeKey, Task> entry = entries.next();
+            LocalDateTime start = entry.getKey().start;
+            if (!start.isBefore(to)) {
+                break;
+            }
+            if (endOf(entry.getValue()).isAfter(from) || !start.isBefore(from)) {
+                found.add(entry);
+            }
+        }
+        for (Task task : series.values()) {
+            RecurringSeries each = new RecurringSeries((RecurringTask) task);
+            long index = each.duration.isZero() ? each.indexStartingAt(from) : each.indexEndingAfter(from);
+            for (; index <= each.last && each.start(index).isBefore(to); index++) {
+                LocalDateTime start = each.start(index);
+                found.add(Map.entry(new TimeKey(start, each.id), each.task.occurrenceAt(start)));
+            }
+        }
+        if (!series.isEmpty()) {
+            found.sort(Map.Entry.comparingByKey(ORDER));
+        }
+        List<Task> result = new ArrayList<>(found.size());
+        for (Map.Entry<TimeKey, Task> entry : found) {
+            result.add(entry.getValue());
+        }
+        return result;
+    }
+
+    private static LocalDateTime endOf(Task task) {
+        LocalDateTime end = task.getEndTime();
+        return end != null ? end : task.getStartTime();
+    }
+
+    // Изменяемая заготовка следующей версии
+    private static final class Draft {
+        PersistentTree<Integer, Task> tasks = PersistentTree.empty();
+        PersistentTree<Integer, Epic> epics = PersistentTree.empty();
+        PersistentTree<Integer, Subtask> subtasks = PersistentTree.empty();
+        PersistentTree<Integer, PersistentTree<Integer, Boolean>> members = PersistentTree.empty();
+        PersistentTree<TimeKey, Task> timed = PersistentTree.empty(ORDER);
+        PersistentTree<Integer, Task> series = PersistentTree.empty();
+        PersistentTree<Integer, Task> untimed = PersistentTree.empty();
+        Duration longest = Duration.ZERO;
+
+        Draft() {
+        }
+
+        Draft(TaskSnapshot base) {
+            tasks = base.tasks;
+            epics = base.epics;
+            subtasks = base.subtasks;
+            members = base.members;
+            timed = base.timed;
+            series = base.series;
+            untimed = base.untimed;
+            longest = base.longest;
+        }
+
+        // Копия задачи или подзадачи; touched собирает эпики, у которых поменялся состав
+        void put(Task copy, Set<Integer> touched) {
+            int id = copy.getId();
+            Task old = copy.getType() == TaskType.SUBTASK ? subtasks.get(id) : tasks.get(id);
+            if (old != null) {
+                unindex(old);
+            }
+            if (copy.getType() == TaskType.SUBTASK) {
+                int epicId = ((Subtask) copy).getEpicId();
+                if (old != null && ((Subtask) old).getEpicId() != epicId) {
+                    removeMember(((Subtask) old).getEpicId(), id, touched);
+                }
+                subtasks = subtasks.put(id, (Subtask) copy);
+                PersistentTree<Integer, Boolean> ids = members.get(epicId);
+                members = members.put(epicId, (ids != null ? ids : PersistentTree.<Integer, Boolean>empty())
+                        .put(id, Boolean.TRUE));
+                touched.add(epicId);
+            } else {
+                tasks = tasks.put(id, copy);
+            }
+            index(copy);
+        }
+
+        // Эпик уходит вместе с подзадачами, которые ещё числятся за ним
+        void remove(int id, Set<Integer> touched) {
+            Task task = tasks.get(id);
+            if (task != null) {
+                tasks = tasks.remove(id);
+                unindex(task);
+                return;
+            }
+            Subtask subtask = subtasks.get(id);
+            if (subtask != null) {
+                subtasks = subtasks.remove(id);
+                unindex(subtask);
+                removeMember(subtask.getEpicId(), id, touched);
+                return;
+            }
+            if (epics.get(id) != null) {
+                epics = epics.remove(id);
+                PersistentTree<Integer, Boolean> ids = members.get(id);
+                if (ids != null) {
+                    for (int subtaskId : ids.keys()) {
+                        Subtask left = subtasks.get(subtaskId);
+                        if (left != null) {
+                            subtasks = subtasks.remove(subtaskId);
+                            unindex(left);
+                        }
+                    }
+                    members = members.remove(id);
+                }
+            }
+        }
+
+        private void removeMember(int epicId, int id, Set<Integer> touched) {
+            PersistentTree<Integer, Boolean> ids = members.get(epicId);
+            if (ids != null) {
+                members = members.put(epicId, ids.remove(id));
+                touched.add(epicId);
+            }
+        }
+
+        private void index(Task task) {
+            LocalDateTime start = task.getStartTime();
+            if (start == null) {
+                untimed = untimed.put(task.getId(), task);
+            } else if (task.getType() == TaskType.RECURRING) {
+                series = series.put(task.getId(), task);
+            } else {
+                timed = timed.put(new TimeKey(start, task.getId()), task);
+                Duration length = Duration.between(start, endOf(task));
+                if (length.compareTo(longest) > 0) {
+                    longest = length;
+                }
+            }
+        }
+
+        private void unindex(Task task) {
+            LocalDateTime start = task.getStartTime();
+            if (start == null) {
+                untimed = untimed.remove(task.getId());
+            } else if (task.getType() == TaskType.RECURRING) {
+                series = series.remove(task.getId());
+            } else {
+                timed = timed.remove(new TimeKey(start, task.getId()));
+            }
+        }
+
+        // Копия эпика со сводкой и списком подзадач из этой версии
+        Epic freeze(Epic source) {
+            Epic copy = (Epic) TaskCopies.copyOf(source);
+            copy.setEndTime(source.getEndTime());
+            PersistentTree<Integer, Boolean> ids = members.get(source.getId());
+            copy.setSubtaskOfEpicIDs(ids != null ? ids.keys() : List.of());
+            return copy;
+        }
+    }
+
+    // Несколько списков подряд одним видом
+    private static final class Concatenation extends AbstractList<Task> {
+        private final List<? extends List<? extends Task>> parts;
+
+        Concatenation(List<? extends List<? extends Task>> parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public Task get(int index) {
+            int rest = index;
+            for (List<? extends Task> part : parts) {
+                if (rest < part.size()) {
+                    return part.get(rest);
+                }
+                rest -= part.size();
+            }
+            throw new IndexOutOfBoundsException("Index " + index + " out of " + size());
+        }
+
+        @Override
+        public int size() {
+            int size = 0;
+            for (List<? extends Task> part : parts) {
+                size += part.size();
+            }
+            return size;
+        }
+
+        @Override
+        public Iterator<Task> iterator() {
+            Iterator<? extends List<? extends Task>> rest = parts.iterator();
+            return new Iterator<>() {
+                private Iterator<? extends Task> current = List.<Task>of().iterator();
+
+                @Override
+                public boolean hasNext() {
+                    while (!current.hasNext() && rest.hasNext()) {
+                        current = rest.next().iterator();
+                    }
+                    return current.hasNext();
+                }
+
+                @Override
+                public Task next() {
+                    hasNext();
+                    return current.next();
+                }
+            };
+        }
+    }
+}
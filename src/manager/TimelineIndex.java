@@ -0,0 +1,682 @@
+package manager;
+
+import tasks.RecurringTask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Упорядоченная лента задач для getPrioritizedTasks и проверки пересечений.
+// Задачи со временем лежат в TreeSet по (начало, id), без времени - отдельно по id, в конце ленты.
+// Начало и конец запоминаются при добавлении, поэтому изменение объекта задачи на месте
+// не ломает порядок дерева: задача переиндексируется при следующем update.
+// Повторяющиеся задачи хранятся одной серией, их вхождения порождаются на лету
+// только для окна, которого касается запрос.
+// В параллельном режиме коллекции - списки с пропусками и ConcurrentHashMap: чтение идёт без
+// блокировок и не ломается от одновременной записи. Запись в календарь исполнителя снаружи
+// сериализует его замок, в общую ленту пишут параллельно.
+final class TimelineIndex implements Iterable<Task> {
+    private static final Comparator<Slot> ORDER = (a, b) -> {
+        int byStart = a.start.compareTo(b.start);
+        return byStart != 0 ? byStart : Integer.compare(a.id, b.id);
+    };
+
+    private final NavigableSet<Slot> timed;
+    private final Map<Integer, Slot> slots;
+    private final NavigableMap<Integer, Task> untimed;
+    private final NavigableMap<Integer, RecurringSeries> series;
+    // Самый длинный интервал в ленте: дальше него назад пересечения искать не нужно
+    private volatile Duration longest = Duration.ZERO;
+    // Сколько интервалов добавлено поверх уже занятого времени (восстановление без проверок).
+    // Пока их нет, интервалы не пересекаются, и для проверки хватает ближайших соседей.
+    private volatile int conflicts;
+    // Общая лента нескольких календарей: интервалы разных исполнителей могут пересекаться,
+    // поэтому поиск всегда идёт с запасом longest, а пересечения не считаются
+    private final boolean shared;
+    private final boolean concurrent;
+    // Необязательная битовая карта занятости. Она точна, пока все интервалы лежат на границах
+    // слотов и имеют ненулевую длину (inexact == 0) и в ленте нет серий; иначе отвечает дерево
+    private OccupancyBitmap occupancy;
+    private int inexact;
+
+    // Интервал дерева или вхождение серии (тогда task == null, а series и index указывают на него)
+    static final class Slot {
+        final LocalDateTime start;
+        final LocalDateTime end;
+        final int id;
+        final Task task;
+        final RecurringSeries series;
+        final long index;
+
+        Slot(LocalDateTime start, LocalDateTime end, int id, Task task) {
+            this(start, end, id, task, null, 0);
+        }
+
+        private Slot(LocalDateTime start, LocalDateTime end, int id, Task task, RecurringSeries series, long index) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.task = task;
+            this.series = series;
+            this.index = index;
+        }
+
+        static Slot occurrence(RecurringSeries series, long index) {
+            return new Slot(series.start(index), series.end(index), series.id, null, series, index);
+        }
+
+        // Задача, по которой проверяются фильтры: для вхождения - сама серия
+        Task source() {
+            return task != null ? task : series.task;
+        }
+
+        Task task() {
+            return task != null ? task : series.task.occurrenceAt(start);
+        }
+    }
+
+    TimelineIndex() {
+        this(false);
+    }
+
+    TimelineIndex(boolean shared) {
+        this(shared, false);
+    }
+
+    TimelineIndex(boolean shared, boolean concurrent) {
+        this.shared = shared;
+        this.concurrent = concurrent;
+        if (concurrent) {
+            timed = new ConcurrentSkipListSet<>(ORDER);
+            slots = new ConcurrentHashMap<>();
+            untimed = new ConcurrentSkipListMap<>();
+            series = new ConcurrentSkipListMap<>();
+        } else {
+            timed = new TreeSet<>(ORDER);
+            slots = new HashMap<>();
+            untimed = new TreeMap<>();
+            series = new TreeMap<>();
+        }
+    }
+
+    // Включает карту занятости и заполняет её интервалами, уже лежащими в ленте; null - выключает.
+    // Битовая карта меняется словами на месте, поэтому параллельной ленте она недоступна
+    void setOccupancy(Duration granularity) {
+        if (concurrent && granularity != null) {
+            throw new UnsupportedOperationException("Occupancy index is not available for a concurrent timeline");
+        }
+        occupancy = granularity != null ? new OccupancyBitmap(granularity) : null;
+        inexact = 0;
+        if (occupancy != null) {
+            for (Slot slot : timed) {
+                occupy(slot);
+            }
+        }
+    }
+
+    void add(Task task) {
+        add(task, true);
+    }
+
+    // Без проверки пересечения - для задач, чьё время только что найдено в свободных промежутках
+    void addFree(Task task) {
+        add(task, false);
+    }
+
+    private void add(Task task, boolean check) {
+        remove(task.getId());
+        LocalDateTime start = task.getStartTime();
+        if (start == null) {
+            untimed.put(task.getId(), task);
+            return;
+        }
+        if (task.getType() == TaskType.RECURRING) {
+            series.put(task.getId(), new RecurringSeries((RecurringTask) task));
+            return;
+        }
+        LocalDateTime end = endOf(task);
+        if (check && !shared && slotOverlaps(start, end, task.getId())) {
+            conflicts++;
+        }
+        Slot slot = new Slot(start, end, task.getId(), task);
+        timed.add(slot);
+        slots.put(slot.id, slot);
+        if (occupancy != null) {
+            occupy(slot);
+        }
+        Duration length = Duration.between(start, end);
+        if (length.compareTo(longest) > 0) {
+            widen(length);
+        }
+    }
+
+    // В общую параллельную ленту пишут несколько потоков; longest растёт редко, замок берётся только тогда
+    private synchronized void widen(Duration length) {
+        if (length.compareTo(longest) > 0) {
+            longest = length;
+        }
+    }
+
+    void remove(int id) {
+        Slot slot = slots.remove(id);
+        if (slot != null) {
+            timed.remove(slot);
+            if (occupancy != null) {
+                release(slot);
+            }
+        } else if (series.remove(id) == null) {
+            untimed.remove(id);
+        }
+        // Параллельно в пустеющую ленту может добавлять другой поток: longest тогда не сбрасывается,
+        // лишний запас назад только удлиняет поиск
+        if (slots.isEmpty() && !concurrent) {
+            conflicts = 0;
+            longest = Duration.ZERO;
+        }
+    }
+
+    void clear() {
+        timed.clear();
+        slots.clear();
+        untimed.clear();
+        series.clear();
+        conflicts = 0;
+        longest = Duration.ZERO;
+        if (occupancy != null) {
+            occupancy.clear();
+            inexact = 0;
+        }
+    }
+
+    private void occupy(Slot slot) {
+        occupancy.mark(slot.start, slot.end);
+        if (!isExact(slot.start, slot.end)) {
+            inexact++;
+        }
+    }
+
+    // Слоты освобождаются, затем снова занимаются интервалами, которые делили с ними слот:
+    // при пересечениях в ленте или интервалах не по границам слотов такие бывают
+    private void release(Slot slot) {
+        occupancy.unmark(slot.start, slot.end);
+        if (!isExact(slot.start, slot.end)) {
+            inexact--;
+        }
+        if (conflicts > 0 || shared || inexact > 0) {
+            LocalDateTime from = occupancy.startOf(occupancy.slotOf(slot.start));
+            LocalDateTime to = occupancy.startOf(occupancy.slotAtOrAfter(slot.end));
+            for (Slot other : timed.subSet(probe(from.minus(longest)), true, probe(to), true)) {
+                if (other.end.isAfter(from) || other.start.equals(from)) {
+                    occupancy.mark(other.start, other.end);
+                }
+            }
+        }
+    }
+
+    private boolean isExact(LocalDateTime start, LocalDateTime end) {
+        return start.isBefore(end) && occupancy.isAligned(start) && occupancy.isAligned(end);
+    }
+
+    // Карта отвечает за всю ленту сама
+    private boolean occupancyExact() {
+        return occupancy != null && inexact == 0 && series.isEmpty();
+    }
+
+    int size() {
+        return slots.size() + series.size() + untimed.size();
+    }
+
+    // Пересекается ли задача с чем-то в ленте, кроме своей прежней версии
+    boolean overlaps(Task task) {
+        LocalDateTime start = task.getStartTime();
+        if (start == null) {
+            return false;
+        }
+        if (task.getType() == TaskType.RECURRING) {
+            return overlaps(new RecurringSeries((RecurringTask) task));
+        }
+        return overlaps(start, endOf(task), task.getId());
+    }
+
+    // Пересечение полуинтервала [start, end) с любым интервалом ленты или вхождением серии,
+    // кроме задачи excludeId
+    boolean overlaps(LocalDateTime start, LocalDateTime end, int excludeId) {
+        for (RecurringSeries other : series.values()) {
+            if (other.id != excludeId && other.intersects(start, end)) {
+                return true;
+            }
+        }
+        return slotOverlaps(start, end, excludeId);
+    }
+
+    // Вхождения новой серии проверяются с другими сериями арифметически, а с интервалами
+    // дерева - только с теми, что лежат в пределах серии
+    boolean overlaps(RecurringSeries candidate) {
+        if (candidate.isEmpty()) {
+            return false;
+        }
+        for (RecurringSeries other : series.values()) {
+            if (other.id != candidate.id && candidate.intersects(other)) {
+                return true;
+            }
+        }
+        Slot from = probe(candidate.first.minus(longest));
+        NavigableSet<Slot> span = candidate.isBounded()
+                ? timed.subSet(from, true, probe(candidate.end(candidate.last)), false)
+                : timed.tailSet(from, true);
+        for (Slot slot : span) {
+            if (slot.id != candidate.id && candidate.intersects(slot.start, slot.end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean slotOverlaps(LocalDateTime start, LocalDateTime end, int excludeId) {
+        if (timed.isEmpty()) {
+            return false;
+        }
+        if (conflicts == 0 && !shared && occupancyExact() && isExact(start, end)) {
+            return occupiedExcept(start, end, slots.get(excludeId));
+        }
+        if (conflicts > 0 || shared) {
+            return scanWindow(start, end, excludeId);
+        }
+        Slot previous = coveringCandidate(start, excludeId);
+        if (previous != null && previous.end.isAfter(start)) {
+            return true;
+        }
+        for (Slot slot : timed.subSet(probe(start), true, probe(end), false)) {
+            if (slot.id != excludeId && slot.end.isAfter(start)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Занятые слоты [start, end), кроме слотов прежней версии задачи: без пересечений в ленте
+    // каждый слот занят не больше чем одним интервалом
+    private boolean occupiedExcept(LocalDateTime start, LocalDateTime end, Slot own) {
+        long from = occupancy.slotOf(start);
+        long to = occupancy.slotOf(end);
+        if (own == null) {
+            return occupancy.anyBusy(from, to);
+        }
+        long ownFrom = occupancy.slotOf(own.start);
+        long ownTo = occupancy.slotOf(own.end);
+        return occupancy.anyBusy(from, Math.min(to, ownFrom)) || occupancy.anyBusy(Math.max(from, ownTo), to);
+    }
+
+    // Запасной путь, если лента уже содержит пересечения: все интервалы, начавшиеся
+    // не раньше чем за longest до start
+    private boolean scanWindow(LocalDateTime start, LocalDateTime end, int excludeId) {
+        for (Slot slot : timed.subSet(probe(start.minus(longest)), true, probe(end), false)) {
+            if (slot.id != excludeId && slot.end.isAfter(start)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Пересекается ли хоть один из интервалов (по возрастанию начала) с лентой, не считая задач excluded.
+    // Один проход слиянием по двум упорядоченным спискам: интервал пересекается с занятым, если
+    // начинается раньше, чем закончился какой-то из уже пройденных занятых, и наоборот.
+    // При равных началах занятый идёт первым - граница та же, что в overlaps
+    boolean overlapsAny(List<TimeSlot> intervals, Set<Integer> excluded) {
+        if (intervals.isEmpty()) {
+            return false;
+        }
+        LocalDateTime busyEnd = null;
+        LocalDateTime intervalEnd = null;
+        int next = 0;
+        Cursor busy = busyFrom(intervals.get(0).getStart());
+        Slot slot = busy.next();
+        while (next < intervals.size() || (slot != null && intervalEnd != null && slot.start.isBefore(intervalEnd))) {
+            while (slot != null && excluded.contains(slot.id)) {
+                slot = busy.next();
+            }
+            TimeSlot interval = next < intervals.size() ? intervals.get(next) : null;
+            if (slot != null && (interval == null || !slot.start.isAfter(interval.getStart()))) {
+                if (intervalEnd != null && intervalEnd.isAfter(slot.start)) {
+                    return true;
+                }
+                if (busyEnd == null || slot.end.isAfter(busyEnd)) {
+                    busyEnd = slot.end;
+                }
+                slot = busy.next();
+            } else if (interval != null) {
+                if (busyEnd != null && busyEnd.isAfter(interval.getStart())) {
+                    return true;
+                }
+                if (intervalEnd == null || interval.getEnd().isAfter(intervalEnd)) {
+                    intervalEnd = interval.getEnd();
+                }
+                next++;
+            } else {
+                break;
+            }
+        }
+        return false;
+    }
+
+    // Свободные промежутки окна [from, to), в которые помещается duration, не больше limit штук.
+    // Обход идёт от первого интервала, который может накрывать from, до первого найденного
+    // набора: O(log n + просмотренные промежутки)
+    List<TimeSlot> freeSlots(Duration duration, LocalDateTime from, LocalDateTime to, int limit,
+                             WorkingHours hours) {
+        if (occupancyExact()) {
+            return freeSlotsByOccupancy(duration, from, to, limit, hours);
+        }
+        List<TimeSlot> result = new ArrayList<>();
+        LocalDateTime cursor = from;
+        Cursor busy = busyFrom(from);
+        for (Slot slot = busy.next(); slot != null; slot = busy.next()) {
+            if (!slot.start.isBefore(to) || result.size() >= limit) {
+                break;
+            }
+            if (slot.start.isAfter(cursor)) {
+                addGaps(result, cursor, slot.start, duration, limit, hours);
+            }
+            if (slot.end.isAfter(cursor)) {
+                cursor = slot.end;
+            }
+        }
+        if (cursor.isBefore(to)) {
+            addGaps(result, cursor, to, duration, limit, hours);
+        }
+        return result;
+    }
+
+    // Те же промежутки по карте занятости: свободные отрезки ищутся по словам битовой карты,
+    // во время переводятся только их границы. Без рабочего времени отрезки короче duration
+    // отбрасываются ещё по числу слотов
+    private List<TimeSlot> freeSlotsByOccupancy(Duration duration, LocalDateTime from, LocalDateTime to, int limit,
+                                                WorkingHours hours) {
+        List<TimeSlot> result = new ArrayList<>();
+        long first = occupancy.slotOf(from);
+        long last = occupancy.slotAtOrAfter(to);
+        long granularity = occupancy.getGranularity().getSeconds();
+        long minSlots = hours.isAlways() ? duration.getSeconds() / granularity : 0;
+        long[] runs = new long[2 * Math.min(limit + 1, 64)];
+        long slot = first;
+        while (slot < last && result.size() < limit) {
+            int count = occupancy.freeRuns(slot, last, minSlots, runs);
+            for (int i = 0; i < count && result.size() < limit; i++) {
+                LocalDateTime start = runs[2 * i] == first ? from : occupancy.startOf(runs[2 * i]);
+                LocalDateTime end = runs[2 * i + 1] == last ? to : occupancy.startOf(runs[2 * i + 1]);
+                addGaps(result, start, end, duration, limit, hours);
+            }
+            if (count < runs.length / 2) {
+                break;
+            }
+            slot = runs[runs.length - 1];
+        }
+        return result;
+    }
+
+    // Раскладывает длительности по порядку в свободное время [from, to) одним проходом по ленте:
+    // каждая следующая встаёт не раньше конца предыдущей. Для не поместившейся до to - null,
+    // курсор при этом не сдвигается, и следующие (короче) ещё могут поместиться
+    List<LocalDateTime> pack(List<Duration> durations, LocalDateTime from, LocalDateTime to, WorkingHours hours) {
+        List<LocalDateTime> starts = new ArrayList<>(durations.size());
+        LocalDateTime cursor = from;
+        Cursor busy = busyFrom(from);
+        for (Duration duration : durations) {
+            LocalDateTime time = cursor;
+            LocalDateTime start = null;
+            boolean advanced = false;
+            boolean fits = hours.isAlways() || duration.compareTo(hours.windowLength()) <= 0;
+            while (fits && time.isBefore(to)) {
+                // Интервалы, начавшиеся не позже time, сдвигают его на свой конец
+                Slot slot = busy.peek();
+                while (slot != null && !slot.start.isAfter(time)) {
+                    if (slot.end.isAfter(time)) {
+                        time = slot.end;
+                    }
+                    busy.next();
+                    advanced = true;
+                    slot = busy.peek();
+                }
+                if (!time.isBefore(to)) {
+                    break;
+                }
+                LocalDateTime gapEnd = slot == null || slot.start.isAfter(to) ? to : slot.start;
+                start = fit(time, gapEnd, duration, hours);
+                if (start != null || slot == null || !slot.start.isBefore(to)) {
+                    break;
+                }
+                time = slot.start;
+            }
+            starts.add(start);
+            if (start != null) {
+                cursor = start.plus(duration);
+            } else if (advanced) {
+                // Не поместилась: обход начинается заново от прежнего курсора
+                busy = busyFrom(cursor);
+            }
+        }
+        return starts;
+    }
+
+    // Самое раннее начало отрезка длины duration внутри [start, end) и окна рабочего времени
+    private static LocalDateTime fit(LocalDateTime start, LocalDateTime end, Duration duration, WorkingHours hours) {
+        if (hours.isAlways()) {
+            return start.isBefore(end) && !start.plus(duration).isAfter(end) ? start : null;
+        }
+        LocalDateTime open = hours.nextOpen(start);
+        while (open.isBefore(end)) {
+            LocalDateTime close = hours.closeOf(open);
+            if (close.isAfter(end)) {
+                close = end;
+            }
+            if (!open.plus(duration).isAfter(close)) {
+                return open;
+            }
+            open = hours.nextOpen(close);
+        }
+        return null;
+    }
+
+    // Задачи, чьё время пересекается с [from, to) (задача нулевой длины - если лежит внутри),
+    // по порядку ленты. Просматривается только подмножество дерева: O(log n + k)
+    List<Task> between(LocalDateTime from, LocalDateTime to, TaskType type, TaskStatus status) {
+        List<Task> result = new ArrayList<>();
+        Cursor cursor = new Cursor(timed.subSet(scanStart(from), true, probe(to), false), from, true);
+        for (Slot slot = cursor.next(); slot != null && slot.start.isBefore(to); slot = cursor.next()) {
+            boolean inside = slot.end.isAfter(from) || !slot.start.isBefore(from);
+            if (inside && matches(slot.source(), type, status)) {
+                result.add(slot.task());
+            }
+        }
+        return result;
+    }
+
+    // Задачи дерева, начинающиеся в [from, to); серии повторяющихся задач сюда не входят
+    List<Task> startingBetween(LocalDateTime from, LocalDateTime to) {
+        List<Task> result = new ArrayList<>();
+        for (Slot slot : timed.subSet(probe(from), true, probe(to), false)) {
+            result.add(slot.task);
+        }
+        return result;
+    }
+
+    // Первые limit задач, начинающихся не раньше time
+    List<Task> startingFrom(LocalDateTime time, int limit, TaskType type, TaskStatus status) {
+        List<Task> result = new ArrayList<>(Math.min(limit, 1024));
+        Cursor cursor = new Cursor(timed.tailSet(probe(time), true), time, false);
+        for (Slot slot = cursor.next(); slot != null && result.size() < limit; slot = cursor.next()) {
+            if (matches(slot.source(), type, status)) {
+                result.add(slot.task());
+            }
+        }
+        return result;
+    }
+
+    // null в фильтре - любой тип или статус
+    private static boolean matches(Task task, TaskType type, TaskStatus status) {
+        return (type == null || task.getType() == type) && (status == null || task.getStatus() == status);
+    }
+
+    // Занятое время начиная с интервалов, которые могут накрывать from
+    private Cursor busyFrom(LocalDateTime from) {
+        return new Cursor(timed.tailSet(scanStart(from), true), from, true);
+    }
+
+    // Интервалы дерева вперемешку с вхождениями серий по порядку (начало, id).
+    // Из каждой серии в очереди лежит только очередное вхождение
+    private final class Cursor {
+        private final Iterator<Slot> tree;
+        private Slot treeNext;
+        private final PriorityQueue<Slot> occurrences;
+
+        // covering: вхождения, которые заканчиваются позже from (нулевой длины - не раньше from),
+        // иначе - начинающиеся не раньше from
+        Cursor(NavigableSet<Slot> tree, LocalDateTime from, boolean covering) {
+            this.tree = tree.iterator();
+            this.treeNext = this.tree.hasNext() ? this.tree.next() : null;
+            this.occurrences = series.isEmpty() ? null : new PriorityQueue<>(series.size(), ORDER);
+            for (RecurringSeries each : series.values()) {
+                long index = covering && !each.duration.isZero() ? each.indexEndingAfter(from)
+                        : each.indexStartingAt(from);
+                if (index <= each.last) {
+                    occurrences.add(Slot.occurrence(each, index));
+                }
+            }
+        }
+
+        Slot peek() {
+            Slot occurrence = occurrences != null ? occurrences.peek() : null;
+            if (occurrence == null || (treeNext != null && ORDER.compare(treeNext, occurrence) < 0)) {
+                return treeNext;
+            }
+            return occurrence;
+        }
+
+        Slot next() {
+            Slot slot = peek();
+            if (slot == null) {
+                return null;
+            }
+            if (slot == treeNext) {
+                treeNext = tree.hasNext() ? tree.next() : null;
+            } else {
+                occurrences.poll();
+                if (slot.index < slot.series.last) {
+                    occurrences.add(Slot.occurrence(slot.series, slot.index + 1));
+                }
+            }
+            return slot;
+        }
+    }
+
+    // Первый интервал, который может ещё занимать момент from
+    private Slot scanStart(LocalDateTime from) {
+        if (conflicts > 0 || shared) {
+            return probe(from.minus(longest));
+        }
+        Slot previous = coveringCandidate(from, Integer.MIN_VALUE);
+        return previous != null ? previous : probe(from);
+    }
+
+    // Интервалы ненулевой длины не пересекаются, значит их концы упорядочены так же, как начала:
+    // из начавшихся раньше time накрывать его может только ближайший. Интервалы нулевой длины
+    // ничего не накрывают, но могут лежать внутри другого (A=[10:00,12:00) и Z=[10:00,10:00)),
+    // поэтому они пропускаются. Дальше longest назад искать незачем
+    private Slot coveringCandidate(LocalDateTime time, int excludeId) {
+        LocalDateTime limit = time.minus(longest);
+        for (Slot slot : timed.headSet(probe(time), false).descendingSet()) {
+            if (slot.start.isBefore(limit)) {
+                return null;
+            }
+            if (slot.id != excludeId && slot.end.isAfter(slot.start)) {
+                return slot;
+            }
+        }
+        return null;
+    }
+
+    // Части промежутка [start, end), попавшие в окна рабочего времени и вмещающие duration
+    private static void addGaps(List<TimeSlot> result, LocalDateTime start, LocalDateTime end, Duration duration,
+                                int limit, WorkingHours hours) {
+        if (hours.isAlways()) {
+            if (result.size() < limit && Duration.between(start, end).compareTo(duration) >= 0) {
+                result.add(new TimeSlot(start, end));
+            }
+            return;
+        }
+        LocalDateTime open = hours.nextOpen(start);
+        while (open.isBefore(end) && result.size() < limit) {
+            LocalDateTime close = hours.closeOf(open);
+            if (close.isAfter(end)) {
+                close = end;
+            }
+            if (Duration.between(open, close).compareTo(duration) >= 0) {
+                result.add(new TimeSlot(open, close));
+            }
+            open = hours.nextOpen(close);
+        }
+    }
+
+    // Ключ поиска: раньше всех интервалов с тем же началом
+    static Slot probe(LocalDateTime time) {
+        return new Slot(time, time, Integer.MIN_VALUE, null);
+    }
+
+    // Задачи без времени начала в порядке id
+    Collection<Task> untimed() {
+        return untimed.values();
+    }
+
+    List<Task> toList() {
+        List<Task> list = new ArrayList<>(size());
+        for (Task task : this) {
+            list.add(task);
+        }
+        return list;
+    }
+
+    // Полный список: задачи со временем, затем повторяющиеся (по одной записи на серию), затем без времени
+    @Override
+    public Iterator<Task> iterator() {
+        Iterator<Slot> timedIterator = timed.iterator();
+        Iterator<RecurringSeries> seriesIterator = series.values().iterator();
+        Iterator<Task> untimedIterator = untimed.values().iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return timedIterator.hasNext() || seriesIterator.hasNext() || untimedIterator.hasNext();
+            }
+
+            @Override
+            public Task next() {
+                if (timedIterator.hasNext()) {
+                    return timedIterator.next().task;
+                }
+                return seriesIterator.hasNext() ? seriesIterator.next().task : untimedIterator.next();
+            }
+        };
+    }
+
+    private static LocalDateTime endOf(Task task) {
+        LocalDateTime end = task.getEndTime();
+        return end != null ? end : task.getStartTime();
+    }
+}
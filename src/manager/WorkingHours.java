@@ -0,0 +1,101 @@
+package manager;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.EnumSet;
+import java.util.Set;
+
+// Маска рабочего времени для поиска свободных окон: в выбранные дни недели с start до end.
+// end, равный полуночи, означает конец суток. Задача должна уложиться в одно окно маски,
+// только ALWAYS не режет время на сутки.
+public final class WorkingHours {
+    public static final WorkingHours ALWAYS = new WorkingHours(LocalTime.MIDNIGHT, LocalTime.MIDNIGHT,
+            EnumSet.allOf(DayOfWeek.class));
+
+    private final LocalTime start;
+    private final LocalTime end;
+    private final Set<DayOfWeek> days;
+
+    private WorkingHours(LocalTime start, LocalTime end, Set<DayOfWeek> days) {
+        this.start = start;
+        this.end = end;
+        this.days = days;
+    }
+
+    public static WorkingHours of(LocalTime start, LocalTime end, DayOfWeek... days) {
+        if (!end.equals(LocalTime.MIDNIGHT) && !start.isBefore(end)) {
+            throw new IllegalArgumentException("Working hours must start before they end: " + start + "-" + end);
+        }
+        if (days.length == 0) {
+            throw new IllegalArgumentException("Working hours need at least one day");
+        }
+        Set<DayOfWeek> set = EnumSet.noneOf(DayOfWeek.class);
+        for (DayOfWeek day : days) {
+            set.add(day);
+        }
+        return new WorkingHours(start, end, set);
+    }
+
+    public static WorkingHours weekdays(LocalTime start, LocalTime end) {
+        return of(start, end, DayOfWeek.MONDAY, DayOfWeek.TUESDAY, DayOfWeek.WEDNESDAY,
+                DayOfWeek.THURSDAY, DayOfWeek.FRIDAY);
+    }
+
+    public LocalTime getStart() {
+        return start;
+    }
+
+    public LocalTime getEnd() {
+        return end;
+    }
+
+    public Set<DayOfWeek> getDays() {
+        return EnumSet.copyOf(days);
+    }
+
+    // Длина одного окна: более длинная задача в маску не помещается
+    Duration windowLength() {
+        return end.equals(LocalTime.MIDNIGHT) ? Duration.between(start, LocalTime.MAX).plusNanos(1)
+                : Duration.between(start, end);
+    }
+
+    boolean isAlways() {
+        return this == ALWAYS;
+    }
+
+    // Сам момент, если он внутри окна, иначе начало ближайшего следующего окна
+    LocalDateTime nextOpen(LocalDateTime time) {
+        LocalDate date = time.toLocalDate();
+        if (days.contains(date.getDayOfWeek()) && !time.toLocalTime().isBefore(start)
+                && time.isBefore(closeOf(date))) {
+            return time;
+        }
+        if (!days.contains(date.getDayOfWeek()) || !time.toLocalTime().isBefore(start)) {
+            do {
+                date = date.plusDays(1);
+            } while (!days.contains(date.getDayOfWeek()));
+        }
+        return date.atTime(start);
+    }
+
+    // Конец окна, в котором лежит открытый момент time
+    LocalDateTime closeOf(LocalDateTime time) {
+        return closeOf(time.toLocalDate());
+    }
+
+    private LocalDateTime closeOf(LocalDate date) {
+        return end.equals(LocalTime.MIDNIGHT) ? date.plusDays(1).atStartOfDay() : date.atTime(end);
+    }
+
+    @Override
+    public String toString() {
+        return "WorkingHours{" +
+                "start=" + start +
+                ", end=" + end +
+                ", days=" + days +
+                '}';
+    }
+}
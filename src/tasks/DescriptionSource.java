@@ -0,0 +1,6 @@
+package tasks;
+
+// Источник описаний, которые хранятся вне задачи и читаются по смещению при первом обращении
+public interface DescriptionSource {
+    String loadDescription(long offset);
+}
@@ -2,12 +2,39 @@ package tasks;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.TreeMap;
+import java.time.Duration;
 import java.time.LocalDateTime;
 
 public class Epic extends Task {
     private LocalDateTime endTime;
     private List<Integer> subtaskOfEpicIDs;
+    // Сводка по подзадачам, которая меняется приращениями: вклад каждой подзадачи запоминается,
+    // чтобы его можно было вычесть, даже если объект подзадачи изменили на месте
+    private final Map<Integer, Contribution> contributions = new HashMap<>();
+    private final int[] statusCounts = new int[TaskStatus.values().length];
+    private Duration totalDuration = Duration.ZERO;
+    // Мультимножества начал и концов: первый ключ - минимум, последний - максимум
+    private final TreeMap<LocalDateTime, Integer> starts = new TreeMap<>();
+    private final TreeMap<LocalDateTime, Integer> ends = new TreeMap<>();
+
+    private static final class Contribution {
+        final TaskStatus status;
+        final Duration duration;
+        final LocalDateTime start;
+        final LocalDateTime end;
+
+        Contribution(TaskStatus status, Duration duration, LocalDateTime start, LocalDateTime end) {
+            this.status = status;
+            this.duration = duration;
+            this.start = start;
+            this.end = end;
+        }
+    }
 
     public Epic(String name, String description, TaskStatus status) {
         super(name, description, status);
@@ -37,7 +64,77 @@ public class Epic extends Task {
     }
 
     public void setEndTime(LocalDateTime endTime) {
-        this.endTime = startTime;
+        this.endTime = endTime;
+    }
+
+    // Учёт подзадачи в сводке (прежний вклад той же подзадачи заменяется): O(log k)
+    public void trackSubtask(Subtask subtask) {
+        untrackSubtask(subtask.getId());
+        Duration duration = subtask.getDuration() != null ? subtask.getDuration() : Duration.ZERO;
+        LocalDateTime start = subtask.getStartTime();
+        LocalDateTime end = start != null ? start.plus(duration) : null;
+        Contribution contribution = new Contribution(subtask.getStatus(), duration, start, end);
+        contributions.put(subtask.getId(), contribution);
+        statusCounts[contribution.status.ordinal()]++;
+        totalDuration = totalDuration.plus(duration);
+        // Подзадачи без времени начала входят только в статус и длительность
+        if (start != null) {
+            starts.merge(start, 1, Integer::sum);
+            ends.merge(end, 1, Integer::sum);
+        }
+    }
+
+    public void untrackSubtask(int subtaskId) {
+        Contribution contribution = contributions.remove(subtaskId);
+        if (contribution == null) {
+            return;
+        }
+        statusCounts[contribution.status.ordinal()]--;
+        totalDuration = totalDuration.minus(contribution.duration);
+        if (contribution.start != null) {
+            decrement(starts, contribution.start);
+            decrement(ends, contribution.end);
+        }
+    }
+
+    public boolean tracksSubtask(int subtaskId) {
+        return contributions.containsKey(subtaskId);
+    }
+
+    public void clearTrackedSubtasks() {
+        contributions.clear();
+        Arrays.fill(statusCounts, 0);
+        totalDuration = Duration.ZERO;
+        starts.clear();
+        ends.clear();
+    }
+
+    // Статус по сводке: все NEW - NEW, все DONE - DONE, иначе IN_PROGRESS; без подзадач - NEW
+    public TaskStatus getRollupStatus() {
+        int count = contributions.size();
+        if (count == 0 || statusCounts[TaskStatus.NEW.ordinal()] == count) {
+            return TaskStatus.NEW;
+        }
+        if (statusCounts[TaskStatus.DONE.ordinal()] == count) {
+            return TaskStatus.DONE;
+        }
+        return TaskStatus.IN_PROGRESS;
+    }
+
+    public Duration getRollupDuration() {
+        return totalDuration;
+    }
+
+    public LocalDateTime getRollupStartTime() {
+        return starts.isEmpty() ? null : starts.firstKey();
+    }
+
+    public LocalDateTime getRollupEndTime() {
+        return ends.isEmpty() ? null : ends.lastKey();
+    }
+
+    private static void decrement(TreeMap<LocalDateTime, Integer> counts, LocalDateTime key) {
+        counts.computeIfPresent(key, (time, count) -> count > 1 ? count - 1 : null);
     }
 
     @Override
@@ -46,7 +143,7 @@ public class Epic extends Task {
                 "id=" + id +
                 ", status=" + status +
                 ", name='" + name + '\'' +
-                ", description='" + description + '\'' +
+                ", description='" + getDescription() + '\'' +
                 ", subtaskOfEpicIDs=" + subtaskOfEpicIDs +
                 '}';
     }
@@ -0,0 +1,54 @@
+package tasks;
+
+import java.util.Objects;
+import java.time.LocalDateTime;
+
+// Одно вхождение повторяющейся задачи. Создаётся на лету запросами по времени и нигде
+// не хранится; id совпадает с id серии, описание читается из серии
+public class Occurrence extends Task {
+    private final RecurringTask series;
+
+    Occurrence(RecurringTask series, LocalDateTime startTime) {
+        super(series.getId(), series.getName(), null, series.getStatus());
+        this.series = series;
+        this.duration = series.getDuration();
+        this.startTime = startTime;
+    }
+
+    @Override
+    public TaskType getType() {
+        return TaskType.RECURRING;
+    }
+
+    public RecurringTask getSeries() {
+        return series;
+    }
+
+    @Override
+    public String getDescription() {
+        return series.getDescription();
+    }
+
+    @Override
+    public String toString() {
+        return "Occurrence{" +
+                "id=" + id +
+                ", name='" + name + '\'' +
+                ", startTime=" + startTime +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+        Occurrence that = (Occurrence) o;
+        return Objects.equals(startTime, that.startTime);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), startTime);
+    }
+}
@@ -0,0 +1,137 @@
+package tasks;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+// Правило повторения: каждые interval минут, дней или недель, до даты until (включительно
+// по началу вхождения) и/или не больше count раз. Без until и count повторяется бесконечно.
+// В файле пишется строкой вида "DAILY/1", "WEEKLY/2/count=10", "MINUTES/90/until=2024-12-31T00:00"
+public final class RecurrenceRule {
+    public enum Frequency {
+        MINUTES(60),
+        DAILY(24 * 60 * 60),
+        WEEKLY(7 * 24 * 60 * 60);
+
+        private final long seconds;
+
+        Frequency(long seconds) {
+            this.seconds = seconds;
+        }
+    }
+
+    private final Frequency frequency;
+    private final int interval;
+    private final int count;
+    private final LocalDateTime until;
+
+    private RecurrenceRule(Frequency frequency, int interval, int count, LocalDateTime until) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Recurrence interval must be positive: " + interval);
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("Recurrence count must not be negative: " + count);
+        }
+        this.frequency = Objects.requireNonNull(frequency);
+        this.interval = interval;
+        this.count = count;
+        this.until = until;
+    }
+
+    public static RecurrenceRule everyMinutes(int minutes) {
+        return new RecurrenceRule(Frequency.MINUTES, minutes, 0, null);
+    }
+
+    public static RecurrenceRule daily() {
+        return new RecurrenceRule(Frequency.DAILY, 1, 0, null);
+    }
+
+    public static RecurrenceRule weekly() {
+        return new RecurrenceRule(Frequency.WEEKLY, 1, 0, null);
+    }
+
+    public static RecurrenceRule of(Frequency frequency, int interval) {
+        return new RecurrenceRule(frequency, interval, 0, null);
+    }
+
+    // Не больше count вхождений, 0 - без ограничения
+    public RecurrenceRule times(int count) {
+        return new RecurrenceRule(frequency, interval, count, until);
+    }
+
+    public RecurrenceRule until(LocalDateTime until) {
+        return new RecurrenceRule(frequency, interval, count, until);
+    }
+
+    public Frequency getFrequency() {
+        return frequency;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public LocalDateTime getUntil() {
+        return until;
+    }
+
+    public Duration getPeriod() {
+        return Duration.ofSeconds(frequency.seconds * interval);
+    }
+
+    public boolean isBounded() {
+        return count > 0 || until != null;
+    }
+
+    public static RecurrenceRule parse(String value) {
+        String[] parts = value.split("/");
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("Malformed recurrence rule: " + value);
+        }
+        RecurrenceRule rule = of(Frequency.valueOf(parts[0]), Integer.parseInt(parts[1]));
+        for (int i = 2; i < parts.length; i++) {
+            if (parts[i].startsWith("count=")) {
+                rule = rule.times(Integer.parseInt(parts[i].substring("count=".length())));
+            } else if (parts[i].startsWith("until=")) {
+                rule = rule.until(LocalDateTime.parse(parts[i].substring("until=".length())));
+            } else {
+                throw new IllegalArgumentException("Malformed recurrence rule: " + value);
+            }
+        }
+        return rule;
+    }
+
+    public String format() {
+        StringBuilder builder = new StringBuilder().append(frequency).append('/').append(interval);
+        if (count > 0) {
+            builder.append("/count=").append(count);
+        }
+        if (until != null) {
+            builder.append("/until=").append(until);
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RecurrenceRule that = (RecurrenceRule) o;
+        return interval == that.interval && count == that.count && frequency == that.frequency
+                && Objects.equals(until, that.until);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(frequency, interval, count, until);
+    }
+
+    @Override
+    public String toString() {
+        return format();
+    }
+}
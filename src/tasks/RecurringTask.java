@@ -0,0 +1,63 @@
+package tasks;
+
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+// Повторяющаяся задача: хранится одной записью, вхождения с тем же именем, статусом
+// и длительностью вычисляются от startTime по правилу только при запросах по времени
+public class RecurringTask extends Task {
+    private RecurrenceRule recurrence;
+
+    public RecurringTask(String name, String description, TaskStatus status, long minutes, RecurrenceRule recurrence) {
+        super(name, description, status, minutes);
+        this.recurrence = Objects.requireNonNull(recurrence);
+    }
+
+    public RecurringTask(int id, String name, String description, TaskStatus status, long minutes,
+                         RecurrenceRule recurrence) {
+        super(id, name, description, status, minutes);
+        this.recurrence = Objects.requireNonNull(recurrence);
+    }
+
+    @Override
+    public TaskType getType() {
+        return TaskType.RECURRING;
+    }
+
+    public RecurrenceRule getRecurrence() {
+        return recurrence;
+    }
+
+    public void setRecurrence(RecurrenceRule recurrence) {
+        this.recurrence = Objects.requireNonNull(recurrence);
+    }
+
+    public Occurrence occurrenceAt(LocalDateTime start) {
+        return new Occurrence(this, start);
+    }
+
+    @Override
+    public String toString() {
+        return "RecurringTask{" +
+                "id=" + id +
+                ", status=" + status +
+                ", name='" + name + '\'' +
+                ", description='" + getDescription() + '\'' +
+                ", recurrence=" + recurrence +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        if (!super.equals(o)) return false;
+        RecurringTask that = (RecurringTask) o;
+        return Objects.equals(recurrence, that.recurrence);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(super.hashCode(), recurrence);
+    }
+}
@@ -49,7 +49,7 @@ public class Subtask extends Task {
                 ", id=" + id +
                 ", status=" + status +
                 ", name='" + name + '\'' +
-                ", description='" + description + '\'' +
+                ", description='" + getDescription() + '\'' +
                 '}';
     }
 
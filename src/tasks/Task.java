@@ -11,6 +11,11 @@ public class Task {
     protected String description;
     protected Duration duration;
     protected LocalDateTime startTime;
+    //Исполнитель или ресурс; null - задача без исполнителя
+    protected String assignee;
+    //Если задан источник, описание не хранится в памяти и читается из него по смещению
+    private DescriptionSource descriptionSource;
+    private long descriptionOffset;
 
     //Конструктор без id, duration и startTime
     public Task(String name, String description, TaskStatus status) {
@@ -73,11 +78,27 @@ public class Task {
     }
 
     public String getDescription() {
-        return description;
+        return descriptionSource != null ? descriptionSource.loadDescription(descriptionOffset) : description;
     }
 
     public void setDescription(String description) {
         this.description = description;
+        this.descriptionSource = null;
+    }
+
+    //Отложенное описание: будет прочитано из source при вызове getDescription()
+    public void setDescription(DescriptionSource source, long offset) {
+        this.description = null;
+        this.descriptionSource = source;
+        this.descriptionOffset = offset;
+    }
+
+    public DescriptionSource getDescriptionSource() {
+        return descriptionSource;
+    }
+
+    public long getDescriptionOffset() {
+        return descriptionOffset;
     }
 
     public TaskStatus getStatus() {
@@ -116,6 +137,14 @@ public class Task {
         this.startTime = LocalDateTime.of(y, m, d, hh, mm);
     }
 
+    public String getAssignee() {
+        return assignee;
+    }
+
+    public void setAssignee(String assignee) {
+        this.assignee = assignee;
+    }
+
     public LocalDateTime getEndTime() {
         return (startTime != null) ? startTime.plus(duration) : null;
     }
@@ -126,20 +155,25 @@ public class Task {
                 "id=" + id +
                 ", status=" + status +
                 ", name='" + name + '\'' +
-                ", description='" + description + '\'' +
+                ", description='" + getDescription() + '\'' +
                 '}';
     }
 
+    //Равенство и хеш не должны зависеть от ввода-вывода (задачи лежат ключами в HashSet/HashMap,
+    //источник может быть уже закрыт), поэтому отложенное описание не читается: описания сравниваются,
+    //только если оба уже в памяти. Задача с отложенным описанием равна той же задаче, загруженной сразу
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Task task = (Task) o;
-        return id == task.id && status == task.status && Objects.equals(name, task.name) && Objects.equals(description, task.description);
+        return id == task.id && status == task.status && Objects.equals(name, task.name)
+                && (descriptionSource != null || task.descriptionSource != null
+                || Objects.equals(description, task.description));
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id, status, name, description);
+        return Objects.hash(id, status, name);
     }
 }
\ No newline at end of file
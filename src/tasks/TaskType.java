@@ -3,6 +3,6 @@ package tasks;
 public enum TaskType {
     TASK,
     EPIC,
-    SUBTASK
+    SUBTASK,
+    RECURRING
 }
-
@@ -0,0 +1,121 @@
+package http;
+
+import manager.ConcurrentTaskManager;
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.TaskStatus;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Нагрузка на HttpTaskServer в одном процессе: сначала открывается много простаивающих соединений,
+// затем запросы идут из виртуальных потоков параллельно (чтения по id, списки, окно ленты и
+// добавление задач). В конце проверяется, что простаивающие соединения живы. Клиент и сервер
+// делят один лимит дескрипторов: соединение занимает два (ulimit -n)
+// Запуск: java http.HttpLoadBenchmark [простаивающих соединений] [запросов] [параллельно]
+public class HttpLoadBenchmark {
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    public static void main(String[] args) throws Exception {
+        int idle = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 20_000;
+        int parallel = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        ConcurrentTaskManager manager = new ConcurrentTaskManager();
+        Epic epic = new Epic("Epic", "Description", TaskStatus.NEW);
+        manager.addEpic(epic);
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            Subtask subtask = new Subtask(epic.getId(), "Subtask " + i, "Description", TaskStatus.NEW, 30);
+            subtask.setStartTime(BASE.plusHours(i));
+            manager.addSubtask(subtask);
+            ids.add(subtask.getId());
+        }
+        HttpTaskServer server = new HttpTaskServer(manager, 0);
+        server.start();
+        String base = "http://localhost:" + server.getPort();
+
+        List<Socket> sockets = new ArrayList<>(idle);
+        long begin = System.nanoTime();
+        try {
+            for (int i = 0; i < idle; i++) {
+                Socket socket = new Socket();
+                socket.connect(new InetSocketAddress("localhost", server.getPort()));
+                sockets.add(socket);
+            }
+        } catch (IOException e) {
+            System.out.println("Открыто только " + sockets.size() + " соединений: " + e.getMessage());
+        }
+        System.out.printf("idle connections: %,d in %d ms%n", sockets.size(), (System.nanoTime() - begin) / 1_000_000);
+
+        HttpClient client = HttpClient.newBuilder().executor(HttpTaskServer.newRequestExecutor()).build();
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        begin = System.nanoTime();
+        ExecutorService workers = HttpTaskServer.newRequestExecutor();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int w = 0; w < parallel; w++) {
+                futures.add(workers.submit(() -> {
+                    for (int i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+                        HttpRequest request = request(base, i, ids, epic.getId());
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() >= 300) {
+                            failed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            workers.shutdown();
+        }
+        long nanos = System.nanoTime() - begin;
+        System.out.printf("requests: %,d in %d ms, %,d req/s, failed %d%n", requests, nanos / 1_000_000,
+                requests * 1_000_000_000L / nanos, failed.get());
+
+        int alive = 0;
+        for (Socket socket : sockets) {
+            if (socket.isConnected() && !socket.isClosed() && socket.getInputStream().available() == 0) {
+                alive++;
+            }
+            socket.close();
+        }
+        System.out.printf("idle connections still open: %,d%n", alive);
+        server.stop(0);
+    }
+
+    private static HttpRequest request(String base, int i, List<Integer> ids, int epicId) {
+        switch (i % 5) {
+            case 0:
+                return HttpRequest.newBuilder(URI.create(base + "/subtasks/" + ids.get(i % ids.size()))).build();
+            case 1:
+                LocalDateTime from = BASE.plusHours(i % ids.size());
+                return HttpRequest.newBuilder(URI.create(base + "/prioritized?from=" + from + "&to="
+                        + from.plusHours(12))).build();
+            case 2:
+                return HttpRequest.newBuilder(URI.create(base + "/epics/" + epicId)).build();
+            case 3:
+                return HttpRequest.newBuilder(URI.create(base + "/history")).build();
+            default:
+                // Задачи без времени: не пересекаются, лента растёт только в конце
+                String body = "{\"name\":\"Task " + i + "\",\"description\":\"Load\"}";
+                return HttpRequest.newBuilder(URI.create(base + "/tasks"))
+                        .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+        }
+    }
+}
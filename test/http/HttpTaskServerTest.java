@@ -0,0 +1,178 @@
+package http;
+
+import manager.ConcurrentTaskManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tasks.Epic;
+import tasks.RecurrenceRule;
+import tasks.RecurringTask;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpTaskServerTest {
+    private ConcurrentTaskManager manager;
+    private HttpTaskServer server;
+    private HttpClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        manager = new ConcurrentTaskManager();
+        server = new HttpTaskServer(manager, 0);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void createsReadsUpdatesAndDeletesTasks() throws Exception {
+        HttpResponse<String> created = send("POST", "/tasks", "{\"name\":\"Write report\",\"description\":"
+                + "\"Quarterly\",\"status\":\"NEW\",\"duration\":90,\"startTime\":\"2024-09-02T09:00:00\","
+                + "\"assignee\":\"anna\"}");
+        assertEquals(201, created.statusCode());
+        Task task = TaskJsonReader.readTask(created.body(), TaskType.TASK);
+        assertTrue(task.getId() > 0);
+        assertEquals(LocalDateTime.of(2024, 9, 2, 10, 30), manager.getTasks().get(0).getEndTime());
+
+        HttpResponse<String> found = send("GET", "/tasks/" + task.getId(), null);
+        assertEquals(200, found.statusCode());
+        assertEquals(task, TaskJsonReader.readTask(found.body(), TaskType.TASK));
+        assertEquals(List.of(task), TaskJsonReader.readTasks(send("GET", "/history", null).body(), TaskType.TASK));
+
+        HttpResponse<String> updated = send("POST", "/tasks", "{\"id\":" + task.getId()
+                + ",\"name\":\"Write report\",\"status\":\"DONE\",\"duration\":90}");
+        assertEquals(204, updated.statusCode());
+        assertEquals(TaskStatus.DONE, manager.getTasks().get(0).getStatus());
+
+        assertEquals(204, send("DELETE", "/tasks/" + task.getId(), null).statusCode());
+        assertEquals(404, send("GET", "/tasks/" + task.getId(), null).statusCode());
+        assertEquals("[]", send("GET", "/tasks", null).body());
+    }
+
+    @Test
+    void epicsCarryTheirSubtasks() throws Exception {
+        Task epic = TaskJsonReader.readTask(send("POST", "/epics", "{\"name\":\"Release\"}").body(), TaskType.EPIC);
+        String subtask = "{\"epicId\":" + epic.getId() + ",\"name\":\"Build\",\"status\":\"IN_PROGRESS\","
+                + "\"duration\":30,\"startTime\":\"2024-09-02T09:00:00\"}";
+        assertEquals(201, send("POST", "/subtasks", subtask).statusCode());
+
+        HttpResponse<String> found = send("GET", "/epics/" + epic.getId(), null);
+        assertTrue(found.body().contains("\"status\":\"IN_PROGRESS\""), found.body());
+        assertTrue(found.body().contains("\"endTime\":\"2024-09-02T09:30:00\""), found.body());
+        List<Task> subtasks = TaskJsonReader.readTasks(send("GET", "/epics/" + epic.getId() + "/subtasks", null).body(),
+                TaskType.SUBTASK);
+        assertEquals(1, subtasks.size());
+        assertEquals(epic.getId(), ((Subtask) subtasks.get(0)).getEpicId());
+
+        assertEquals(404, send("POST", "/subtasks", "{\"epicId\":999,\"name\":\"Orphan\"}").statusCode());
+        assertEquals(404, send("GET", "/epics/999/subtasks", null).statusCode());
+        assertEquals(204, send("DELETE", "/epics/" + epic.getId(), null).statusCode());
+        assertTrue(manager.getSubtasks().isEmpty());
+    }
+
+    @Test
+    void reportsOverlapsAndBadRequests() throws Exception {
+        String first = "{\"name\":\"First\",\"duration\":60,\"startTime\":\"2024-09-02T09:00:00\"}";
+        String clashing = "{\"name\":\"Clashing\",\"duration\":60,\"startTime\":\"2024-09-02T09:30:00\"}";
+        assertEquals(201, send("POST", "/tasks", first).statusCode());
+        assertEquals(406, send("POST", "/tasks", clashing).statusCode());
+
+        assertEquals(400, send("POST", "/tasks", "{\"name\":").statusCode());
+        assertEquals(400, send("POST", "/tasks", "{\"description\":\"No name\"}").statusCode());
+        assertEquals(400, send("POST", "/tasks", "{\"name\":\"Sub\",\"type\":\"SUBTASK\",\"epicId\":1}").statusCode());
+        assertEquals(400, send("GET", "/tasks/abc", null).statusCode());
+        assertEquals(404, send("POST", "/tasks", "{\"id\":999,\"name\":\"Missing\"}").statusCode());
+        assertEquals(405, send("PUT", "/tasks", "{}").statusCode());
+        assertEquals(405, send("POST", "/history", "{}").statusCode());
+    }
+
+    @Test
+    void prioritizedWindowExpandsRecurringTasks() throws Exception {
+        RecurringTask standup = new RecurringTask("Standup", "Daily", TaskStatus.NEW, 15,
+                RecurrenceRule.daily().times(5));
+        standup.setStartTime(2024, 9, 2, 9, 0);
+        manager.addTask(standup);
+        Task review = new Task("Review", "Description", TaskStatus.NEW, 60);
+        review.setStartTime(2024, 9, 3, 14, 0);
+        manager.addTask(review);
+
+        List<Task> all = TaskJsonReader.readTasks(send("GET", "/prioritized", null).body(), TaskType.TASK);
+        assertEquals(2, all.size());
+        List<Task> window = TaskJsonReader.readTasks(send("GET",
+                "/prioritized?from=2024-09-02T00:00&to=2024-09-04T00:00", null).body(), TaskType.TASK);
+        List<LocalDateTime> starts = new ArrayList<>();
+        for (Task each : window) {
+            starts.add(each.getStartTime());
+        }
+        assertEquals(List.of(LocalDateTime.of(2024, 9, 2, 9, 0), LocalDateTime.of(2024, 9, 3, 9, 0),
+                LocalDateTime.of(2024, 9, 3, 14, 0)), starts);
+        assertEquals(RecurrenceRule.daily().times(5), ((RecurringTask) window.get(0)).getRecurrence());
+        assertEquals(400, send("GET", "/prioritized?from=2024-09-04T00:00&to=2024-09-02T00:00", null)
+                .statusCode());
+    }
+
+    @Test
+    void writerEscapesAndRoundTripsEveryField() throws IOException {
+        Task task = new Task(7, "Кавычки \" и \\ слэш", "Строка\nдругая\t\u0001 😀", TaskStatus.IN_PROGRESS, 45);
+        task.setStartTime(LocalDateTime.of(2024, 9, 2, 9, 0, 0, 500));
+        task.setAssignee("ёжик");
+        Epic epic = new Epic(8, "Epic", null, TaskStatus.NEW);
+        epic.getSubtaskOfEpicIDs().addAll(List.of(9, 10));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TaskJsonWriter writer = new TaskJsonWriter(out);
+        writer.writeTasks(List.of(task, epic));
+        writer.flush();
+        String json = out.toString(StandardCharsets.UTF_8);
+
+        List<Task> read = TaskJsonReader.readTasks(json, TaskType.TASK);
+        assertEquals(task, read.get(0));
+        // Список подзадач эпика ведёт менеджер: из тела запроса он не читается
+        assertEquals(new Epic(8, "Epic", null, TaskStatus.NEW), read.get(1));
+        assertEquals(task.getStartTime(), read.get(0).getStartTime());
+        assertEquals(task.getDuration(), read.get(0).getDuration());
+        assertEquals("ёжик", read.get(0).getAssignee());
+        assertTrue(json.contains("\"subtasks\":[9,10]"), json);
+        assertTrue(json.contains("\\u0001"), json);
+
+        // Больше буфера записи: документ уходит в поток частями
+        List<Task> many = new ArrayList<>();
+        for (int i = 1; i <= 2_000; i++) {
+            many.add(new Task(i, "Task " + i, "Описание " + i, TaskStatus.NEW, i));
+        }
+        out.reset();
+        writer = new TaskJsonWriter(out);
+        writer.writeTasks(many);
+        writer.flush();
+        assertEquals(many, TaskJsonReader.readTasks(out.toString(StandardCharsets.UTF_8), TaskType.TASK));
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        HttpRequest.BodyPublisher publisher = body != null
+                ? HttpRequest.BodyPublishers.ofString(body, StandardCharsets.UTF_8)
+                : HttpRequest.BodyPublishers.noBody();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path))
+                .method(method, publisher)
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,70 @@
+package manager;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+// Время autoSchedule для большого числа задач без времени начала поверх уже занятой ленты:
+// каждый третий слот по 30 минут занят, задачи и подзадачи эпиков раскладываются в промежутки.
+// Запуск: java manager.AutoScheduleBenchmark [задач] [повторов]
+public class AutoScheduleBenchmark {
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        for (int round = 0; round < rounds; round++) {
+            run(count, false, WorkingHours.ALWAYS);
+            run(count, true, WorkingHours.weekdays(LocalTime.of(9, 0), LocalTime.of(18, 0)));
+        }
+    }
+
+    private static void run(int count, boolean groupByEpic, WorkingHours hours) {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        List<Task> fixed = new ArrayList<>(count / 2);
+        for (int i = 0; i < count / 2; i++) {
+            Task task = new Task("Fixed " + i, "Description", TaskStatus.NEW, 30);
+            task.setStartTime(BASE.plusMinutes(90L * i));
+            fixed.add(task);
+        }
+        manager.addAll(fixed);
+
+        List<Task> pending = new ArrayList<>(count);
+        for (int i = 0; i < count / 100; i++) {
+            pending.add(new Epic("Epic " + i, "Description", TaskStatus.NEW));
+        }
+        manager.addAll(pending);
+        List<Task> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int minutes = 10 + i % 5 * 10;
+            if (i % 2 == 0) {
+                Task epic = pending.get(i % pending.size());
+                items.add(new Subtask(epic.getId(), "Subtask " + i, "Description", TaskStatus.NEW, minutes));
+            } else {
+                items.add(new Task("Task " + i, "Description", i % 3 == 0 ? TaskStatus.IN_PROGRESS : TaskStatus.NEW,
+                        minutes));
+            }
+        }
+        manager.addAll(items);
+
+        ScheduleOptions options = new ScheduleOptions(BASE, BASE.plusYears(10));
+        options.setPriority(Comparator.comparing(Task::getStatus).reversed().thenComparingInt(Task::getId));
+        options.setGroupByEpic(groupByEpic);
+        options.setWorkingHours(hours);
+        System.gc();
+        long start = System.nanoTime();
+        Map<Integer, LocalDateTime> planned = manager.autoSchedule(options);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf("%,d unscheduled, %s, groupByEpic=%s: %,d placed in %,d ms%n",
+                count, hours == WorkingHours.ALWAYS ? "any time" : "weekdays 9-18", groupByEpic,
+                planned.size(), millis);
+    }
+}
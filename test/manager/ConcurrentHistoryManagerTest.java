@@ -0,0 +1,166 @@
+package manager;
+
+import org.junit.jupiter.api.Test;
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentHistoryManagerTest {
+    private final List<Task> tasks = new ArrayList<>();
+
+    ConcurrentHistoryManagerTest() {
+        for (int i = 1; i <= 50; i++) {
+            tasks.add(new Task(i, "Task " + i, "Description", TaskStatus.NEW));
+        }
+    }
+
+    @Test
+    void keepsSameOrderAsInMemoryHistory() {
+        HistoryManager expected = new InMemoryHistoryManager();
+        HistoryManager history = new ConcurrentHistoryManager(4);
+        Random random = new Random(24);
+        // Больше просмотров, чем помещается в буфер полосы: часть разбирается по ходу
+        for (int i = 0; i < 5_000; i++) {
+            Task task = tasks.get(random.nextInt(tasks.size()));
+            if (i % 97 == 0) {
+                expected.remove(task.getId());
+                history.remove(task.getId());
+            } else {
+                expected.add(task);
+                history.add(task);
+            }
+            if (i % 1_000 == 0) {
+                assertEquals(expected.getHistory(), history.getHistory());
+            }
+        }
+        assertEquals(expected.getHistory(), history.getHistory());
+
+        history.clearHistory();
+        assertTrue(history.getHistory().isEmpty());
+        history.add(null);
+        assertTrue(history.getHistory().isEmpty());
+    }
+
+    @Test
+    void concurrentViewsKeepLastViewOfEachThread() throws Exception {
+        HistoryManager history = new ConcurrentHistoryManager();
+        int threads = 8;
+        int views = 20_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        // У каждого потока свои задачи: последняя из них, просмотренная потоком, идёт в истории последней
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            workers.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < views; i++) {
+                    history.add(tasks.get(worker + threads * (i % 5)));
+                }
+            }));
+        }
+        workers.forEach(Thread::start);
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        List<Task> viewed = history.getHistory();
+        assertEquals(threads * 5, viewed.size());
+        Map<Integer, List<Integer>> byWorker = new HashMap<>();
+        for (Task task : viewed) {
+            byWorker.computeIfAbsent((task.getId() - 1) % threads, key -> new ArrayList<>())
+                    .add((task.getId() - 1) / threads);
+        }
+        for (List<Integer> own : byWorker.values()) {
+            // Поток закончил на (views - 1) % 5 = 4: его задачи в порядке 0..4
+            assertEquals(List.of(0, 1, 2, 3, 4), own);
+        }
+    }
+
+    @Test
+    void removeWaitsForViewsBehindUnfinishedWrites() throws Exception {
+        // Одна полоса на все потоки: незаконченная запись одного потока закрывает разбор просмотров
+        // другого. Удаление не должно их пропустить, иначе удалённая задача вернётся в историю
+        HistoryManager history = new ConcurrentHistoryManager(1);
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        Set<Integer> expected = ConcurrentHashMap.newKeySet();
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            workers.add(new Thread(() -> {
+                Random random = new Random(worker);
+                Set<Integer> present = new HashSet<>();
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < 20_000; i++) {
+                    Task task = tasks.get(worker + threads * random.nextInt(5));
+                    if (random.nextInt(3) == 0) {
+                        history.remove(task.getId());
+                        present.remove(task.getId());
+                    } else {
+                        history.add(task);
+                        present.add(task.getId());
+                    }
+                }
+                expected.addAll(present);
+            }));
+        }
+        workers.forEach(Thread::start);
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        Set<Integer> viewed = new HashSet<>();
+        for (Task task : history.getHistory()) {
+            viewed.add(task.getId());
+        }
+        assertEquals(expected, viewed);
+    }
+
+    @Test
+    void removeWaitsForClaimedSlot() throws Exception {
+        ConcurrentHistoryManager history = new ConcurrentHistoryManager(1);
+        Runnable unfinished = history.beginAdd(tasks.get(0));
+        history.add(tasks.get(1));
+        Thread remover = new Thread(() -> history.remove(tasks.get(1).getId()));
+        remover.start();
+        remover.join(100);
+        assertTrue(remover.isAlive(), "Remove should wait for the unfinished write before it");
+
+        unfinished.run();
+        remover.join();
+        assertEquals(List.of(tasks.get(0)), history.getHistory());
+    }
+
+    @Test
+    void removeDropsViewsStillInBuffers() {
+        HistoryManager history = new ConcurrentHistoryManager(2);
+        history.add(tasks.get(0));
+        history.add(tasks.get(1));
+        history.add(tasks.get(0));
+        history.remove(tasks.get(0).getId());
+
+        assertEquals(List.of(tasks.get(1)), history.getHistory());
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentHistoryManager(0));
+    }
+}
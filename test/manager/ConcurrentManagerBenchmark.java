@@ -0,0 +1,123 @@
+package manager;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Пропускная способность при росте числа потоков: InMemoryTaskManager под одним общим замком
+// против ConcurrentTaskManager. У каждого потока свой эпик и своё время; из пяти операций
+// четыре чтения (окно ленты, проверка пересечения, эпик по id) и одно перемещение подзадачи.
+// Два прогона: у каждого потока свой исполнитель и все задачи без исполнителя (общий календарь).
+// Рост заметен только на машине с несколькими ядрами.
+// Запуск: java manager.ConcurrentManagerBenchmark [подзадач на поток] [операций на поток]
+public class ConcurrentManagerBenchmark {
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final int[] THREADS = {1, 2, 4, 8};
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        for (int round = 0; round < 2; round++) {
+            for (boolean assigned : new boolean[] {true, false}) {
+                for (int threads : THREADS) {
+                    run(threads, size, operations, false, assigned);
+                    run(threads, size, operations, true, assigned);
+                }
+            }
+        }
+    }
+
+    private static void run(int threads, int size, int operations, boolean concurrent, boolean assigned)
+            throws Exception {
+        TaskManager manager = concurrent ? new ConcurrentTaskManager() : new InMemoryTaskManager();
+        Object globalLock = new Object();
+        List<Epic> epics = new ArrayList<>();
+        List<List<Subtask>> owned = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Epic epic = new Epic("Epic " + t, "Description", TaskStatus.NEW);
+            manager.addEpic(epic);
+            epics.add(epic);
+            List<Subtask> subtasks = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                // Подзадачи по часу через час, у потоков разные отрезки времени: сдвиг на час
+                // внутри промежутка ничего не задевает и в общем календаре
+                Subtask subtask = new Subtask(epic.getId(), "Subtask " + i, "Description", TaskStatus.NEW, 60);
+                subtask.setStartTime(BASE.plusHours(2L * ((long) t * size + i)));
+                if (assigned) {
+                    subtask.setAssignee("team " + t);
+                }
+                manager.addSubtask(subtask);
+                subtasks.add(subtask);
+            }
+            owned.add(subtasks);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            results.add(executor.submit(() -> {
+                start.await();
+                long checksum = 0;
+                List<Subtask> subtasks = owned.get(worker);
+                int epicId = epics.get(worker).getId();
+                for (int i = 0; i < operations; i++) {
+                    Subtask subtask = subtasks.get((int) (i * 7919L % size));
+                    if (concurrent) {
+                        checksum += step(manager, subtask, epicId, i);
+                    } else {
+                        synchronized (globalLock) {
+                            checksum += step(manager, subtask, epicId, i);
+                        }
+                    }
+                }
+                return checksum;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        long checksum = 0;
+        for (Future<Long> result : results) {
+            checksum += result.get();
+        }
+        long nanos = System.nanoTime() - begin;
+        executor.shutdown();
+
+        long total = (long) threads * operations;
+        System.out.printf("%-10s %-10s threads=%d: %,d ops/s (checksum %d)%n", concurrent ? "concurrent" : "global",
+                assigned ? "assigned" : "unassigned", threads, total * 1_000_000_000L / nanos, checksum);
+    }
+
+    private static long step(TaskManager manager, Subtask subtask, int epicId, int i) {
+        LocalDateTime time = subtask.getStartTime();
+        switch (i % 5) {
+            case 0:
+                return manager.getPrioritizedTasks(time, time.plusHours(6)).size();
+            case 1:
+                Task probe = new Task("Probe", "Description", TaskStatus.NEW, 30);
+                probe.setStartTime(time.plusMinutes(45));
+                probe.setAssignee(subtask.getAssignee());
+                return manager.isTimeOverlap(probe) ? 1 : 0;
+            case 2:
+                return manager.getEpicById(epicId).getStatus().ordinal();
+            case 3:
+                return manager.getNextTasks(time, 4).size();
+            default:
+                // Туда и обратно внутри своего промежутка
+                boolean even = time.getHour() % 2 == 0;
+                subtask.setStartTime(even ? time.plusHours(1) : time.minusHours(1));
+                manager.updateSubtask(subtask);
+                return 1;
+        }
+    }
+}
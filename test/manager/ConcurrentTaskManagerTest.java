@@ -0,0 +1,392 @@
+package manager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentTaskManagerTest extends TaskManagerTest<ConcurrentTaskManager> {
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 9, 2, 9, 0);
+    private static final int THREADS = 8;
+
+    @BeforeEach
+    void SetUp() throws IOException {
+        super.setUp();
+        manager = new ConcurrentTaskManager();
+        manager.addTask(task);
+        manager.addEpic(epic);
+        manager.addSubtask(subtask);
+    }
+
+    @Test
+    void worksLikeInMemoryManagerInOneThread() {
+        assertEquals(task, manager.getTaskById(task.getId()));
+        assertEquals(List.of(subtask), manager.getSubtasksOfEpic(epic.getId()));
+        assertEquals(TaskStatus.DONE, epic.getStatus());
+
+        Subtask second = new Subtask(epic.getId(), "Second", "Description", TaskStatus.NEW, 60);
+        second.setStartTime(BASE);
+        manager.addSubtask(second);
+        assertEquals(TaskStatus.IN_PROGRESS, epic.getStatus());
+        assertEquals(BASE, epic.getStartTime());
+
+        Subtask clashing = new Subtask(epic.getId(), "Clashing", "Description", TaskStatus.NEW, 30);
+        clashing.setStartTime(BASE.plusMinutes(30));
+        assertThrows(IllegalArgumentException.class, () -> manager.addSubtask(clashing));
+
+        manager.removeEpic(epic.getId());
+        assertTrue(manager.getSubtasks().isEmpty());
+        assertTrue(manager.getSubtasksOfEpic(epic.getId()).isEmpty());
+        assertEquals(List.of(task), manager.getPrioritizedTasks());
+    }
+
+    @Test
+    void parallelEditsOfDifferentEpicsKeepEachEpicConsistent() throws Exception {
+        int perEpic = 200;
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            Epic each = new Epic("Epic " + i, "Description", TaskStatus.NEW);
+            manager.addEpic(each);
+            epics.add(each);
+        }
+        inParallel(THREADS, worker -> {
+            Epic own = epics.get(worker);
+            List<Subtask> added = new ArrayList<>();
+            for (int j = 0; j < perEpic; j++) {
+                Subtask each = new Subtask(own.getId(), "Subtask " + j, "Description", TaskStatus.NEW, 60);
+                each.setStartTime(BASE.plusHours(j));
+                each.setAssignee("worker " + worker);
+                manager.addSubtask(each);
+                added.add(each);
+            }
+            for (int j = 0; j < perEpic; j += 2) {
+                added.get(j).setStatus(TaskStatus.DONE);
+                manager.updateSubtask(added.get(j));
+            }
+            for (int j = 0; j < perEpic; j += 10) {
+                manager.removeSubtask(added.get(j).getId());
+            }
+        });
+
+        Set<Integer> ids = new HashSet<>();
+        for (Epic each : epics) {
+            List<Subtask> left = manager.getSubtasksOfEpic(each.getId());
+            assertEquals(perEpic - perEpic / 10, left.size());
+            assertEquals(TaskStatus.IN_PROGRESS, each.getStatus());
+            assertEquals(BASE.plusHours(1), each.getStartTime());
+            assertEquals(BASE.plusHours(perEpic), each.getEndTime());
+            left.forEach(subtask -> ids.add(subtask.getId()));
+        }
+        assertEquals(THREADS * (perEpic - perEpic / 10), ids.size(), "id выданы дважды");
+        assertEquals(2 + ids.size(), manager.getPrioritizedTasks().size());
+    }
+
+    @Test
+    void clashingTasksOfOneAssigneeAreAcceptedOnce() throws Exception {
+        int slots = 50;
+        AtomicInteger accepted = new AtomicInteger();
+        inParallel(THREADS, worker -> {
+            for (int k = 0; k < slots; k++) {
+                Task each = new Task("Task " + worker + "/" + k, "Description", TaskStatus.NEW, 60);
+                // Соседние потоки берут разные, но пересекающиеся интервалы
+                each.setStartTime(BASE.plusHours(k).plusMinutes(worker % 2 == 0 ? 0 : 30));
+                each.setAssignee("shared");
+                try {
+                    manager.addTask(each);
+                    accepted.incrementAndGet();
+                } catch (IllegalArgumentException e) {
+                    // занято другим потоком
+                }
+            }
+        });
+
+        List<Task> calendar = new ArrayList<>();
+        for (Task each : manager.getPrioritizedTasks()) {
+            if ("shared".equals(each.getAssignee())) {
+                calendar.add(each);
+            }
+        }
+        assertEquals(accepted.get(), calendar.size());
+        for (int i = 1; i < calendar.size(); i++) {
+            assertFalse(calendar.get(i).getStartTime().isBefore(calendar.get(i - 1).getEndTime()),
+                    "Пересечение " + calendar.get(i - 1).getName() + " и " + calendar.get(i).getName());
+        }
+        assertFalse(manager.getFreeAssignees(BASE, BASE.plusHours(1)).contains("shared"));
+    }
+
+    @Test
+    void clashingUnassignedTasksAreAcceptedOnce() throws Exception {
+        int slots = 50;
+        AtomicInteger accepted = new AtomicInteger();
+        inParallel(THREADS, worker -> {
+            for (int k = 0; k < slots; k++) {
+                Task each = new Task("Task " + worker + "/" + k, "Description", TaskStatus.NEW, 60);
+                // Интервал нечётного потока лежит в двух часах, чётного - в одном: общий час у них есть
+                each.setStartTime(BASE.plusHours(k).plusMinutes(worker % 2 == 0 ? 0 : 30));
+                try {
+                    manager.addTask(each);
+                    accepted.incrementAndGet();
+                } catch (IllegalArgumentException e) {
+                    // занято другим потоком
+                }
+            }
+        });
+
+        List<Task> calendar = new ArrayList<>();
+        for (Task each : manager.getPrioritizedTasks()) {
+            if (each.getStartTime() != null) {
+                calendar.add(each);
+            }
+        }
+        assertEquals(accepted.get(), calendar.size());
+        for (int i = 1; i < calendar.size(); i++) {
+            assertFalse(calendar.get(i).getStartTime().isBefore(calendar.get(i - 1).getEndTime()),
+                    "Пересечение " + calendar.get(i - 1).getName() + " и " + calendar.get(i).getName());
+        }
+    }
+
+    @Test
+    void unassignedTasksInOtherHoursDoNotWait() throws Exception {
+        Task held = new Task("Held", "Description", TaskStatus.NEW, 60);
+        held.setStartTime(BASE);
+        List<ReentrantLock> locks = manager.timeline().locksFor(held);
+        locks.forEach(ReentrantLock::lock);
+        try {
+            // Без времени и в другие часы задача без исполнителя пишется, пока час BASE занят
+            Task later = new Task("Later", "Description", TaskStatus.NEW, 60);
+            later.setStartTime(BASE.plusHours(3));
+            Subtask untimed = new Subtask(epic.getId(), "Untimed", "Description", TaskStatus.NEW);
+            Thread writer = new Thread(() -> {
+                manager.addTask(later);
+                manager.addSubtask(untimed);
+            });
+            writer.start();
+            writer.join(10_000);
+            assertFalse(writer.isAlive(), "Запись в свободные часы ждала чужой замок");
+            assertNotNull(manager.getTaskById(later.getId()));
+            assertNotNull(manager.getSubtaskById(untimed.getId()));
+
+            // Пересекающаяся задача ждёт замок своего часа
+            Task clashing = new Task("Clashing", "Description", TaskStatus.NEW, 30);
+            clashing.setStartTime(BASE.plusMinutes(15));
+            Thread blocked = new Thread(() -> manager.addTask(clashing));
+            blocked.start();
+            blocked.join(100);
+            assertTrue(blocked.isAlive(), "Пересекающаяся задача прошла без замка своего часа");
+            locks.forEach(ReentrantLock::unlock);
+            locks = List.of();
+            blocked.join();
+        } finally {
+            locks.forEach(ReentrantLock::unlock);
+        }
+    }
+
+    @Test
+    void subtaskMovedToAnotherEpicIsListedThere() {
+        Epic other = new Epic("Other epic", "Other", TaskStatus.NEW);
+        manager.addEpic(other);
+        Subtask moved = new Subtask(other.getId(), subtask.getId(), "Moved", "Description", TaskStatus.DONE);
+        manager.updateSubtask(moved);
+
+        assertEquals(List.of(), manager.getSubtasksOfEpic(epic.getId()));
+        assertEquals(List.of(moved), manager.getSubtasksOfEpic(other.getId()));
+        assertEquals(TaskStatus.NEW, manager.getEpicById(epic.getId()).getStatus());
+        assertEquals(TaskStatus.DONE, manager.getEpicById(other.getId()).getStatus());
+
+        // Следующее обновление в новом эпике идёт под его полосой
+        moved.setStatus(TaskStatus.NEW);
+        manager.updateSubtask(moved);
+        assertEquals(TaskStatus.NEW, manager.getEpicById(other.getId()).getStatus());
+        assertEquals(List.of(moved), manager.snapshot().getSubtasksOfEpic(other.getId()));
+        assertEquals(List.of(), manager.snapshot().getSubtasksOfEpic(epic.getId()));
+    }
+
+    @Test
+    void readsRunAlongsideWrites() throws Exception {
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        Thread reader = new Thread(() -> {
+            try {
+                while (writing.get()) {
+                    List<Task> window = manager.getPrioritizedTasks(BASE, BASE.plusDays(3));
+                    for (int i = 1; i < window.size(); i++) {
+                        assertFalse(window.get(i).getStartTime().isBefore(window.get(i - 1).getStartTime()));
+                    }
+                    manager.getNextTasks(BASE, 50);
+                    manager.getSubtasksOfEpic(epic.getId());
+                    manager.findFreeSlots(Duration.ofMinutes(30), BASE, BASE.plusDays(1), 5, null);
+                    manager.getFreeAssignees(BASE, BASE.plusHours(1));
+                }
+            } catch (Throwable e) {
+                failures.add(e);
+            }
+        });
+        reader.start();
+        try {
+            inParallel(4, worker -> {
+                for (int j = 0; j < 300; j++) {
+                    Subtask each = new Subtask(epic.getId(), "Subtask " + j, "Description", TaskStatus.NEW, 30);
+                    each.setStartTime(BASE.plusHours(j % 48));
+                    each.setAssignee("worker " + worker);
+                    try {
+                        manager.addSubtask(each);
+                    } catch (IllegalArgumentException e) {
+                        continue;
+                    }
+                    if (j % 3 == 0) {
+                        manager.removeSubtask(each.getId());
+                    }
+                }
+            });
+        } finally {
+            writing.set(false);
+            reader.join();
+        }
+        assertTrue(failures.isEmpty(), () -> "Чтение упало: " + failures.peek());
+        assertEquals(manager.getSubtasks().size(), manager.getSubtasksOfEpic(epic.getId()).size());
+    }
+
+    @Test
+    void bulkShiftWaitsForParallelEdits() throws Exception {
+        inParallel(THREADS, worker -> {
+            for (int j = 0; j < 50; j++) {
+                Subtask each = new Subtask(epic.getId(), "Subtask " + j, "Description", TaskStatus.NEW, 60);
+                each.setStartTime(BASE.plusHours(j));
+                each.setAssignee("worker " + worker);
+                manager.addSubtask(each);
+                if (worker == 0 && j % 10 == 9) {
+                    manager.shiftEpic(epic.getId(), Duration.ofDays(30));
+                }
+            }
+        });
+        // Каждый сдвиг переносит эпик целиком: подзадачи одного исполнителя не пересекаются
+        for (int worker = 0; worker < THREADS; worker++) {
+            String assignee = "worker " + worker;
+            List<Task> own = new ArrayList<>();
+            for (Task each : manager.getPrioritizedTasks()) {
+                if (assignee.equals(each.getAssignee())) {
+                    own.add(each);
+                }
+            }
+            assertEquals(50, own.size());
+            for (int i = 1; i < own.size(); i++) {
+                assertFalse(own.get(i).getStartTime().isBefore(own.get(i - 1).getEndTime()));
+            }
+        }
+        assertEquals(1 + THREADS * 50, manager.getSubtasksOfEpic(epic.getId()).size());
+    }
+
+    @Test
+    void snapshotsTakenDuringWritesAreConsistent() throws Exception {
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Epic each = new Epic("Epic " + i, "Description", TaskStatus.NEW);
+            manager.addEpic(each);
+            epics.add(each);
+        }
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        Thread reader = new Thread(() -> {
+            try {
+                long version = -1;
+                while (writing.get()) {
+                    TaskSnapshot snapshot = manager.snapshot();
+                    assertTrue(snapshot.getVersion() >= version, "Версии идут назад");
+                    version = snapshot.getVersion();
+                    int listed = 0;
+                    for (Epic each : snapshot.getEpics()) {
+                        // Список эпика и подзадачи снимка - из одной версии
+                        List<Subtask> own = snapshot.getSubtasksOfEpic(each.getId());
+                        assertEquals(each.getSubtaskOfEpicIDs().size(), own.size());
+                        for (Subtask member : own) {
+                            assertEquals(each.getId(), member.getEpicId());
+                        }
+                        listed += own.size();
+                    }
+                    assertEquals(snapshot.getSubtasks().size(), listed);
+                    List<Task> window = snapshot.getPrioritizedTasks(BASE, BASE.plusDays(2));
+                    for (int i = 1; i < window.size(); i++) {
+                        assertFalse(window.get(i).getStartTime().isBefore(window.get(i - 1).getStartTime()));
+                    }
+                }
+            } catch (Throwable e) {
+                failures.add(e);
+            }
+        });
+        manager.snapshot();
+        reader.start();
+        try {
+            inParallel(4, worker -> {
+                Epic own = epics.get(worker);
+                for (int j = 0; j < 200; j++) {
+                    Subtask each = new Subtask(own.getId(), "Subtask " + j, "Description", TaskStatus.NEW, 30);
+                    each.setStartTime(BASE.plusHours(j % 48));
+                    each.setAssignee("worker " + worker);
+                    try {
+                        manager.addSubtask(each);
+                    } catch (IllegalArgumentException e) {
+                        continue;
+                    }
+                    if (j % 3 == 0) {
+                        manager.removeSubtask(each.getId());
+                    }
+                }
+            });
+        } finally {
+            writing.set(false);
+            reader.join();
+        }
+        assertTrue(failures.isEmpty(), () -> "Снимок несогласован: " + failures.peek());
+        TaskSnapshot last = manager.snapshot();
+        assertEquals(manager.getSubtasks().size(), last.getSubtasks().size());
+        for (Epic each : epics) {
+            assertEquals(manager.getSubtasksOfEpic(each.getId()), last.getSubtasksOfEpic(each.getId()));
+            assertEquals(each.getStartTime(), last.getTask(each.getId()).getStartTime());
+        }
+    }
+
+    // Все потоки стартуют одновременно; исключение из любого потока падает в тест
+    private static void inParallel(int threads, IntConsumer body) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                int worker = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    body.accept(worker);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package manager;
+
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Пересчёт графа зависимостей после изменения длительности одной задачи в большом плане:
+// цепочки по CHAIN задач, каждая задача дополнительно зависит от случайной задачи
+// соседней цепочки. Меняются задачи в конце цепочек, поэтому затронутый подграф невелик.
+// Запуск: java manager.CriticalPathBenchmark [задач] [изменений]
+public class CriticalPathBenchmark {
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final int CHAIN = 1000;
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int updates = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        List<Task> items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Task task = new Task("Task " + i, "Description", TaskStatus.NEW, 30 + i % 7 * 10);
+            // Цепочка - работа одной команды, начала цепочек в календарях разных команд не пересекаются
+            task.setAssignee("team " + i / CHAIN);
+            if (i % CHAIN == 0) {
+                task.setStartTime(BASE);
+            }
+            items.add(task);
+        }
+        manager.addAll(items);
+
+        Random random = new Random(42);
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            if (i % CHAIN != 0) {
+                manager.addDependency(items.get(i - 1).getId(), items.get(i).getId());
+            }
+            if (i >= CHAIN && i % CHAIN > 1) {
+                int other = i - CHAIN - random.nextInt(i % CHAIN);
+                manager.addDependency(items.get(other).getId(), items.get(i).getId());
+            }
+        }
+        long built = System.nanoTime();
+        System.out.printf("%,d tasks linked in %,d ms, project ends %s%n",
+                count, (built - start) / 1_000_000, manager.getLatestFinish(items.get(count - 1).getId()));
+
+        for (int round = 0; round < 3; round++) {
+            long begin = System.nanoTime();
+            for (int i = 0; i < updates; i++) {
+                Task task = items.get(random.nextInt(count / CHAIN) * CHAIN + CHAIN - 1 - random.nextInt(50));
+                task.setDuration(30 + random.nextInt(60));
+                manager.updateTask(task);
+            }
+            long micros = (System.nanoTime() - begin) / 1_000;
+            System.out.printf("%,d duration updates: %,d us each, critical path of %,d tasks%n",
+                    updates, micros / updates, manager.getCriticalPath().size());
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package manager;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+import tasks.TaskType;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Сравнение прежних toString/fromString (String.format и split) с CsvTaskCodec:
+// строк в секунду и выделенных байт на строку при записи и разборе.
+// Запуск: java manager.CsvCodecBenchmark [количество задач]
+public class CsvCodecBenchmark {
+    private static final int ROUNDS = 5;
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    public static void main(String[] args) throws IOException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 500_000;
+        List<Task> rows = generate(size);
+        List<String> lines = new ArrayList<>(size);
+        CsvTaskCodec codec = new CsvTaskCodec();
+        for (Task row : rows) {
+            lines.add(codec.encode(row));
+        }
+        NullWriter sink = new NullWriter();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            measure("encode legacy", size, () -> {
+                for (Task row : rows) {
+                    sink.write(legacyToString(row));
+                    sink.write('\n');
+                }
+            });
+            measure("encode codec ", size, () -> {
+                for (Task row : rows) {
+                    codec.write(row, sink);
+                    sink.write('\n');
+                }
+            });
+            measure("decode legacy", size, () -> {
+                for (String line : lines) {
+                    sink.consume(legacyFromString(line));
+                }
+            });
+            measure("decode codec ", size, () -> {
+                for (String line : lines) {
+                    sink.consume(codec.parse(line));
+                }
+            });
+            System.out.println();
+        }
+        System.out.println(sink.chars + " " + sink.tasks);
+    }
+
+    private static void measure(String name, int size, Body body) throws IOException {
+        long bytes = THREADS.getCurrentThreadAllocatedBytes();
+        long start = System.nanoTime();
+        body.run();
+        long nanos = System.nanoTime() - start;
+        bytes = THREADS.getCurrentThreadAllocatedBytes() - bytes;
+        System.out.printf("%s: %,d rows/s, %d bytes/row%n", name, size * 1_000_000_000L / nanos, bytes / size);
+    }
+
+    private interface Body {
+        void run() throws IOException;
+    }
+
+    // Writer, который только считает символы, чтобы мерить кодирование без диска
+    private static final class NullWriter extends Writer {
+        private long chars;
+        private long tasks;
+
+        void consume(Task task) {
+            tasks += task.getId();
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+            chars += length;
+        }
+
+        @Override
+        public void write(String text) {
+            chars += text.length();
+        }
+
+        @Override
+        public void write(int c) {
+            chars++;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static String legacyToString(Task task) {
+        String duration = task.getDuration() != null ? String.valueOf(task.getDuration().toMinutes()) : "null";
+        String startTime = task.getStartTime() != null ? task.getStartTime().toString() : "null";
+        if (task.getType() == TaskType.SUBTASK) {
+            Subtask subtask = (Subtask) task;
+            return String.format("%d,SUBTASK,%s,%s,%s,%s,%s,%d",
+                    subtask.getId(), subtask.getName(), subtask.getStatus(),
+                    subtask.getDescription(), duration, startTime, subtask.getEpicId());
+        }
+        return String.format("%d,%s,%s,%s,%s,%s,%s",
+                task.getId(), task.getType(), task.getName(), task.getStatus(), task.getDescription(),
+                duration, startTime);
+    }
+
+    private static Task legacyFromString(String value) {
+        String[] fields = value.split(",");
+        int id = Integer.parseInt(fields[0]);
+        TaskType type = TaskType.valueOf(fields[1].toUpperCase());
+        TaskStatus status = TaskStatus.valueOf(fields[3]);
+        Duration duration = fields[5].equals("null") ? Duration.ZERO : Duration.ofMinutes(Long.parseLong(fields[5]));
+        LocalDateTime startTime = fields[6].equals("null") ? null : LocalDateTime.parse(fields[6]);
+        Task task;
+        switch (type) {
+            case EPIC:
+                task = new Epic(id, fields[2], fields[4], status);
+                break;
+            case SUBTASK:
+                task = new Subtask(Integer.parseInt(fields[7]), id, fields[2], fields[4], status);
+                break;
+            default:
+                task = new Task(id, fields[2], fields[4], status);
+        }
+        task.setDuration(duration);
+        task.setStartTime(startTime);
+        return task;
+    }
+
+    private static List<Task> generate(int size) {
+        List<Task> rows = new ArrayList<>(size);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 1; i <= size; i++) {
+            Task task = i % 10 == 0
+                    ? new Subtask(i - 1, i, "Subtask " + i, "Description of subtask " + i, TaskStatus.values()[i % 3])
+                    : new Task(i, "Task " + i, "Description of task " + i, TaskStatus.values()[i % 3]);
+            task.setDuration(15);
+            task.setStartTime(start.plusMinutes(15L * i));
+            rows.add(task);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,67 @@
+package manager;
+
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+// Сравнение загрузки CSV: Files.readAllLines + CsvTaskCodec против ParallelCsvLoader.
+// Запуск: java manager.CsvLoaderBenchmark [количество задач]
+public class CsvLoaderBenchmark {
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        File file = File.createTempFile("csv-loader-benchmark", ".csv");
+        file.deleteOnExit();
+        FileBackedTaskManager.writeRows(file, generate(size), SnapshotFormat.CSV);
+        System.out.printf("%d tasks, %d MB%n", size, file.length() >> 20);
+
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            int lines = readAllLines(file).size();
+            long readAllLines = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int sequential = ParallelCsvLoader.load(file, new ForkJoinPool(1)).size();
+            long oneThread = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int parallel = ParallelCsvLoader.load(file).size();
+            long allThreads = System.nanoTime() - start;
+
+            System.out.printf("readAllLines: %d ms, mapped x1: %d ms, mapped x%d: %d ms (%d/%d/%d rows)%n",
+                    readAllLines / 1_000_000, oneThread / 1_000_000,
+                    ForkJoinPool.commonPool().getParallelism(), allThreads / 1_000_000,
+                    lines, sequential, parallel);
+        }
+    }
+
+    private static List<Task> readAllLines(File file) throws IOException {
+        List<String> lines = Files.readAllLines(file.toPath());
+        List<Task> rows = new ArrayList<>(lines.size());
+        CsvTaskCodec codec = new CsvTaskCodec();
+        for (String line : lines.subList(1, lines.size())) {
+            rows.add(codec.parse(line));
+        }
+        return rows;
+    }
+
+    private static List<Task> generate(int size) {
+        List<Task> rows = new ArrayList<>(size);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        for (int i = 1; i <= size; i++) {
+            Task task = new Task(i, "Task " + i, "Description of task " + i, TaskStatus.values()[i % 3]);
+            task.setDuration(15);
+            task.setStartTime(start.plusMinutes(15L * i));
+            rows.add(task);
+        }
+        return rows;
+    }
+}
@@ -4,20 +4,32 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import tasks.Epic;
+import tasks.RecurrenceRule;
+import tasks.RecurringTask;
 import tasks.Task;
+import tasks.TaskStatus;
 import manager.FileBackedTaskManager;
 
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 
 class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
+    private final File journalFile = new File("data.csv.log");
+    private final File segmentDir = new File("data.csv.segments");
 
     @BeforeEach
     void setUp() throws IOException {
@@ -28,6 +40,14 @@ class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
     @AfterEach
     void tearDown() {
         file.delete();
+        journalFile.delete();
+        File[] segmentFiles = segmentDir.listFiles();
+        if (segmentFiles != null) {
+            for (File segment : segmentFiles) {
+                segment.delete();
+            }
+        }
+        segmentDir.delete();
     }
 
     @Test
@@ -138,5 +158,475 @@ class FileBackedTaskManagerTest extends TaskManagerTest<FileBackedTaskManager> {
             FileBackedTaskManager.loadFromFile(file);
         }, "Expected ManagerSaveException to be thrown, but it was not");
     }
-}
 
+    @Test
+    public void journaledManagerAppendsOneRecordPerMutation() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, journalFile);
+        journaled.addTask(task);
+        journaled.addEpic(epic);
+        journaled.addSubtask(subtask);
+        journaled.close();
+
+        assertFalse(file.exists(), "Snapshot should not be written on every mutation");
+        assertEquals(3, Files.readAllLines(journalFile.toPath()).size());
+    }
+
+    @Test
+    public void journalIsReplayedOverSnapshot() {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, journalFile);
+        journaled.addTask(task);
+        journaled.addEpic(epic);
+        journaled.checkpoint();
+
+        journaled.addSubtask(subtask);
+        task.setName("Renamed Task");
+        journaled.updateTask(task);
+        journaled.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, journalFile);
+        assertEquals("Renamed Task", loaded.getTaskById(task.getId()).getName());
+        assertEquals(List.of(subtask.getId()), loaded.getEpicById(epic.getId()).getSubtaskOfEpicIDs());
+        loaded.close();
+    }
+
+    @Test
+    public void journalReplaysRemovals() {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, journalFile);
+        journaled.addTask(task);
+        journaled.addEpic(epic);
+        journaled.addSubtask(subtask);
+        journaled.removeEpic(epic.getId());
+        journaled.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, journalFile);
+        assertEquals(1, loaded.getAllTasks().size());
+        assertTrue(loaded.getSubtasks().isEmpty());
+        loaded.close();
+    }
+
+    @Test
+    public void updateOfRemovedTaskDoesNotBringItBack() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, journalFile);
+        journaled.addTask(task);
+        journaled.addEpic(epic);
+        Task stale = new Task(task.getId(), "Stale copy", "Description", TaskStatus.DONE);
+        Epic staleEpic = new Epic(epic.getId(), "Stale epic", "Description", TaskStatus.NEW);
+        journaled.removeTask(task.getId());
+        journaled.removeEpic(epic.getId());
+        journaled.updateTask(stale);
+        journaled.updateEpic(staleEpic);
+        journaled.close();
+
+        List<String> records = Files.readAllLines(journalFile.toPath());
+        assertEquals(4, records.size(), "Update of a missing task should not be journaled");
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, journalFile);
+        assertTrue(loaded.getAllTasks().isEmpty());
+        loaded.close();
+
+        // Журнал, где такое обновление уже записано: при повторе оно пропускается
+        Files.writeString(journalFile.toPath(), records.get(0).replaceFirst("ADD", "UPDATE")
+                + System.lineSeparator(), StandardOpenOption.APPEND);
+        loaded = FileBackedTaskManager.loadFromFile(file, journalFile);
+        assertTrue(loaded.getAllTasks().isEmpty());
+        loaded.close();
+    }
+
+    @Test
+    public void checkpointTruncatesJournal() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, journalFile);
+        journaled.addTask(task);
+        journaled.checkpoint();
+        journaled.close();
+
+        assertTrue(Files.readAllLines(journalFile.toPath()).isEmpty());
+        assertEquals(2, Files.readAllLines(file.toPath()).size());
+    }
+
+    @Test
+    public void journalIsCompactedInBackgroundWhenThresholdReached() {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, journalFile);
+        journaled.setCompactionThresholds(0, 2);
+        journaled.addTask(task);
+        journaled.addEpic(epic);
+        journaled.addSubtask(subtask);
+        journaled.close();
+
+        CompactionStats stats = journaled.getCompactionStats();
+        assertEquals(1, stats.getSnapshotsWritten());
+        assertEquals(1, stats.getRecordsSinceSnapshot());
+        assertFalse(stats.isSnapshotInProgress());
+        assertTrue(file.exists(), "Background snapshot should be written");
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, journalFile);
+        assertEquals(3, loaded.getAllTasks().size());
+        assertEquals(List.of(subtask.getId()), loaded.getEpicById(epic.getId()).getSubtaskOfEpicIDs());
+        loaded.close();
+    }
+
+    @Test
+    public void backgroundSnapshotWritesVersionTakenAtRotation() {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, journalFile);
+        journaled.setCompactionThresholds(0, 2);
+        journaled.addTask(task);
+        journaled.addEpic(epic);
+        // Версия зафиксирована вместе с ротацией журнала: изменение на месте после неё в снимок не попадает
+        task.setName("Changed in place");
+        journaled.close();
+
+        assertTrue(journaled.isPublishing(), "Snapshot should be taken from a published version");
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, journalFile);
+        assertEquals("Sample Task", loaded.getTaskById(task.getId()).getName());
+        loaded.close();
+    }
+
+    @Test
+    public void binarySnapshotIsDetectedOnLoad() {
+        task.setStartTime(2024, 9, 1, 9, 0);
+        task.setDuration(30);
+        manager.setSnapshotFormat(SnapshotFormat.BINARY);
+        manager.addTask(task);
+        manager.addEpic(epic);
+        manager.addSubtask(subtask);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+        assertEquals(SnapshotFormat.BINARY, loaded.getSnapshotFormat());
+        assertEquals(task, loaded.getTaskById(task.getId()));
+        assertEquals(task.getStartTime(), loaded.getTaskById(task.getId()).getStartTime());
+        assertEquals(subtask, loaded.getSubtaskById(subtask.getId()));
+        assertEquals(List.of(subtask.getId()), loaded.getEpicById(epic.getId()).getSubtaskOfEpicIDs());
+    }
+
+    @Test
+    public void convertingCsvToBinaryAndBackKeepsTasks() throws IOException {
+        task.setName("Converted Task");
+        manager.addTask(task);
+        manager.addEpic(epic);
+        manager.addSubtask(subtask);
+        File binary = new File("data.bin");
+        File csv = new File("data-converted.csv");
+        try {
+            FileBackedTaskManager.writeRows(binary, List.of(task, epic, subtask), SnapshotFormat.BINARY);
+            TaskFileConverter.convert(binary, csv, SnapshotFormat.CSV);
+            TaskFileConverter.convert(csv, file, SnapshotFormat.BINARY);
+
+            FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+            assertEquals("Converted Task", loaded.getTaskById(task.getId()).getName());
+            assertEquals(subtask, loaded.getSubtaskById(subtask.getId()));
+            assertTrue(csv.length() > 0);
+        } finally {
+            binary.delete();
+            csv.delete();
+        }
+    }
+
+    @Test
+    public void loadingRestoresEpicStatusAndIdGenerator() throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file.toPath())) {
+            writer.write("id,type,name,status,description,duration,start time,epic\n");
+            writer.write("1000,EPIC,Epic,NEW,Epic description,null,null\n");
+            writer.write("1001,SUBTASK,Sub 1,DONE,Description,30,2024-09-01T09:00,1000\n");
+            writer.write("1002,SUBTASK,Sub 2,DONE,Description,30,2024-09-01T10:00,1000\n");
+        }
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+        Epic loadedEpic = loaded.getEpicById(1000);
+        assertEquals(TaskStatus.DONE, loadedEpic.getStatus());
+        assertEquals(List.of(1001, 1002), loadedEpic.getSubtaskOfEpicIDs());
+        assertEquals(2, loaded.getPrioritizedTasks().size());
+
+        Task added = new Task("New Task", "Description", TaskStatus.NEW);
+        loaded.addTask(added);
+        assertTrue(added.getId() > 1002, "Generated id should be above loaded ids");
+    }
+
+    @Test
+    public void writeBehindJournalIsWrittenOnFlush() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, journalFile);
+        journaled.setDurabilityPolicy(DurabilityPolicy.GROUP_COMMIT, 60_000, 1_000);
+        journaled.addTask(task);
+        journaled.addEpic(epic);
+        journaled.addSubtask(subtask);
+        assertFalse(journalFile.exists(), "Changes should wait for the flusher");
+
+        journaled.flush();
+        assertEquals(3, Files.readAllLines(journalFile.toPath()).size());
+        journaled.close();
+    }
+
+    @Test
+    public void writeBehindSnapshotIsWrittenOnClose() throws IOException {
+        manager.setDurabilityPolicy(DurabilityPolicy.ASYNC, 60_000, 1_000);
+        manager.addTask(task);
+        manager.addEpic(epic);
+        assertFalse(file.exists(), "Changes should wait for the flusher");
+
+        manager.close();
+        assertEquals(3, Files.readAllLines(file.toPath()).size());
+    }
+
+    @Test
+    public void writeBehindFlushesWhenBatchIsFull() throws InterruptedException {
+        manager.setDurabilityPolicy(DurabilityPolicy.ASYNC, 60_000, 2);
+        manager.addTask(task);
+        manager.addEpic(epic);
+
+        for (int i = 0; i < 100 && !file.exists(); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(file.exists(), "Full batch should be flushed without waiting for the interval");
+        manager.close();
+    }
+
+    @Test
+    public void batchIsJournaledInOneAppend() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, journalFile);
+        BatchResult result = journaled.addAll(List.of(task, epic, subtask));
+        journaled.close();
+
+        assertFalse(result.hasFailures());
+        assertEquals(3, Files.readAllLines(journalFile.toPath()).size());
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, journalFile);
+        assertEquals(3, loaded.getAllTasks().size());
+        loaded.close();
+    }
+
+    @Test
+    public void autoScheduleIsJournaledAsOneBatch() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, journalFile);
+        journaled.addAll(List.of(task, epic, subtask));
+        Map<Integer, LocalDateTime> planned = journaled.autoSchedule(new ScheduleOptions(
+                LocalDateTime.of(2024, 9, 11, 9, 0), LocalDateTime.of(2024, 9, 11, 18, 0)));
+        journaled.close();
+
+        assertEquals(2, planned.size());
+        assertEquals(3, Files.readAllLines(journalFile.toPath()).size() - planned.size());
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, journalFile);
+        assertEquals(planned.get(task.getId()), loaded.getTaskById(task.getId()).getStartTime());
+        assertEquals(planned.get(subtask.getId()), loaded.getEpicById(epic.getId()).getStartTime());
+        loaded.close();
+    }
+
+    @Test
+    public void shiftIsJournaledAsOneBatch() throws IOException {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, journalFile);
+        subtask.setStartTime(2024, 9, 11, 9, 0);
+        journaled.addAll(List.of(epic, subtask));
+        int linesBefore = Files.readAllLines(journalFile.toPath()).size();
+        journaled.shiftEpic(epic.getId(), Duration.ofHours(2));
+        journaled.close();
+
+        assertEquals(linesBefore + 1, Files.readAllLines(journalFile.toPath()).size());
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, journalFile);
+        assertEquals(LocalDateTime.of(2024, 9, 11, 11, 0), loaded.getEpicById(epic.getId()).getStartTime());
+        loaded.close();
+    }
+
+    @Test
+    public void recurringTaskIsStoredAsOneRowInBothFormats() throws IOException {
+        RecurringTask standup = new RecurringTask("Standup", "Description", TaskStatus.NEW, 15,
+                RecurrenceRule.daily().until(LocalDateTime.of(2030, 1, 1, 0, 0)));
+        standup.setStartTime(2024, 9, 2, 9, 0);
+        manager.addTask(standup);
+        assertEquals(2, Files.readAllLines(file.toPath()).size());
+
+        File binary = new File("data.bin");
+        try {
+            FileBackedTaskManager.writeRows(binary, List.of(standup), SnapshotFormat.BINARY);
+            for (File snapshot : List.of(file, binary)) {
+                FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(snapshot);
+                assertEquals(standup, loaded.getTaskById(standup.getId()));
+                List<Task> day = loaded.getPrioritizedTasks(LocalDateTime.of(2029, 12, 31, 0, 0),
+                        LocalDateTime.of(2030, 1, 2, 0, 0));
+                assertEquals(1, day.size(), "Only occurrences up to the until date should exist");
+            }
+        } finally {
+            binary.delete();
+        }
+    }
+
+    @Test
+    public void assigneeIsStoredInBothFormats() throws IOException {
+        Task task = new Task("Report", "Description", TaskStatus.NEW, 60);
+        task.setAssignee("Иванов, отдел 2");
+        task.setStartTime(2024, 9, 2, 9, 0);
+        manager.addTask(task);
+        Task unassigned = new Task("Unassigned", "Description", TaskStatus.NEW, 60);
+        unassigned.setStartTime(2024, 9, 2, 9, 0);
+        manager.addTask(unassigned);
+
+        File binary = new File("data.bin");
+        try {
+            FileBackedTaskManager.writeRows(binary, List.of(task, unassigned), SnapshotFormat.BINARY);
+            for (File snapshot : List.of(file, binary)) {
+                FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(snapshot);
+                assertEquals("Иванов, отдел 2", loaded.getTaskById(task.getId()).getAssignee());
+                assertEquals(null, loaded.getTaskById(unassigned.getId()).getAssignee());
+            }
+        } finally {
+            binary.delete();
+        }
+    }
+
+    @Test
+    public void csvSnapshotKeepsCommasQuotesAndNewlines() {
+        Task tricky = new Task("Купить молоко, хлеб", "Сказать \"спасибо\"\nи уйти,\r\nпотом", TaskStatus.NEW);
+        Task literalNull = new Task("null", null, TaskStatus.DONE);
+        manager.addTask(tricky);
+        manager.addTask(literalNull);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+        Task loadedTricky = loaded.getTaskById(tricky.getId());
+        Task loadedNull = loaded.getTaskById(literalNull.getId());
+        assertEquals(tricky.getName(), loadedTricky.getName());
+        assertEquals(tricky.getDescription(), loadedTricky.getDescription());
+        assertEquals("null", loadedNull.getName(), "Literal \"null\" should stay a string");
+        assertEquals(null, loadedNull.getDescription());
+    }
+
+    @Test
+    public void journalReplayKeepsEscapedFields() {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, journalFile);
+        Task tricky = new Task("a,b", "line one\nline \"two\"", TaskStatus.IN_PROGRESS);
+        journaled.addTask(tricky);
+        journaled.addEpic(epic);
+        journaled.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, journalFile);
+        assertEquals(2, loaded.getAllTasks().size());
+        assertEquals("a,b", loaded.getTaskById(tricky.getId()).getName());
+        assertEquals("line one\nline \"two\"", loaded.getTaskById(tricky.getId()).getDescription());
+        loaded.close();
+    }
+
+    @Test
+    public void lazyDescriptionsMatchEagerLoad() {
+        String longText = "Длинное описание, с запятыми и \"кавычками\",\nна нескольких строках. ".repeat(4);
+        Task lazyTask = new Task("Lazy", longText, TaskStatus.NEW);
+        Task shortTask = new Task("Short", "short", TaskStatus.DONE);
+        manager.addTask(lazyTask);
+        manager.addTask(shortTask);
+        manager.addEpic(epic);
+
+        FileBackedTaskManager eager = FileBackedTaskManager.loadFromFile(file);
+        FileBackedTaskManager lazy = FileBackedTaskManager.loadFromFile(file, true);
+        assertTrue(lazy.getTaskById(lazyTask.getId()).getDescriptionSource() != null,
+                "Long description should stay on disk");
+        assertEquals(null, lazy.getTaskById(shortTask.getId()).getDescriptionSource());
+        // Отложенная задача равна той же задаче, загруженной сразу, и исходной в памяти
+        assertEquals(eager.getTaskById(lazyTask.getId()), lazy.getTaskById(lazyTask.getId()));
+        assertEquals(lazy.getTaskById(lazyTask.getId()), eager.getTaskById(lazyTask.getId()));
+        assertEquals(lazyTask, lazy.getTaskById(lazyTask.getId()));
+        assertEquals(eager.getTaskById(lazyTask.getId()).hashCode(), lazy.getTaskById(lazyTask.getId()).hashCode());
+        assertEquals(longText, lazy.getTaskById(lazyTask.getId()).getDescription());
+        List<Task> eagerTasks = eager.getAllTasks();
+        List<Task> lazyTasks = lazy.getAllTasks();
+        assertEquals(eagerTasks, lazyTasks);
+        for (int i = 0; i < eagerTasks.size(); i++) {
+            assertEquals(eagerTasks.get(i).getDescription(), lazyTasks.get(i).getDescription());
+        }
+
+        // Снимок перезаписывается, а отложенные описания продолжают читаться из прежней версии
+        lazy.addTask(new Task("Another", "text", TaskStatus.NEW));
+        assertEquals(longText, lazy.getTaskById(lazyTask.getId()).getDescription());
+        Task stored = lazy.getTaskById(lazyTask.getId());
+        Task copy = TaskCopies.copyOf(stored);
+        lazy.close();
+
+        // Равенство и хеш отложенной задачи не читают описание: после закрытия источника работают
+        assertEquals(stored, copy);
+        assertEquals(stored.hashCode(), copy.hashCode());
+        assertTrue(Set.of(stored).contains(copy));
+        assertEquals(eager.getTaskById(lazyTask.getId()), stored);
+        assertEquals(longText, FileBackedTaskManager.loadFromFile(file).getTaskById(lazyTask.getId()).getDescription());
+    }
+
+    @Test
+    public void lazyDescriptionsFromBinarySnapshot() {
+        String longText = "Binary description that is long enough to be left on disk. ".repeat(3);
+        Task lazyTask = new Task("Lazy", longText, TaskStatus.IN_PROGRESS);
+        manager.setSnapshotFormat(SnapshotFormat.BINARY);
+        manager.addTask(lazyTask);
+        manager.addEpic(epic);
+
+        FileBackedTaskManager lazy = FileBackedTaskManager.loadFromFile(file, true);
+        assertTrue(lazy.getTaskById(lazyTask.getId()).getDescriptionSource() != null);
+        assertEquals(longText, lazy.getTaskById(lazyTask.getId()).getDescription());
+        assertEquals(epic.getDescription(), lazy.getEpicById(epic.getId()).getDescription());
+        lazy.close();
+    }
+
+    @Test
+    public void segmentedSaveRewritesOnlyChangedEpic() {
+        Epic other = new Epic("Other epic", "Other", TaskStatus.NEW);
+        manager.addTask(task);
+        manager.addEpic(epic);
+        manager.addSubtask(subtask);
+        manager.addEpic(other);
+        manager.setStorageLayout(StorageLayout.SEGMENTED);
+        assertEquals(3, segmentDir.listFiles().length, "Task page and two epic segments");
+
+        File[] before = segmentDir.listFiles((dir, name) -> !name.startsWith("epic-" + epic.getId() + "."));
+        subtask.setStatus(TaskStatus.NEW);
+        manager.updateSubtask(subtask);
+        File[] after = segmentDir.listFiles((dir, name) -> !name.startsWith("epic-" + epic.getId() + "."));
+        assertEquals(List.of(before), List.of(after), "Untouched segments should keep their files");
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+        assertEquals(StorageLayout.SEGMENTED, loaded.getStorageLayout());
+        assertEquals(manager.getAllTasks().size(), loaded.getAllTasks().size());
+        assertEquals(TaskStatus.NEW, loaded.getSubtaskById(subtask.getId()).getStatus());
+    }
+
+    @Test
+    public void segmentedSaveMovesSubtaskBetweenEpics() {
+        Epic other = new Epic("Other epic", "Other", TaskStatus.NEW);
+        manager.addEpic(epic);
+        manager.addSubtask(subtask);
+        manager.addEpic(other);
+        manager.setStorageLayout(StorageLayout.SEGMENTED);
+
+        // Объект изменён на месте: сегмент прежнего эпика тоже должен перезаписаться
+        subtask.setEpicId(other.getId());
+        manager.updateSubtask(subtask);
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+        assertEquals(1, loaded.getSubtasks().size());
+        assertEquals(other.getId(), loaded.getSubtaskById(subtask.getId()).getEpicId());
+        assertEquals(List.of(), loaded.getSubtasksOfEpic(epic.getId()));
+        assertEquals(List.of(subtask.getId()), loaded.getEpicById(other.getId()).getSubtaskOfEpicIDs());
+    }
+
+    @Test
+    public void segmentedRemovalDropsEpicSegment() {
+        manager.addTask(task);
+        manager.addEpic(epic);
+        manager.addSubtask(subtask);
+        manager.setStorageLayout(StorageLayout.SEGMENTED);
+
+        manager.removeEpic(epic.getId());
+        assertEquals(1, segmentDir.listFiles().length);
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file);
+        assertEquals(List.of(task), loaded.getAllTasks());
+
+        manager.setStorageLayout(StorageLayout.SINGLE_FILE);
+        assertFalse(segmentDir.exists(), "Segments should be removed after switching back");
+        assertEquals(List.of(task), FileBackedTaskManager.loadFromFile(file).getAllTasks());
+    }
+
+    @Test
+    public void segmentedCheckpointAppliesJournal() {
+        FileBackedTaskManager journaled = new FileBackedTaskManager(file, journalFile);
+        journaled.addTask(task);
+        journaled.addEpic(epic);
+        journaled.setStorageLayout(StorageLayout.SEGMENTED);
+        journaled.addSubtask(subtask);
+        journaled.close();
+
+        FileBackedTaskManager loaded = FileBackedTaskManager.loadFromFile(file, journalFile);
+        assertEquals(3, loaded.getAllTasks().size());
+        loaded.checkpoint();
+        loaded.close();
+        assertEquals(0, journalFile.length());
+        assertEquals(3, FileBackedTaskManager.loadFromFile(file).getAllTasks().size());
+    }
+}
@@ -0,0 +1,74 @@
+package manager;
+
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Запись просмотров из нескольких потоков: InMemoryHistoryManager под общим замком против
+// ConcurrentHistoryManager. Каждый поток смотрит задачи вразброс, история читается в конце.
+// Рост заметен только на машине с несколькими ядрами.
+// Запуск: java manager.HistoryBenchmark [задач] [просмотров на поток]
+public class HistoryBenchmark {
+    private static final int[] THREADS = {1, 2, 4, 8};
+
+    public static void main(String[] args) throws Exception {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int views = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        List<Task> tasks = new ArrayList<>(size);
+        for (int i = 1; i <= size; i++) {
+            tasks.add(new Task(i, "Task " + i, "Description", TaskStatus.NEW));
+        }
+        for (int round = 0; round < 2; round++) {
+            for (int threads : THREADS) {
+                run(tasks, threads, views, false);
+                run(tasks, threads, views, true);
+            }
+        }
+    }
+
+    private static void run(List<Task> tasks, int threads, int views, boolean concurrent) throws Exception {
+        HistoryManager history = concurrent ? new ConcurrentHistoryManager() : new InMemoryHistoryManager();
+        Object globalLock = new Object();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < views; i++) {
+                    Task task = tasks.get((int) ((i * 7919L + worker * 104_729L) % tasks.size()));
+                    if (concurrent) {
+                        history.add(task);
+                    } else {
+                        synchronized (globalLock) {
+                            history.add(task);
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get();
+        }
+        int length;
+        synchronized (globalLock) {
+            length = history.getHistory().size();
+        }
+        long nanos = System.nanoTime() - begin;
+        executor.shutdown();
+
+        long total = (long) threads * views;
+        System.out.printf("%-10s threads=%d: %,d views/s (history %d)%n", concurrent ? "concurrent" : "global",
+                threads, total * 1_000_000_000L / nanos, length);
+    }
+}
@@ -3,11 +3,27 @@ package manager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import tasks.Epic;
+import tasks.RecurrenceRule;
+import tasks.RecurringTask;
 import tasks.Subtask;
 import tasks.Task;
 import tasks.TaskStatus;
+import tasks.TaskType;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -188,4 +204,873 @@ class InMemoryTaskManagerTest extends TaskManagerTest<InMemoryTaskManager> {
         assertTrue(manager.getSubtasksOfEpic(tempEpic.getId()).contains(subtask));
         assertTrue(tempEpic.getSubtaskOfEpicIDs().contains(subtask.getId()));
     }
+
+    @Test
+    public void subtaskMovedToAnotherEpicLeavesOldEpic() {
+        Epic other = new Epic("Other epic", "Other", TaskStatus.NEW);
+        manager.addEpic(other);
+        Subtask moved = new Subtask(other.getId(), subtask.getId(), "Moved", "Description", TaskStatus.DONE, 60);
+        moved.setStartTime(2024, 8, 9, 9, 0);
+        manager.updateSubtask(moved);
+
+        assertEquals(List.of(), manager.getEpicById(epic.getId()).getSubtaskOfEpicIDs());
+        assertEquals(List.of(), manager.getSubtasksOfEpic(epic.getId()));
+        assertEquals(TaskStatus.NEW, manager.getEpicById(epic.getId()).getStatus());
+        assertNull(manager.getEpicById(epic.getId()).getStartTime());
+        assertEquals(List.of(moved), manager.getSubtasksOfEpic(other.getId()));
+        assertEquals(TaskStatus.DONE, manager.getEpicById(other.getId()).getStatus());
+        assertEquals(moved.getStartTime(), manager.getEpicById(other.getId()).getStartTime());
+
+        // Перенос того же объекта, изменённого на месте, и перенос пакетом
+        moved.setEpicId(epic.getId());
+        manager.updateSubtask(moved);
+        assertEquals(List.of(moved), manager.getSubtasksOfEpic(epic.getId()));
+        assertEquals(List.of(), manager.getSubtasksOfEpic(other.getId()));
+        assertEquals(TaskStatus.NEW, manager.getEpicById(other.getId()).getStatus());
+        assertEquals(moved.getStartTime(), manager.getEpicById(epic.getId()).getStartTime());
+
+        Subtask back = new Subtask(other.getId(), subtask.getId(), "Back", "Description", TaskStatus.IN_PROGRESS);
+        BatchResult result = manager.updateAll(List.of(back));
+        assertEquals(List.of(subtask.getId()), result.getSucceededIds());
+        assertEquals(List.of(back), manager.getSubtasksOfEpic(other.getId()));
+        assertEquals(List.of(), manager.getSubtasksOfEpic(epic.getId()));
+        assertEquals(TaskStatus.IN_PROGRESS, manager.getEpicById(other.getId()).getStatus());
+        assertEquals(TaskStatus.NEW, manager.getEpicById(epic.getId()).getStatus());
+
+        // В несуществующий эпик подзадача не переносится
+        Subtask lost = new Subtask(999_999, subtask.getId(), "Lost", "Description", TaskStatus.NEW);
+        assertThrows(IllegalArgumentException.class, () -> manager.updateSubtask(lost));
+        assertTrue(manager.updateAll(List.of(lost)).isFailed(0));
+        assertEquals(List.of(back), manager.getSubtasksOfEpic(other.getId()));
+    }
+
+    @Test
+    public void addAllReportsOverlapsWithoutAbortingBatch() {
+        Task first = new Task("First", "Description", TaskStatus.NEW, 60);
+        first.setStartTime(2024, 8, 7, 9, 0);
+        Task clashing = new Task("Clashing", "Description", TaskStatus.NEW, 30);
+        clashing.setStartTime(2024, 8, 7, 9, 30);
+        Task second = new Task("Second", "Description", TaskStatus.NEW, 30);
+        second.setStartTime(2024, 8, 7, 10, 0);
+        Subtask orphan = new Subtask(-1, "Orphan", "Description", TaskStatus.NEW);
+
+        BatchResult result = manager.addAll(List.of(first, clashing, second, orphan));
+
+        assertEquals(List.of(first.getId(), second.getId()), result.getSucceededIds());
+        assertEquals(Set.of(1, 3), result.getFailures().keySet());
+        assertEquals(BatchResult.Reason.OVERLAP, result.getReason(1));
+        assertEquals(BatchResult.Reason.NOT_FOUND, result.getReason(3));
+        assertNull(result.getReason(0));
+        assertNotNull(manager.getTaskById(first.getId()));
+        assertNull(manager.getTaskById(clashing.getId()));
+    }
+
+    @Test
+    public void addAllRecomputesEpicOnce() {
+        Epic newEpic = new Epic("Batch Epic", "Description", TaskStatus.NEW);
+        manager.addEpic(newEpic);
+        Subtask done1 = new Subtask(newEpic.getId(), "Done 1", "Description", TaskStatus.DONE, 30);
+        done1.setStartTime(2024, 8, 8, 9, 0);
+        Subtask done2 = new Subtask(newEpic.getId(), "Done 2", "Description", TaskStatus.DONE, 30);
+        done2.setStartTime(2024, 8, 8, 10, 0);
+
+        BatchResult result = manager.addAll(List.of(done1, done2));
+
+        assertFalse(result.hasFailures());
+        assertEquals(TaskStatus.DONE, newEpic.getStatus());
+        assertEquals(2, newEpic.getSubtaskOfEpicIDs().size());
+        assertEquals(done1.getStartTime(), newEpic.getStartTime());
+    }
+
+    @Test
+    public void updateAllChecksOverlapsAgainstOtherTasksOnly() {
+        task.setStartTime(2024, 8, 9, 9, 0);
+        task.setDuration(60);
+        manager.updateTask(task);
+
+        Task moved = new Task(task.getId(), task.getName(), task.getDescription(), TaskStatus.DONE, 60);
+        moved.setStartTime(2024, 8, 9, 9, 30);
+        Task missing = new Task(999_999, "Missing", "Description", TaskStatus.NEW);
+
+        BatchResult result = manager.updateAll(List.of(moved, missing));
+
+        assertEquals(List.of(task.getId()), result.getSucceededIds());
+        assertTrue(result.isFailed(1));
+        assertEquals(TaskStatus.DONE, manager.getTaskById(task.getId()).getStatus());
+    }
+
+    @Test
+    public void removeAllByIdsRemovesEpicWithSubtasks() {
+        BatchResult result = manager.removeAll(List.of(task.getId(), epic.getId(), 999_999));
+
+        assertEquals(List.of(task.getId(), epic.getId()), result.getSucceededIds());
+        assertTrue(result.isFailed(2));
+        assertTrue(manager.getTasks().isEmpty());
+        assertTrue(manager.getSubtasks().isEmpty());
+        assertTrue(manager.getEpics().isEmpty());
+    }
+
+    @Test
+    public void removeAllByIdsDoesNotDependOnOrderOfEpicAndSubtasks() {
+        Epic other = new Epic("Other epic", "Other", TaskStatus.NEW);
+        manager.addEpic(other);
+        Subtask first = new Subtask(other.getId(), "First", "Description", TaskStatus.NEW);
+        Subtask second = new Subtask(other.getId(), "Second", "Description", TaskStatus.NEW);
+        manager.addSubtask(first);
+        manager.addSubtask(second);
+
+        // Эпик раньше своих подзадач: подзадачи уже удалены вместе с ним, но не «не найдены»
+        List<Integer> epicFirst = List.of(other.getId(), first.getId(), second.getId());
+        BatchResult result = manager.removeAll(epicFirst);
+        assertEquals(epicFirst, result.getSucceededIds());
+        assertFalse(result.isFailed(1));
+        assertFalse(result.isFailed(2));
+
+        // Подзадачи раньше эпика
+        List<Integer> subtaskFirst = List.of(subtask.getId(), epic.getId());
+        result = manager.removeAll(subtaskFirst);
+        assertEquals(subtaskFirst, result.getSucceededIds());
+        assertTrue(manager.getSubtasks().isEmpty());
+        assertTrue(manager.getEpics().isEmpty());
+
+        // Повтор того же id - по-прежнему ошибка
+        result = manager.removeAll(List.of(task.getId(), task.getId()));
+        assertEquals(List.of(task.getId()), result.getSucceededIds());
+        assertTrue(result.isFailed(1));
+    }
+
+    @Test
+    public void tasksWithSameStartTimeAreAllPrioritized() {
+        Task first = new Task("First", "Description", TaskStatus.NEW);
+        first.setStartTime(2024, 8, 10, 9, 0);
+        Task second = new Task("Second", "Description", TaskStatus.NEW);
+        second.setStartTime(2024, 8, 10, 9, 0);
+        manager.addTask(first);
+        manager.addTask(second);
+
+        List<Task> prioritized = manager.getPrioritizedTasks();
+        assertTrue(prioritized.contains(first) && prioritized.contains(second),
+                "Zero-length tasks at the same time should not replace each other");
+    }
+
+    @Test
+    public void overlapCheckSkipsOwnVersionForLargeIds() {
+        Task big = new Task(1_000, "Big id", "Description", TaskStatus.NEW, 60);
+        big.setStartTime(2024, 8, 11, 9, 0);
+        manager.addTask(big);
+
+        Task moved = new Task(1_000, "Big id", "Description", TaskStatus.NEW, 60);
+        moved.setStartTime(2024, 8, 11, 9, 30);
+        assertFalse(manager.isTimeOverlap(moved), "Task should not overlap its own previous version");
+        manager.updateTask(moved);
+
+        Task other = new Task("Other", "Description", TaskStatus.NEW, 30);
+        other.setStartTime(2024, 8, 11, 10, 0);
+        assertTrue(manager.isTimeOverlap(other));
+    }
+
+    @Test
+    public void zeroLengthTaskDoesNotHideEnclosingInterval() {
+        Task enclosing = new Task("Enclosing", "Description", TaskStatus.NEW, 120);
+        enclosing.setStartTime(2024, 8, 11, 10, 0);
+        manager.addTask(enclosing);
+        Task point = new Task("Point", "Description", TaskStatus.NEW);
+        point.setStartTime(2024, 8, 11, 10, 0);
+        manager.addTask(point);
+
+        Task inside = new Task("Inside", "Description", TaskStatus.NEW, 30);
+        inside.setStartTime(2024, 8, 11, 11, 0);
+        assertTrue(manager.isTimeOverlap(inside), "Zero-length task should not hide the interval around it");
+        assertThrows(IllegalArgumentException.class, () -> manager.addTask(inside));
+        assertEquals(List.of(enclosing), manager.getPrioritizedTasks(LocalDateTime.of(2024, 8, 11, 11, 0),
+                LocalDateTime.of(2024, 8, 11, 11, 30)));
+        assertEquals(LocalDateTime.of(2024, 8, 11, 12, 0), manager.findEarliestSlot(Duration.ofMinutes(30),
+                LocalDateTime.of(2024, 8, 11, 11, 0), LocalDateTime.of(2024, 8, 11, 18, 0), null));
+    }
+
+    @Test
+    public void taskMovedInPlaceIsReindexedOnUpdate() {
+        Task early = new Task("Early", "Description", TaskStatus.NEW, 30);
+        early.setStartTime(2024, 8, 12, 8, 0);
+        Task late = new Task("Late", "Description", TaskStatus.NEW, 30);
+        late.setStartTime(2024, 8, 12, 12, 0);
+        manager.addTask(early);
+        manager.addTask(late);
+
+        early.setStartTime(2024, 8, 12, 14, 0);
+        manager.updateTask(early);
+
+        List<Task> prioritized = manager.getPrioritizedTasks();
+        assertTrue(prioritized.indexOf(late) < prioritized.indexOf(early));
+        Task atOldSlot = new Task("Old slot", "Description", TaskStatus.NEW, 30);
+        atOldSlot.setStartTime(2024, 8, 12, 8, 0);
+        assertFalse(manager.isTimeOverlap(atOldSlot), "Old interval should be released");
+    }
+
+    @Test
+    public void earliestSlotIsFoundBetweenTasks() {
+        Task morning = new Task("Morning", "Description", TaskStatus.NEW, 60);
+        morning.setStartTime(2024, 8, 13, 9, 0);
+        Task noon = new Task("Noon", "Description", TaskStatus.NEW, 60);
+        noon.setStartTime(2024, 8, 13, 10, 30);
+        manager.addTask(morning);
+        manager.addTask(noon);
+
+        LocalDateTime from = LocalDateTime.of(2024, 8, 13, 9, 15);
+        LocalDateTime to = LocalDateTime.of(2024, 8, 13, 18, 0);
+        assertEquals(LocalDateTime.of(2024, 8, 13, 10, 0),
+                manager.findEarliestSlot(Duration.ofMinutes(30), from, to, null));
+        assertEquals(LocalDateTime.of(2024, 8, 13, 11, 30),
+                manager.findEarliestSlot(Duration.ofMinutes(45), from, to, null));
+        assertNull(manager.findEarliestSlot(Duration.ofHours(7), from, to, null));
+
+        Task fitted = new Task("Fitted", "Description", TaskStatus.NEW, 30);
+        fitted.setStartTime(2024, 8, 13, 10, 0);
+        assertFalse(manager.isTimeOverlap(fitted), "Found slot should accept the task");
+    }
+
+    @Test
+    public void freeSlotsAreListedUpToLimit() {
+        for (int hour = 9; hour < 13; hour++) {
+            Task busy = new Task("Busy " + hour, "Description", TaskStatus.NEW, 30);
+            busy.setStartTime(2024, 8, 14, hour, 0);
+            manager.addTask(busy);
+        }
+
+        List<TimeSlot> slots = manager.findFreeSlots(Duration.ofMinutes(30),
+                LocalDateTime.of(2024, 8, 14, 9, 0), LocalDateTime.of(2024, 8, 14, 13, 0), 2, null);
+        assertEquals(List.of(
+                new TimeSlot(LocalDateTime.of(2024, 8, 14, 9, 30), LocalDateTime.of(2024, 8, 14, 10, 0)),
+                new TimeSlot(LocalDateTime.of(2024, 8, 14, 10, 30), LocalDateTime.of(2024, 8, 14, 11, 0))), slots);
+        assertThrows(IllegalArgumentException.class, () -> manager.findFreeSlots(Duration.ZERO,
+                LocalDateTime.of(2024, 8, 14, 9, 0), LocalDateTime.of(2024, 8, 14, 13, 0), 2, null));
+    }
+
+    @Test
+    public void freeSlotsRespectWorkingHours() {
+        WorkingHours hours = WorkingHours.weekdays(LocalTime.of(9, 0), LocalTime.of(18, 0));
+        Task lateFriday = new Task("Late friday", "Description", TaskStatus.NEW, 240);
+        lateFriday.setStartTime(2024, 8, 16, 13, 0);
+        manager.addTask(lateFriday);
+
+        // Пятница после 17:00 свободна лишь час, выходные не рабочие - ближайшее окно в понедельник
+        LocalDateTime from = LocalDateTime.of(2024, 8, 16, 8, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 8, 20, 0, 0);
+        List<TimeSlot> slots = manager.findFreeSlots(Duration.ofHours(2), from, to, 3, hours);
+        assertEquals(List.of(
+                new TimeSlot(LocalDateTime.of(2024, 8, 16, 9, 0), LocalDateTime.of(2024, 8, 16, 13, 0)),
+                new TimeSlot(LocalDateTime.of(2024, 8, 19, 9, 0), LocalDateTime.of(2024, 8, 19, 18, 0))), slots);
+        assertEquals(LocalDateTime.of(2024, 8, 19, 9, 0), manager.findEarliestSlot(Duration.ofHours(5),
+                from, to, hours));
+    }
+
+    @Test
+    public void rangeQueryReturnsTasksIntersectingWindow() {
+        Task overnight = new Task("Overnight", "Description", TaskStatus.NEW, 120);
+        overnight.setStartTime(2024, 8, 20, 23, 0);
+        Task morning = new Task("Morning", "Description", TaskStatus.DONE, 60);
+        morning.setStartTime(2024, 8, 21, 9, 0);
+        Task evening = new Task("Evening", "Description", TaskStatus.NEW, 60);
+        evening.setStartTime(2024, 8, 21, 19, 0);
+        Task tomorrow = new Task("Tomorrow", "Description", TaskStatus.NEW, 60);
+        tomorrow.setStartTime(2024, 8, 22, 9, 0);
+        manager.addTask(overnight);
+        manager.addTask(morning);
+        manager.addTask(evening);
+        manager.addTask(tomorrow);
+
+        LocalDateTime from = LocalDateTime.of(2024, 8, 21, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2024, 8, 22, 0, 0);
+        assertEquals(List.of(overnight, morning, evening), manager.getPrioritizedTasks(from, to));
+        assertEquals(List.of(overnight, evening),
+                manager.getPrioritizedTasks(from, to, TaskType.TASK, TaskStatus.NEW));
+        assertEquals(List.of(), manager.getPrioritizedTasks(from, to, TaskType.SUBTASK, null));
+    }
+
+    @Test
+    public void nextTasksStartAtGivenInstant() {
+        for (int hour = 9; hour < 14; hour++) {
+            Task task = new Task("Task " + hour, "Description", hour % 2 == 0 ? TaskStatus.DONE : TaskStatus.NEW, 30);
+            task.setStartTime(2024, 8, 23, hour, 0);
+            manager.addTask(task);
+        }
+
+        List<Task> next = manager.getNextTasks(LocalDateTime.of(2024, 8, 23, 10, 0), 2);
+        assertEquals(List.of("Task 10", "Task 11"), next.stream().map(Task::getName).toList());
+        List<Task> open = manager.getNextTasks(LocalDateTime.of(2024, 8, 23, 9, 15), 5, null, TaskStatus.NEW);
+        assertEquals(List.of("Task 11", "Task 13"), open.stream().map(Task::getName).toList());
+    }
+
+    @Test
+    public void autoScheduleFillsGapsInPriorityOrder() {
+        Task fixed = new Task("Fixed", "Description", TaskStatus.NEW, 60);
+        fixed.setStartTime(2024, 9, 9, 10, 0);
+        manager.addTask(fixed);
+        Task low = new Task("Low", "Description", TaskStatus.NEW, 30);
+        Task high = new Task("High", "Description", TaskStatus.IN_PROGRESS, 45);
+        Task tooLong = new Task("Too long", "Description", TaskStatus.NEW, 600);
+        manager.addTask(low);
+        manager.addTask(high);
+        manager.addTask(tooLong);
+
+        ScheduleOptions options = new ScheduleOptions(LocalDateTime.of(2024, 9, 9, 9, 0),
+                LocalDateTime.of(2024, 9, 9, 12, 0));
+        options.setTaskIds(List.of(low.getId(), high.getId(), tooLong.getId()));
+        options.setPriority(Comparator.comparing(Task::getStatus).reversed());
+        Map<Integer, LocalDateTime> planned = manager.autoSchedule(options);
+
+        assertEquals(LocalDateTime.of(2024, 9, 9, 9, 0), planned.get(high.getId()));
+        assertEquals(LocalDateTime.of(2024, 9, 9, 11, 0), planned.get(low.getId()),
+                "Low priority task should not take the gap before the fixed task");
+        assertFalse(planned.containsKey(tooLong.getId()));
+        assertNull(tooLong.getStartTime(), "Task beyond the horizon should stay unscheduled");
+        assertEquals(List.of(high, fixed, low), manager.getPrioritizedTasks(options.getFrom(), options.getHorizon()));
+    }
+
+    @Test
+    public void autoScheduleKeepsEpicSubtasksTogether() {
+        Epic plan = new Epic("Plan", "Description", TaskStatus.NEW);
+        manager.addEpic(plan);
+        Subtask first = new Subtask(plan.getId(), "First", "Description", TaskStatus.NEW, 30);
+        manager.addSubtask(first);
+        Task single = new Task("Single", "Description", TaskStatus.NEW, 30);
+        manager.addTask(single);
+        Subtask second = new Subtask(plan.getId(), "Second", "Description", TaskStatus.NEW, 30);
+        manager.addSubtask(second);
+
+        ScheduleOptions options = new ScheduleOptions(LocalDateTime.of(2024, 9, 10, 9, 0),
+                LocalDateTime.of(2024, 9, 10, 18, 0));
+        options.setTaskIds(List.of(plan.getId(), single.getId()));
+        options.setGroupByEpic(true);
+        manager.autoSchedule(options);
+
+        assertEquals(LocalDateTime.of(2024, 9, 10, 9, 0), first.getStartTime());
+        assertEquals(LocalDateTime.of(2024, 9, 10, 9, 30), second.getStartTime());
+        assertEquals(LocalDateTime.of(2024, 9, 10, 10, 0), single.getStartTime());
+        assertEquals(LocalDateTime.of(2024, 9, 10, 10, 0), plan.getEndTime(), "Epic time should follow its subtasks");
+    }
+
+    @Test
+    public void recurringTaskOccurrencesAreExpandedOnQuery() {
+        RecurringTask standup = new RecurringTask("Standup", "Description", TaskStatus.NEW, 15,
+                RecurrenceRule.daily());
+        standup.setStartTime(2024, 9, 2, 9, 0);
+        manager.addTask(standup);
+
+        Task clash = new Task("Clash", "Description", TaskStatus.NEW, 30);
+        clash.setStartTime(2025, 3, 10, 9, 5);
+        assertTrue(manager.isTimeOverlap(clash), "Occurrence far from the first one should still block");
+        clash.setStartTime(2025, 3, 10, 9, 15);
+        assertFalse(manager.isTimeOverlap(clash));
+
+        List<Task> week = manager.getPrioritizedTasks(LocalDateTime.of(2024, 9, 2, 0, 0),
+                LocalDateTime.of(2024, 9, 5, 0, 0));
+        assertEquals(3, week.size());
+        assertEquals(LocalDateTime.of(2024, 9, 4, 9, 0), week.get(2).getStartTime());
+        assertEquals(standup.getId(), week.get(2).getId(), "Occurrence should carry the series id");
+        assertEquals(TaskType.RECURRING, week.get(2).getType());
+        assertEquals(LocalDateTime.of(2024, 10, 1, 9, 15), manager.findEarliestSlot(Duration.ofHours(1),
+                LocalDateTime.of(2024, 10, 1, 8, 30), LocalDateTime.of(2024, 10, 1, 18, 0), null));
+        assertEquals(1, manager.getPrioritizedTasks().stream().filter(standup::equals).count(),
+                "Series should be stored once");
+    }
+
+    @Test
+    public void recurringSeriesAreCheckedAgainstEachOther() {
+        RecurringTask standup = new RecurringTask("Standup", "Description", TaskStatus.NEW, 15,
+                RecurrenceRule.daily());
+        standup.setStartTime(2024, 9, 2, 9, 0);
+        manager.addTask(standup);
+
+        RecurringTask clashing = new RecurringTask("Backup", "Description", TaskStatus.NEW, 30,
+                RecurrenceRule.everyMinutes(120));
+        clashing.setStartTime(2024, 9, 2, 1, 0);
+        assertThrows(IllegalArgumentException.class, () -> manager.addTask(clashing));
+
+        RecurringTask between = new RecurringTask("Backup", "Description", TaskStatus.NEW, 20,
+                RecurrenceRule.everyMinutes(120));
+        between.setStartTime(2024, 9, 2, 0, 20);
+        assertDoesNotThrow(() -> manager.addTask(between));
+    }
+
+    @Test
+    public void zeroLengthRecurringSeriesUseTimelineBoundaries() {
+        RecurringTask standup = new RecurringTask("Standup", "Description", TaskStatus.NEW, 15,
+                RecurrenceRule.daily());
+        standup.setStartTime(2024, 9, 2, 9, 0);
+        manager.addTask(standup);
+
+        // Как у обычных задач: точка на начале вхождения не пересекает его, точка внутри - пересекает
+        Task atStart = new Task("Point", "Description", TaskStatus.NEW, 0);
+        atStart.setStartTime(2024, 9, 3, 9, 0);
+        Task inside = new Task("Point", "Description", TaskStatus.NEW, 0);
+        inside.setStartTime(2024, 9, 3, 9, 5);
+        assertFalse(manager.isTimeOverlap(atStart));
+        assertTrue(manager.isTimeOverlap(inside));
+
+        RecurringTask tickAtStart = new RecurringTask("Tick", "Description", TaskStatus.NEW, 0,
+                RecurrenceRule.everyMinutes(120));
+        tickAtStart.setStartTime(2024, 9, 2, 9, 0);
+        assertFalse(manager.isTimeOverlap(tickAtStart));
+        RecurringTask tickInside = new RecurringTask("Tick", "Description", TaskStatus.NEW, 0,
+                RecurrenceRule.everyMinutes(120));
+        tickInside.setStartTime(2024, 9, 2, 9, 5);
+        assertTrue(manager.isTimeOverlap(tickInside));
+        assertThrows(IllegalArgumentException.class, () -> manager.addTask(tickInside));
+
+        // Две точки в одно время не пересекаются
+        manager.addTask(tickAtStart);
+        RecurringTask sameTicks = new RecurringTask("Tick", "Description", TaskStatus.NEW, 0,
+                RecurrenceRule.everyMinutes(60));
+        sameTicks.setStartTime(2024, 9, 2, 11, 0);
+        assertFalse(manager.isTimeOverlap(sameTicks));
+    }
+
+    @Test
+    public void boundedRecurrenceStopsAfterCount() {
+        RecurringTask review = new RecurringTask("Review", "Description", TaskStatus.NEW, 60,
+                RecurrenceRule.weekly().times(3));
+        review.setStartTime(2024, 9, 2, 14, 0);
+        manager.addTask(review);
+
+        Task third = new Task("Third week", "Description", TaskStatus.NEW, 60);
+        third.setStartTime(2024, 9, 16, 14, 30);
+        assertTrue(manager.isTimeOverlap(third));
+        Task fourth = new Task("Fourth week", "Description", TaskStatus.NEW, 60);
+        fourth.setStartTime(2024, 9, 23, 14, 0);
+        assertFalse(manager.isTimeOverlap(fourth));
+        assertEquals(3, manager.getNextTasks(LocalDateTime.of(2024, 9, 1, 0, 0), 10).size());
+    }
+
+    @Test
+    public void assigneesOnlyConflictWithTheirOwnTasks() {
+        Task alice = new Task("Alice", "Description", TaskStatus.NEW, 60);
+        alice.setAssignee("alice");
+        alice.setStartTime(2024, 9, 2, 14, 0);
+        manager.addTask(alice);
+
+        Task bob = new Task("Bob", "Description", TaskStatus.NEW, 60);
+        bob.setAssignee("bob");
+        bob.setStartTime(2024, 9, 2, 14, 30);
+        assertDoesNotThrow(() -> manager.addTask(bob));
+        Task aliceAgain = new Task("Alice again", "Description", TaskStatus.NEW, 60);
+        aliceAgain.setAssignee("alice");
+        aliceAgain.setStartTime(2024, 9, 2, 14, 30);
+        assertTrue(manager.isTimeOverlap(aliceAgain));
+
+        // Переназначенная задача уходит из календаря прежнего исполнителя
+        bob.setAssignee("alice");
+        bob.setStartTime(2024, 9, 2, 16, 0);
+        manager.updateTask(bob);
+        Task bobAgain = new Task("Bob again", "Description", TaskStatus.NEW, 60);
+        bobAgain.setAssignee("bob");
+        bobAgain.setStartTime(2024, 9, 2, 16, 0);
+        assertFalse(manager.isTimeOverlap(bobAgain));
+        assertEquals(List.of(alice, bob), manager.getPrioritizedTasks(LocalDateTime.of(2024, 9, 2, 0, 0),
+                LocalDateTime.of(2024, 9, 3, 0, 0)));
+    }
+
+    @Test
+    public void freeAssigneesAreFoundAcrossCalendars() {
+        for (String name : List.of("alice", "bob", "carol")) {
+            Task meeting = new Task("Meeting " + name, "Description", TaskStatus.NEW, 60);
+            meeting.setAssignee(name);
+            meeting.setStartTime(2024, 9, 2, name.equals("bob") ? 14 : 10, 0);
+            manager.addTask(meeting);
+        }
+
+        assertEquals(List.of("alice", "carol"), manager.getFreeAssignees(LocalDateTime.of(2024, 9, 2, 14, 0),
+                LocalDateTime.of(2024, 9, 2, 15, 0)));
+        assertEquals(List.of("bob"), manager.getFreeAssignees(LocalDateTime.of(2024, 9, 2, 10, 30),
+                LocalDateTime.of(2024, 9, 2, 11, 0)));
+        List<TimeSlot> bobSlots = manager.findFreeSlots("bob", Duration.ofMinutes(60),
+                LocalDateTime.of(2024, 9, 2, 10, 0), LocalDateTime.of(2024, 9, 2, 16, 0), 5, null);
+        assertEquals(List.of(
+                new TimeSlot(LocalDateTime.of(2024, 9, 2, 10, 0), LocalDateTime.of(2024, 9, 2, 14, 0)),
+                new TimeSlot(LocalDateTime.of(2024, 9, 2, 15, 0), LocalDateTime.of(2024, 9, 2, 16, 0))), bobSlots);
+    }
+
+    @Test
+    public void autoScheduleUsesCalendarOfEachAssignee() {
+        Task busy = new Task("Busy", "Description", TaskStatus.NEW, 60);
+        busy.setAssignee("alice");
+        busy.setStartTime(2024, 9, 2, 9, 0);
+        manager.addTask(busy);
+        Task forAlice = new Task("For alice", "Description", TaskStatus.NEW, 60);
+        forAlice.setAssignee("alice");
+        manager.addTask(forAlice);
+        Task forBob = new Task("For bob", "Description", TaskStatus.NEW, 60);
+        forBob.setAssignee("bob");
+        manager.addTask(forBob);
+
+        LocalDateTime from = LocalDateTime.of(2024, 9, 2, 9, 0);
+        ScheduleOptions options = new ScheduleOptions(from, from.plusDays(1));
+        options.setTaskIds(List.of(forAlice.getId(), forBob.getId()));
+        Map<Integer, LocalDateTime> planned = manager.autoSchedule(options);
+        assertEquals(from.plusHours(1), planned.get(forAlice.getId()));
+        assertEquals(from, planned.get(forBob.getId()));
+    }
+
+    @Test
+    public void dependenciesGiveEarliestStartsAndCriticalPath() {
+        Task design = new Task("Design", "Description", TaskStatus.NEW, 120);
+        design.setStartTime(2024, 9, 2, 9, 0);
+        Task build = new Task("Build", "Description", TaskStatus.NEW, 240);
+        Task docs = new Task("Docs", "Description", TaskStatus.NEW, 60);
+        Task release = new Task("Release", "Description", TaskStatus.NEW, 30);
+        manager.addAll(List.of(design, build, docs, release));
+        manager.addDependency(design.getId(), build.getId());
+        manager.addDependency(design.getId(), docs.getId());
+        manager.addDependency(build.getId(), release.getId());
+        manager.addDependency(docs.getId(), release.getId());
+
+        assertEquals(LocalDateTime.of(2024, 9, 2, 11, 0), manager.getEarliestStart(docs.getId()));
+        assertEquals(LocalDateTime.of(2024, 9, 2, 15, 0), manager.getEarliestStart(release.getId()));
+        // У документации три часа резерва до начала релиза
+        assertEquals(LocalDateTime.of(2024, 9, 2, 15, 0), manager.getLatestFinish(docs.getId()));
+        assertEquals(List.of(design, build, release), manager.getCriticalPath());
+
+        // Документация стала длиннее сборки: критический путь и ранние начала пересчитываются
+        docs.setDuration(300);
+        manager.updateTask(docs);
+        assertEquals(LocalDateTime.of(2024, 9, 2, 16, 0), manager.getEarliestStart(release.getId()));
+        assertEquals(List.of(design, docs, release), manager.getCriticalPath());
+        assertEquals(LocalDateTime.of(2024, 9, 2, 16, 0), manager.getLatestFinish(build.getId()));
+
+        manager.removeTask(docs.getId());
+        assertEquals(LocalDateTime.of(2024, 9, 2, 15, 0), manager.getEarliestStart(release.getId()));
+        assertEquals(List.of(build.getId()), manager.getPredecessors(release.getId()));
+    }
+
+    @Test
+    public void dependencyCycleIsRejected() {
+        Task first = new Task("First", "Description", TaskStatus.NEW, 60);
+        Task second = new Task("Second", "Description", TaskStatus.NEW, 60);
+        Task third = new Task("Third", "Description", TaskStatus.NEW, 60);
+        Epic epic = new Epic("Epic", "Description", TaskStatus.NEW);
+        manager.addAll(List.of(first, second, third, epic));
+        manager.addDependency(first.getId(), second.getId());
+        manager.addDependency(second.getId(), third.getId());
+
+        assertThrows(IllegalArgumentException.class, () -> manager.addDependency(third.getId(), first.getId()));
+        assertThrows(IllegalArgumentException.class, () -> manager.addDependency(first.getId(), first.getId()));
+        assertThrows(IllegalArgumentException.class, () -> manager.addDependency(epic.getId(), first.getId()));
+        assertEquals(List.of(third.getId()), manager.getSuccessors(second.getId()));
+
+        manager.removeDependency(second.getId(), third.getId());
+        assertDoesNotThrow(() -> manager.addDependency(third.getId(), first.getId()));
+    }
+
+    @Test
+    public void shiftEpicMovesSubtasksAndEpicTime() {
+        Epic release = new Epic("Release", "Description", TaskStatus.NEW);
+        manager.addEpic(release);
+        Subtask build = new Subtask(release.getId(), "Build", "Description", TaskStatus.NEW, 60);
+        build.setStartTime(2024, 9, 2, 9, 0);
+        Subtask deploy = new Subtask(release.getId(), "Deploy", "Description", TaskStatus.NEW, 30);
+        deploy.setStartTime(2024, 9, 2, 10, 0);
+        manager.addAll(List.of(build, deploy));
+        Task meeting = new Task("Meeting", "Description", TaskStatus.NEW, 60);
+        meeting.setStartTime(2024, 9, 3, 10, 0);
+        manager.addTask(meeting);
+
+        // Со сдвигом на сутки deploy попадает на встречу - ничего не меняется
+        assertThrows(IllegalArgumentException.class, () -> manager.shiftEpic(release.getId(), Duration.ofDays(1)));
+        assertEquals(LocalDateTime.of(2024, 9, 2, 9, 0), build.getStartTime());
+
+        // Сдвиг на час: build встаёт на прежнее место deploy, между собой они не сталкиваются
+        assertEquals(List.of(build.getId(), deploy.getId()), manager.shiftEpic(release.getId(), Duration.ofHours(1)));
+        assertEquals(LocalDateTime.of(2024, 9, 2, 11, 0), deploy.getStartTime());
+        assertEquals(LocalDateTime.of(2024, 9, 2, 10, 0), release.getStartTime());
+        assertEquals(LocalDateTime.of(2024, 9, 2, 11, 30), release.getEndTime());
+        assertEquals(List.of(build, deploy), manager.getPrioritizedTasks(LocalDateTime.of(2024, 9, 2, 0, 0),
+                LocalDateTime.of(2024, 9, 3, 0, 0)));
+    }
+
+    @Test
+    public void shiftRangeMovesOnlyTasksStartingInside() {
+        Task before = new Task("Before", "Description", TaskStatus.NEW, 60);
+        before.setStartTime(2024, 9, 2, 8, 0);
+        Task first = new Task("First", "Description", TaskStatus.NEW, 60);
+        first.setStartTime(2024, 9, 2, 9, 0);
+        Task second = new Task("Second", "Description", TaskStatus.NEW, 60);
+        second.setStartTime(2024, 9, 2, 11, 0);
+        manager.addAll(List.of(before, first, second));
+
+        assertThrows(IllegalArgumentException.class, () -> manager.shiftRange(LocalDateTime.of(2024, 9, 2, 9, 0),
+                LocalDateTime.of(2024, 9, 2, 12, 0), Duration.ofMinutes(-30)));
+        assertEquals(List.of(first.getId(), second.getId()), manager.shiftRange(LocalDateTime.of(2024, 9, 2, 9, 0),
+                LocalDateTime.of(2024, 9, 2, 12, 0), Duration.ofMinutes(30)));
+        assertEquals(LocalDateTime.of(2024, 9, 2, 8, 0), before.getStartTime());
+        assertEquals(LocalDateTime.of(2024, 9, 2, 11, 30), second.getStartTime());
+        Task gap = new Task("Gap", "Description", TaskStatus.NEW, 30);
+        gap.setStartTime(2024, 9, 2, 9, 0);
+        assertFalse(manager.isTimeOverlap(gap));
+    }
+
+    @Test
+    public void occupancyIndexStaysConsistentThroughUpdatesAndEpicDeletion() {
+        InMemoryTaskManager indexed = new InMemoryTaskManager();
+        indexed.setOccupancyIndex(Duration.ofMinutes(15));
+        Epic release = new Epic("Release", "Description", TaskStatus.NEW);
+        indexed.addEpic(release);
+        Subtask build = new Subtask(release.getId(), "Build", "Description", TaskStatus.NEW, 45);
+        build.setStartTime(2024, 9, 2, 9, 0);
+        indexed.addSubtask(build);
+        Task meeting = new Task("Meeting", "Description", TaskStatus.NEW, 30);
+        meeting.setStartTime(2024, 9, 2, 10, 0);
+        indexed.addTask(meeting);
+
+        Task probe = new Task("Probe", "Description", TaskStatus.NEW, 15);
+        probe.setStartTime(2024, 9, 2, 9, 30);
+        assertTrue(indexed.isTimeOverlap(probe));
+        // Задача не пересекается со своей прежней версией
+        meeting.setStartTime(2024, 9, 2, 10, 15);
+        assertDoesNotThrow(() -> indexed.updateTask(meeting));
+        probe.setStartTime(2024, 9, 2, 10, 0);
+        assertFalse(indexed.isTimeOverlap(probe));
+
+        indexed.removeEpic(release.getId());
+        probe.setStartTime(2024, 9, 2, 9, 30);
+        assertFalse(indexed.isTimeOverlap(probe));
+        assertEquals(List.of(new TimeSlot(LocalDateTime.of(2024, 9, 2, 9, 0), LocalDateTime.of(2024, 9, 2, 10, 15))),
+                indexed.findFreeSlots(Duration.ofMinutes(15), LocalDateTime.of(2024, 9, 2, 9, 0),
+                        LocalDateTime.of(2024, 9, 2, 11, 0), 1, null));
+        indexed.removeTask(meeting.getId());
+        assertEquals(List.of(new TimeSlot(LocalDateTime.of(2024, 9, 2, 9, 0), LocalDateTime.of(2024, 9, 2, 11, 0))),
+                indexed.findFreeSlots(Duration.ofMinutes(15), LocalDateTime.of(2024, 9, 2, 9, 0),
+                        LocalDateTime.of(2024, 9, 2, 11, 0), 1, null));
+    }
+
+    @Test
+    public void occupancyIndexAnswersLikeTimeline() {
+        InMemoryTaskManager indexed = new InMemoryTaskManager();
+        indexed.setOccupancyIndex(Duration.ofMinutes(15));
+        InMemoryTaskManager plain = new InMemoryTaskManager();
+        Random random = new Random(7);
+        LocalDateTime base = LocalDateTime.of(2024, 9, 1, 0, 0);
+        List<Task[]> added = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            // В последней четверти изредка - задача не по границе слота: карта должна уступить дереву
+            int offset = i >= 1500 && random.nextInt(20) == 0 ? 7 : 0;
+            LocalDateTime start = base.plusMinutes(15L * random.nextInt(3000) + offset);
+            long minutes = 15L * (1 + random.nextInt(8));
+            Task inPlain = new Task("Task " + i, "Description", TaskStatus.NEW, minutes);
+            inPlain.setStartTime(start);
+            Task inIndexed = new Task("Task " + i, "Description", TaskStatus.NEW, minutes);
+            inIndexed.setStartTime(start);
+            boolean overlaps = plain.isTimeOverlap(inPlain);
+            assertEquals(overlaps, indexed.isTimeOverlap(inIndexed), "Overlap at " + start);
+            if (!overlaps) {
+                plain.addTask(inPlain);
+                indexed.addTask(inIndexed);
+                added.add(new Task[]{inPlain, inIndexed});
+            }
+            if (i % 3 == 0 && !added.isEmpty()) {
+                Task[] removed = added.remove(random.nextInt(added.size()));
+                plain.removeTask(removed[0].getId());
+                indexed.removeTask(removed[1].getId());
+            }
+            if (i % 100 == 0) {
+                LocalDateTime from = base.plusMinutes(15L * random.nextInt(3000));
+                assertEquals(plain.findFreeSlots(Duration.ofMinutes(30), from, from.plusDays(3), 20, null),
+                        indexed.findFreeSlots(Duration.ofMinutes(30), from, from.plusDays(3), 20, null));
+            }
+        }
+    }
+
+    @Test
+    void managersGenerateIdsIndependently() {
+        InMemoryTaskManager first = new InMemoryTaskManager();
+        InMemoryTaskManager second = new InMemoryTaskManager();
+        Task a = new Task("A", "Description", TaskStatus.NEW);
+        Task b = new Task("B", "Description", TaskStatus.NEW);
+        first.addTask(a);
+        second.addTask(b);
+
+        assertEquals(1, a.getId());
+        assertEquals(1, b.getId());
+    }
+
+    @Test
+    void generatedIdsSkipIdsTakenByAnyTaskType() {
+        InMemoryTaskManager fresh = new InMemoryTaskManager();
+        fresh.addEpic(new Epic(1, "Epic", "Description", TaskStatus.NEW));
+        fresh.addSubtask(new Subtask(1, 2, "Subtask", "Description", TaskStatus.NEW));
+        Task generated = new Task("Generated", "Description", TaskStatus.NEW);
+        fresh.addTask(generated);
+
+        assertEquals(3, generated.getId());
+        assertEquals(3, fresh.getAllTasks().size());
+    }
+
+    @Test
+    void batchTakesIdsFromOneReservation() {
+        InMemoryTaskManager fresh = new InMemoryTaskManager();
+        List<Integer> reserved = new ArrayList<>();
+        fresh.setIdAllocator(new AtomicIdAllocator() {
+            @Override
+            public int reserve(int count) {
+                reserved.add(count);
+                return super.reserve(count);
+            }
+        });
+        Epic release = new Epic("Release", "Description", TaskStatus.NEW);
+        List<Task> batch = new ArrayList<>(List.of(release));
+        fresh.addAll(batch);
+        batch.clear();
+        for (int i = 0; i < 5; i++) {
+            batch.add(new Subtask(release.getId(), "Subtask " + i, "Description", TaskStatus.NEW));
+        }
+        batch.add(new Task(100, "Preset", "Description", TaskStatus.NEW));
+        BatchResult result = fresh.addAll(batch);
+
+        assertEquals(List.of(1, 5), reserved);
+        assertEquals(List.of(2, 3, 4, 5, 6, 100), result.getSucceededIds());
+    }
+
+    @Test
+    void leasedAllocatorsHandOutDisjointBlocks() throws Exception {
+        File leases = Files.createTempFile("ids", ".lease").toFile();
+        leases.deleteOnExit();
+        InMemoryTaskManager first = new InMemoryTaskManager();
+        InMemoryTaskManager second = new InMemoryTaskManager();
+        first.setIdAllocator(new LeasedIdAllocator(leases, 10));
+        second.setIdAllocator(new LeasedIdAllocator(leases, 10));
+        Set<Integer> ids = new HashSet<>();
+        for (int i = 0; i < 25; i++) {
+            Task a = new Task("A" + i, "Description", TaskStatus.NEW);
+            Task b = new Task("B" + i, "Description", TaskStatus.NEW);
+            first.addTask(a);
+            second.addTask(b);
+            ids.add(a.getId());
+            ids.add(b.getId());
+        }
+        assertEquals(50, ids.size());
+        // Блоки по 10 берутся по очереди: последний выданный блок - 51-60
+        assertEquals(61, new LeasedIdAllocator(leases, 10).next());
+
+        // Задачи, загруженные из файла до аренды, поднимают счётчик аренды выше себя
+        LeasedIdAllocator loaded = new LeasedIdAllocator(leases, 10);
+        loaded.advance(500);
+        assertEquals(501, loaded.next());
+        assertEquals(511, new LeasedIdAllocator(leases, 10).next());
+
+        // Параллельно из нескольких экземпляров - без повторов
+        Set<Integer> parallel = ConcurrentHashMap.newKeySet();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            LeasedIdAllocator allocator = new LeasedIdAllocator(leases, 7);
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    parallel.add(allocator.next());
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(4000, parallel.size());
+    }
+
+    @Test
+    void snapshotIsNotChangedByLaterWrites() {
+        TaskSnapshot before = manager.snapshot();
+        assertSame(before, manager.snapshot(), "Без записей версия та же");
+
+        task.setName("Renamed");
+        manager.updateTask(task);
+        Subtask second = new Subtask(epic.getId(), "Second", "Description", TaskStatus.NEW, 60);
+        second.setStartTime(2024, 9, 2, 9, 0);
+        manager.addSubtask(second);
+        manager.removeTask(task.getId());
+
+        assertEquals("Sample Task", before.getTask(task.getId()).getName());
+        assertEquals(List.of(subtask.getId()), before.getEpics().get(0).getSubtaskOfEpicIDs());
+        assertEquals(TaskStatus.DONE, before.getEpics().get(0).getStatus());
+        assertEquals(3, before.getAllTasks().size());
+
+        TaskSnapshot after = manager.snapshot();
+        assertEquals(before.getVersion() + 3, after.getVersion());
+        assertNull(after.getTask(task.getId()));
+        assertEquals(TaskStatus.IN_PROGRESS, after.getEpics().get(0).getStatus());
+        assertEquals(List.of(subtask.getId(), second.getId()), after.getEpics().get(0).getSubtaskOfEpicIDs());
+        assertEquals(List.of(subtask, second), after.getSubtasksOfEpic(epic.getId()));
+        assertEquals(List.of(second, subtask), after.getPrioritizedTasks());
+    }
+
+    @Test
+    void snapshotFollowsBatchesShiftsAndClears() {
+        manager.snapshot();
+        Epic release = new Epic("Release", "Description", TaskStatus.NEW);
+        manager.addEpic(release);
+        List<Task> batch = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            Subtask each = new Subtask(release.getId(), "Subtask " + i, "Description", TaskStatus.NEW, 30);
+            each.setStartTime(LocalDateTime.of(2024, 9, 2, 9, 0).plusHours(i));
+            batch.add(each);
+        }
+        manager.addAll(batch);
+        manager.shiftEpic(release.getId(), Duration.ofDays(1));
+        manager.removeAll(List.of(batch.get(0).getId(), batch.get(1).getId()));
+        assertSameContent(manager);
+
+        manager.removeEpic(release.getId());
+        assertSameContent(manager);
+        manager.removeAllTasks();
+        assertSameContent(manager);
+        manager.removeAll();
+        assertTrue(manager.snapshot().getAllTasks().isEmpty());
+    }
+
+    @Test
+    void snapshotRangeQueryMatchesManager() {
+        Random random = new Random(23);
+        LocalDateTime base = LocalDateTime.of(2024, 9, 2, 0, 0);
+        RecurringTask standup = new RecurringTask("Standup", "Description", TaskStatus.NEW, 15,
+                RecurrenceRule.daily());
+        standup.setStartTime(2024, 9, 2, 9, 0);
+        manager.addTask(standup);
+        manager.snapshot();
+        for (int i = 0; i < 300; i++) {
+            Task each = new Task("Task " + i, "Description", TaskStatus.NEW, 10 + random.nextInt(600));
+            each.setStartTime(base.plusMinutes(random.nextInt(60 * 24 * 30)));
+            each.setAssignee("person " + random.nextInt(10));
+            if (!manager.isTimeOverlap(each)) {
+                manager.addTask(each);
+            }
+        }
+        TaskSnapshot snapshot = manager.snapshot();
+        for (int i = 0; i < 100; i++) {
+            LocalDateTime from = base.plusMinutes(random.nextInt(60 * 24 * 32));
+            LocalDateTime to = from.plusMinutes(1 + random.nextInt(60 * 24 * 3));
+            assertEquals(slots(manager.getPrioritizedTasks(from, to)), slots(snapshot.getPrioritizedTasks(from, to)),
+                    "Окно " + from + " - " + to);
+        }
+        assertEquals(manager.getPrioritizedTasks(), snapshot.getPrioritizedTasks());
+    }
+
+    private static void assertSameContent(TaskManager manager) {
+        TaskSnapshot snapshot = manager.snapshot();
+        assertEquals(manager.getTasks(), snapshot.getTasks());
+        assertEquals(manager.getSubtasks(), snapshot.getSubtasks());
+        assertEquals(manager.getEpics(), snapshot.getEpics());
+        assertEquals(manager.getPrioritizedTasks(), snapshot.getPrioritizedTasks());
+        for (Epic each : manager.getEpics()) {
+            Epic frozen = (Epic) snapshot.getTask(each.getId());
+            assertEquals(each.getSubtaskOfEpicIDs(), frozen.getSubtaskOfEpicIDs());
+            assertEquals(each.getStartTime(), frozen.getStartTime());
+            assertEquals(each.getEndTime(), frozen.getEndTime());
+            assertEquals(manager.getSubtasksOfEpic(each.getId()), snapshot.getSubtasksOfEpic(each.getId()));
+        }
+    }
+
+    private static List<String> slots(List<Task> tasks) {
+        List<String> slots = new ArrayList<>();
+        for (Task each : tasks) {
+            slots.add(each.getId() + "@" + each.getStartTime());
+        }
+        return slots;
+    }
 }
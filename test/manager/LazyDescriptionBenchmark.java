@@ -0,0 +1,64 @@
+package manager;
+
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Занятая куча после загрузки снимка с описаниями в памяти и с отложенными описаниями.
+// Запуск: java manager.LazyDescriptionBenchmark [количество задач]
+public class LazyDescriptionBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        File file = File.createTempFile("lazy-description-benchmark", ".csv");
+        file.deleteOnExit();
+        FileBackedTaskManager.writeRows(file, generate(size), SnapshotFormat.CSV);
+        System.out.printf("%d tasks, %d MB on disk%n", size, file.length() >> 20);
+
+        long baseline = usedHeap();
+        FileBackedTaskManager eager = FileBackedTaskManager.loadFromFile(file);
+        long eagerHeap = usedHeap() - baseline;
+        System.out.printf("eager: %d MB, %d tasks%n", eagerHeap >> 20, eager.getAllTasks().size());
+        eager = null;
+
+        baseline = usedHeap();
+        FileBackedTaskManager lazy = FileBackedTaskManager.loadFromFile(file, true);
+        long lazyHeap = usedHeap() - baseline;
+        System.out.printf("lazy:  %d MB, %d tasks%n", lazyHeap >> 20, lazy.getAllTasks().size());
+
+        long start = System.nanoTime();
+        int length = 0;
+        for (int id = 1; id <= size; id += 97) {
+            length += lazy.getTaskById(id).getDescription().length();
+        }
+        System.out.printf("%d cold description reads: %d us each (%d chars)%n", size / 97,
+                (System.nanoTime() - start) / 1_000 / Math.max(1, size / 97), length);
+        lazy.close();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static List<Task> generate(int size) {
+        List<Task> rows = new ArrayList<>(size);
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        String text = "Подробное описание задачи: шаги, критерии приёмки, ссылки на обсуждения. ";
+        for (int i = 1; i <= size; i++) {
+            Task task = new Task(i, "Task " + i, i + ". " + text.repeat(3), TaskStatus.values()[i % 3]);
+            task.setDuration(15);
+            task.setStartTime(start.plusMinutes(15L * i));
+            rows.add(task);
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,66 @@
+package manager;
+
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Проверка пересечений и поиск свободного времени по дереву ленты и по карте занятости.
+// Все времена по 15-минутным слотам: задачи по 15-60 минут, между ними промежутки до часа.
+// Запуск: java manager.OccupancyBenchmark [задач] [операций]
+public class OccupancyBenchmark {
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final Duration SLOT = Duration.ofMinutes(15);
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int operations = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+        for (int round = 0; round < 3; round++) {
+            run(size, operations, false);
+            run(size, operations, true);
+        }
+    }
+
+    private static void run(int size, int operations, boolean bitmap) {
+        InMemoryTaskManager manager = new InMemoryTaskManager();
+        if (bitmap) {
+            manager.setOccupancyIndex(SLOT);
+        }
+        List<Task> scheduled = new ArrayList<>(size);
+        long slot = 0;
+        for (int i = 0; i < size; i++) {
+            Task task = new Task("Task " + i, "Description", TaskStatus.NEW, 15L * (1 + i % 4));
+            task.setStartTime(BASE.plusMinutes(15 * slot));
+            scheduled.add(task);
+            slot += 1 + i % 4 + i % 5;
+        }
+        manager.addAll(scheduled);
+        long slots = slot;
+
+        int hits = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < operations; i++) {
+            Task probe = new Task("Probe", "Description", TaskStatus.NEW, 30);
+            probe.setStartTime(BASE.plusMinutes(15 * (i * 7919L % slots)));
+            if (manager.isTimeOverlap(probe)) {
+                hits++;
+            }
+        }
+        long overlapNanos = (System.nanoTime() - start) / operations;
+
+        int found = 0;
+        int searches = operations / 20;
+        start = System.nanoTime();
+        for (int i = 0; i < searches; i++) {
+            LocalDateTime from = BASE.plusMinutes(15 * (i * 7919L % slots));
+            found += manager.findFreeSlots(Duration.ofMinutes(45), from, from.plusDays(2), 10, null).size();
+        }
+        long searchNanos = (System.nanoTime() - start) / searches;
+
+        System.out.printf("%,d tasks, %s: isTimeOverlap %,5d ns (%d%% busy), findFreeSlots(10 in 2 days) %,6d ns (%,d)%n",
+                size, bitmap ? "bitmap" : "tree  ", overlapNanos, 100L * hits / operations, searchNanos, found);
+    }
+}
@@ -0,0 +1,51 @@
+package manager;
+
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Задержка addTask/updateTask с проверкой пересечений при разном числе задач в ленте.
+// Задачи идут через 30 минут по 15 минут, новые встают в промежутки между ними.
+// Запуск: java manager.OverlapBenchmark [операций на размер]
+public class OverlapBenchmark {
+    private static final int[] SIZES = {100, 1_000, 10_000, 100_000, 1_000_000};
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 0, 0);
+
+    public static void main(String[] args) {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        for (int size : SIZES) {
+            InMemoryTaskManager manager = new InMemoryTaskManager();
+            List<Task> scheduled = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                Task task = new Task("Task " + i, "Description", TaskStatus.NEW, 15);
+                task.setStartTime(BASE.plusMinutes(30L * i));
+                scheduled.add(task);
+            }
+            manager.addAll(scheduled);
+
+            long start = System.nanoTime();
+            for (int i = 0; i < operations; i++) {
+                Task gap = new Task("Gap", "Description", TaskStatus.NEW, 10);
+                gap.setStartTime(BASE.plusMinutes(30L * (i * 7919L % size) + 15));
+                manager.addTask(gap);
+                manager.removeTask(gap.getId());
+            }
+            long addNanos = (System.nanoTime() - start) / operations;
+
+            start = System.nanoTime();
+            for (int i = 0; i < operations; i++) {
+                Task task = scheduled.get((int) (i * 7919L % size));
+                Task moved = new Task(task.getId(), task.getName(), task.getDescription(), TaskStatus.NEW, 15);
+                moved.setStartTime(task.getStartTime().plusMinutes(i % 2 == 0 ? 5 : 0));
+                manager.updateTask(moved);
+            }
+            long updateNanos = (System.nanoTime() - start) / operations;
+
+            System.out.printf("%,9d tasks: addTask+removeTask %,6d ns, updateTask %,6d ns%n",
+                    size, addNanos, updateNanos);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package manager;
+
+import tasks.Epic;
+import tasks.Subtask;
+import tasks.Task;
+import tasks.TaskStatus;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Объём записи на одно изменение подзадачи: снимок одним файлом против сегментов по эпикам.
+// Запуск: java manager.SegmentedStorageBenchmark [эпиков] [подзадач в эпике] [изменений]
+public class SegmentedStorageBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int epicCount = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int subtasksPerEpic = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int updates = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+        for (StorageLayout layout : StorageLayout.values()) {
+            File file = File.createTempFile("segmented-benchmark", ".csv");
+            FileBackedTaskManager manager = new FileBackedTaskManager(file);
+            manager.setStorageLayout(layout);
+            List<Subtask> subtasks = fill(manager, epicCount, subtasksPerEpic);
+
+            long bytes = layout == StorageLayout.SEGMENTED ? manager.segmentBytesWritten() : 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < updates; i++) {
+                Subtask subtask = subtasks.get(i * 7919 % subtasks.size());
+                subtask.setStatus(TaskStatus.values()[i % 3]);
+                manager.updateSubtask(subtask);
+                if (layout == StorageLayout.SINGLE_FILE) {
+                    bytes += file.length();
+                }
+            }
+            long nanos = System.nanoTime() - start;
+            if (layout == StorageLayout.SEGMENTED) {
+                bytes = manager.segmentBytesWritten() - bytes;
+            }
+            System.out.printf("%-11s: %d KB written per update, %d us per update%n",
+                    layout, bytes / updates >> 10, nanos / 1_000 / updates);
+            manager.close();
+            delete(file);
+        }
+    }
+
+    private static List<Subtask> fill(FileBackedTaskManager manager, int epicCount, int subtasksPerEpic) {
+        List<Task> tasks = new ArrayList<>();
+        List<Epic> epics = new ArrayList<>();
+        for (int i = 0; i < epicCount * 10; i++) {
+            tasks.add(new Task("Task " + i, "Standalone task description " + i, TaskStatus.NEW));
+        }
+        for (int e = 0; e < epicCount; e++) {
+            epics.add(new Epic("Epic " + e, "Epic description " + e, TaskStatus.NEW));
+        }
+        manager.addAll(tasks);
+        manager.addAll(epics);
+        List<Subtask> subtasks = new ArrayList<>();
+        for (Epic epic : epics) {
+            for (int s = 0; s < subtasksPerEpic; s++) {
+                subtasks.add(new Subtask(epic.getId(), "Subtask " + s, "Subtask description " + s, TaskStatus.NEW));
+            }
+        }
+        manager.addAll(subtasks);
+        return subtasks;
+    }
+
+    private static void delete(File file) throws IOException {
+        File segments = new File(file.getPath() + ".segments");
+        if (segments.exists()) {
+            try (Stream<Path> paths = Files.walk(segments.toPath())) {
+                paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+        file.delete();
+    }
+}
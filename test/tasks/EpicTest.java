@@ -6,6 +6,9 @@ import manager.InMemoryTaskManager;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 class EpicTest {
@@ -88,4 +91,39 @@ class EpicTest {
 
         assertEquals(TaskStatus.DONE, epic.getStatus(), "Статус эпика со всеми сабтасками в статусе DONE не DONE");
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldRollUpTimeIgnoringSubtasksWithoutStartTime() {
+        subtask1.setDuration(Duration.ofMinutes(30));
+        subtask1.setStartTime(2024, 9, 2, 10, 0);
+        subtask2.setDuration(Duration.ofMinutes(60));
+        subtask2.setStartTime(2024, 9, 2, 8, 0);
+        subtask3.setDuration(Duration.ofMinutes(15));
+
+        manager.updateSubtask(subtask1);
+        manager.updateSubtask(subtask2);
+        manager.updateSubtask(subtask3);
+
+        assertEquals(LocalDateTime.of(2024, 9, 2, 8, 0), epic.getStartTime(), "Начало эпика не равно раннему началу");
+        assertEquals(LocalDateTime.of(2024, 9, 2, 10, 30), epic.getEndTime(), "Конец эпика не равен позднему концу");
+        assertEquals(Duration.ofMinutes(105), epic.getDuration(), "Длительность эпика не равна сумме");
+    }
+
+    @Test
+    void shouldShrinkEpicTimeWhenSubtaskRemoved() {
+        subtask1.setDuration(Duration.ofMinutes(30));
+        subtask1.setStartTime(2024, 9, 3, 9, 0);
+        subtask2.setDuration(Duration.ofMinutes(30));
+        subtask2.setStartTime(2024, 9, 3, 12, 0);
+        subtask2.setStatus(TaskStatus.DONE);
+        manager.updateSubtask(subtask1);
+        manager.updateSubtask(subtask2);
+
+        manager.removeSubtask(subtask2.getId());
+        manager.removeSubtask(subtask3.getId());
+
+        assertEquals(LocalDateTime.of(2024, 9, 3, 9, 30), epic.getEndTime(), "Конец эпика не сдвинулся после удаления");
+        assertEquals(Duration.ofMinutes(30), epic.getDuration());
+        assertEquals(TaskStatus.NEW, epic.getStatus(), "Статус удалённой подзадачи остался в эпике");
+    }
+}